@@ -0,0 +1,67 @@
+package com.sola.instagram.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the recorded API responses bundled with the benchmarks. The
+ * responses were anonymized: ids, names, urls and text are synthetic, but
+ * the shape and size of each payload match what the API returns.
+ */
+public class Fixtures {
+
+	/**
+	 * A page of the authenticated user's feed, with images and videos
+	 */
+	public static final String FEED = "feed";
+
+	/**
+	 * A single video media
+	 */
+	public static final String MEDIA_VIDEO = "media-video";
+
+	/**
+	 * A page of the users followed by a user
+	 */
+	public static final String USERS = "users";
+
+	/**
+	 * The result of a tag search
+	 */
+	public static final String TAG_SEARCH = "tag-search";
+
+	public static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+
+	/**
+	 * Returns the raw UTF-8 body of a fixture
+	 * @param name name of the fixture
+	 * @return The body of the fixture
+	 */
+	public static byte[] bytes(String name) throws IOException {
+		InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name + ".json");
+		if(in == null) {
+			throw new IOException("No fixture named " + name);
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the body of a fixture as a String
+	 * @param name name of the fixture
+	 * @return The body of the fixture
+	 */
+	public static String string(String name) throws IOException {
+		return new String(bytes(name), "UTF-8");
+	}
+}
@@ -0,0 +1,51 @@
+package com.sola.instagram.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of building a JSONObject tree out of each fixture
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JSONParseBenchmark {
+
+	@Param({Fixtures.FEED, Fixtures.MEDIA_VIDEO, Fixtures.USERS, Fixtures.TAG_SEARCH})
+	public String fixture;
+
+	String text;
+	byte[] bytes;
+
+	@Setup
+	public void load() throws Exception {
+		text = Fixtures.string(fixture);
+		bytes = Fixtures.bytes(fixture);
+	}
+
+	@Benchmark
+	public JSONObject parseString() throws Exception {
+		return new JSONObject(new JSONTokener(text));
+	}
+
+	@Benchmark
+	public JSONObject parseBytes() throws Exception {
+		return new JSONObject(new JSONTokener(bytes));
+	}
+}
@@ -0,0 +1,137 @@
+package com.sola.instagram.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.sola.instagram.model.Media;
+import com.sola.instagram.model.Tag;
+import com.sola.instagram.model.User;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning responses into models. The *FromTree benchmarks start
+ * from an already parsed JSONObject and measure the model constructors
+ * alone; the *FromText benchmarks include parsing, either into a tree
+ * first or straight through a JSONReader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ModelBenchmark {
+
+	String feedText;
+	String usersText;
+	JSONArray feed;
+	JSONObject video;
+	JSONArray users;
+	JSONArray tags;
+
+	@Setup
+	public void load() throws Exception {
+		feedText = Fixtures.string(Fixtures.FEED);
+		usersText = Fixtures.string(Fixtures.USERS);
+		feed = new JSONObject(feedText).getJSONArray("data");
+		video = new JSONObject(Fixtures.string(Fixtures.MEDIA_VIDEO)).getJSONObject("data");
+		users = new JSONObject(usersText).getJSONArray("data");
+		tags = new JSONObject(Fixtures.string(Fixtures.TAG_SEARCH)).getJSONArray("data");
+	}
+
+	@Benchmark
+	public List<Media> feedFromTree() throws Exception {
+		List<Media> media = new ArrayList<Media>();
+		for(int i = 0; i < feed.length(); i++) {
+			media.add(Media.fromJSON(feed.getJSONObject(i), Fixtures.ACCESS_TOKEN));
+		}
+		return media;
+	}
+
+	@Benchmark
+	public Media videoFromTree() throws Exception {
+		return Media.fromJSON(video, Fixtures.ACCESS_TOKEN);
+	}
+
+	@Benchmark
+	public List<User> usersFromTree() throws Exception {
+		List<User> result = new ArrayList<User>();
+		for(int i = 0; i < users.length(); i++) {
+			result.add(new User(users.getJSONObject(i), Fixtures.ACCESS_TOKEN));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<Tag> tagsFromTree() throws Exception {
+		List<Tag> result = new ArrayList<Tag>();
+		for(int i = 0; i < tags.length(); i++) {
+			result.add(new Tag(tags.getJSONObject(i), Fixtures.ACCESS_TOKEN));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<Media> feedFromTextViaTree() throws Exception {
+		JSONArray data = new JSONObject(feedText).getJSONArray("data");
+		List<Media> media = new ArrayList<Media>();
+		for(int i = 0; i < data.length(); i++) {
+			media.add(Media.fromJSON(data.getJSONObject(i), Fixtures.ACCESS_TOKEN));
+		}
+		return media;
+	}
+
+	@Benchmark
+	public List<Media> feedFromTextViaReader() throws Exception {
+		List<Media> media = new ArrayList<Media>();
+		JSONReader reader = new JSONReader(feedText);
+		reader.beginObject();
+		while(reader.hasNext()) {
+			if(!reader.nextName().equals("data")) {
+				reader.skipValue();
+				continue;
+			}
+			reader.beginArray();
+			while(reader.hasNext()) {
+				media.add(Media.fromJSON(reader, Fixtures.ACCESS_TOKEN));
+			}
+			reader.endArray();
+		}
+		reader.endObject();
+		return media;
+	}
+
+	@Benchmark
+	public List<User> usersFromTextViaReader() throws Exception {
+		List<User> result = new ArrayList<User>();
+		JSONReader reader = new JSONReader(usersText);
+		reader.beginObject();
+		while(reader.hasNext()) {
+			if(!reader.nextName().equals("data")) {
+				reader.skipValue();
+				continue;
+			}
+			reader.beginArray();
+			while(reader.hasNext()) {
+				result.add(new User(reader, Fixtures.ACCESS_TOKEN));
+			}
+			reader.endArray();
+		}
+		reader.endObject();
+		return result;
+	}
+}
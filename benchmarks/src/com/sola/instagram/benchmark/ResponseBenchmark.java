@@ -0,0 +1,47 @@
+package com.sola.instagram.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import com.sola.instagram.io.RequestResponse;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of RequestResponse.getJSON() on a body that is still a stream, as
+ * it is when it comes off a pooled connection
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ResponseBenchmark {
+
+	@Param({Fixtures.FEED, Fixtures.MEDIA_VIDEO, Fixtures.USERS, Fixtures.TAG_SEARCH})
+	public String fixture;
+
+	byte[] body;
+
+	@Setup
+	public void load() throws Exception {
+		body = Fixtures.bytes(fixture);
+	}
+
+	@Benchmark
+	public JSONObject getJSON() {
+		return new RequestResponse(new ByteArrayInputStream(body)).getJSON();
+	}
+}
@@ -0,0 +1,303 @@
+package com.sola.instagram;
+
+import com.sola.instagram.auth.AccessToken;
+import com.sola.instagram.exception.InstagramException;
+import com.sola.instagram.io.APIMethod;
+import com.sola.instagram.io.AsyncHttpTransport;
+import com.sola.instagram.io.DeleteMethod;
+import com.sola.instagram.io.GetMethod;
+import com.sola.instagram.io.PostMethod;
+import com.sola.instagram.io.UriFactory;
+import com.sola.instagram.model.*;
+import com.sola.instagram.util.UriConstructor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Non-blocking variant of InstagramSession. Every method sends its request
+ * through an AsyncHttpTransport and returns right away with a future of the
+ * result, so a single process can keep thousands of requests in flight
+ * without dedicating a thread to each one.
+ *
+ * Responses are parsed on the executor passed to the session (the common
+ * fork-join pool by default), never on the transport's I/O threads. Lazy
+ * loads on the returned models (comments, likers, user counts) are still
+ * blocking calls made through the shared HttpTransport.
+ *
+ * Paginated endpoints are only available on InstagramSession.
+ */
+public class AsyncInstagramSession {
+
+	final String accessToken;
+	final UriConstructor uriConstructor;
+	final AsyncHttpTransport transport;
+	final Executor executor;
+
+	/**
+	 * Creates a new asynchronous session with its own transport
+	 *
+	 * @param accessToken
+	 *            the session's access token
+	 */
+	public AsyncInstagramSession(AccessToken accessToken) throws Exception {
+		this(accessToken, new AsyncHttpTransport(), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a new asynchronous session
+	 *
+	 * @param accessToken
+	 *            the session's access token
+	 * @param transport
+	 *            the non-blocking transport used for every api request
+	 * @param executor
+	 *            executor that responses are parsed on
+	 */
+	public AsyncInstagramSession(AccessToken accessToken,
+			AsyncHttpTransport transport, Executor executor) {
+		this.accessToken = accessToken.getTokenString();
+		this.uriConstructor = new UriConstructor(this.accessToken);
+		this.transport = transport;
+		this.executor = executor;
+	}
+
+	protected String getAccessToken() {
+		return accessToken;
+	}
+
+	public AsyncHttpTransport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Stops the session's transport
+	 */
+	public void close() {
+		transport.shutdown();
+	}
+
+	/**
+	 * Finds the user with the given id. The future fails with an
+	 * InstagramException if the user cannot be accessed.
+	 *
+	 * @param userId
+	 *            id of the user
+	 * @return Future of the user with the id passed
+	 */
+	public CompletableFuture<User> getUserById(final int userId) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("user_id", userId);
+		String uri = uriConstructor.constructUri(UriFactory.Users.GET_DATA, map, true);
+		return call(new GetMethod().setMethodURI(uri), object -> {
+			if (!object.has("data")) {
+				throw new InstagramException("User with id = " + userId
+						+ " cannot be accessed" + " or may not exist");
+			}
+			return new User(object.getJSONObject("data"), getAccessToken());
+		});
+	}
+
+	/**
+	 * Gets the media with the id passed.
+	 *
+	 * @param mediaId
+	 *            the id of the media to be returned
+	 * @return Future of the media with the id passed
+	 */
+	public CompletableFuture<Media> getMedia(String mediaId) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("media_id", mediaId);
+		String uri = uriConstructor.constructUri(UriFactory.Media.GET_MEDIA, map, true);
+		return call(new GetMethod().setMethodURI(uri),
+				object -> Media.fromJSON(object.getJSONObject("data"), getAccessToken()));
+	}
+
+	/**
+	 * Searches for media by location and creation time. Any parameter
+	 * other than the coordinates can be null.
+	 *
+	 * @return Future of the recent media that meet the search parameters
+	 */
+	public CompletableFuture<List<Media>> searchMedia(Object latitude, Object longitude,
+			Object minTimestamp, Object maxTimestamp, Object distance) {
+		LinkedHashMap<String, Object> query = new LinkedHashMap<String, Object>();
+		query.put("lat", latitude);
+		query.put("lng", longitude);
+		query.put("min_timestamp", minTimestamp);
+		query.put("max_timestamp", maxTimestamp);
+		query.put("distance", distance);
+		String uri = uriConstructor.constructUri(
+				UriFactory.Media.SEARCH_MEDIA, null, query, true);
+		return call(new GetMethod().setMethodURI(uri), this::toMediaList);
+	}
+
+	/**
+	 * Finds the most popular media on instagram.
+	 *
+	 * @return Future of the most popular media on instagram
+	 */
+	public CompletableFuture<List<Media>> getPopularMedia() {
+		String uri = uriConstructor.constructUri(
+				UriFactory.Media.GET_POPULAR_MEDIA, null, true);
+		return call(new GetMethod().setMethodURI(uri), this::toMediaList);
+	}
+
+	/**
+	 * Searches for users by name.
+	 *
+	 * @param name
+	 *            the full name or username of the user to be returned
+	 * @return Future of the users who match the search criteria
+	 */
+	public CompletableFuture<List<User>> searchUsersByName(String name) {
+		String uri = uriConstructor.constructUri(
+				UriFactory.Users.SEARCH_USER_BY_NAME, null,
+				Collections.singletonMap("q", name), true);
+		return call(new GetMethod().setMethodURI(uri), this::toUserList);
+	}
+
+	public CompletableFuture<List<User>> getFollowRequests() {
+		String uri = uriConstructor.constructUri(
+				UriFactory.Relationships.GET_FOLLOW_REQUESTS, null, true);
+		return call(new GetMethod().setMethodURI(uri), this::toUserList);
+	}
+
+	public CompletableFuture<Relationship> getRelationshipWith(int userId) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("user_id", userId);
+		String uri = uriConstructor.constructUri(
+				UriFactory.Relationships.GET_RELATIONSHIP_STATUS, map, true);
+		return call(new GetMethod().setMethodURI(uri),
+				object -> new Relationship(object.getJSONObject("data"), getAccessToken()));
+	}
+
+	public CompletableFuture<Boolean> modifyRelationship(int userId, Relationship.Action action) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("user_id", userId);
+		HashMap<String, Object> args = new HashMap<String, Object>();
+		args.put("action", action.name().toLowerCase());
+		String uri = uriConstructor.constructUri(
+				UriFactory.Relationships.MUTATE_RELATIONSHIP, map, true);
+		return call(new PostMethod().setPostParameters(args).setMethodURI(uri),
+				this::isSuccessful);
+	}
+
+	public CompletableFuture<Comment> postComment(String mediaId, String text) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("media_id", mediaId);
+		HashMap<String, Object> args = new HashMap<String, Object>();
+		args.put("text", text);
+		args.put("access_token", getAccessToken());
+		String uri = uriConstructor.constructUri(
+				UriFactory.Comments.POST_MEDIA_COMMENT, map, false);
+		return call(new PostMethod().setPostParameters(args).setMethodURI(uri),
+				object -> new Comment(object.getJSONObject("data"), getAccessToken()));
+	}
+
+	public CompletableFuture<Boolean> removeComment(String mediaId, String commentId) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("media_id", mediaId);
+		map.put("comment_id", commentId);
+		String uri = uriConstructor.constructUri(
+				UriFactory.Comments.DELETE_MEDIA_COMMENT, map, true);
+		return call(new DeleteMethod().setMethodURI(uri), this::isSuccessful);
+	}
+
+	public CompletableFuture<Boolean> likeMedia(String mediaId) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("media_id", mediaId);
+		HashMap<String, Object> args = new HashMap<String, Object>();
+		args.put("access_token", getAccessToken());
+		String uri = uriConstructor.constructUri(UriFactory.Likes.SET_LIKE, map, false);
+		return call(new PostMethod().setPostParameters(args).setMethodURI(uri),
+				this::isSuccessful);
+	}
+
+	public CompletableFuture<Boolean> removeMediaLike(String mediaId) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("media_id", mediaId);
+		String uri = uriConstructor.constructUri(UriFactory.Likes.REMOVE_LIKE, map, true);
+		return call(new DeleteMethod().setMethodURI(uri), this::isSuccessful);
+	}
+
+	public CompletableFuture<Tag> getTag(String tagName) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("tag_name", tagName);
+		String uri = uriConstructor.constructUri(UriFactory.Tags.GET_TAG, map, true);
+		return call(new GetMethod().setMethodURI(uri),
+				object -> new Tag(object.getJSONObject("data"), getAccessToken()));
+	}
+
+	public CompletableFuture<List<Tag>> searchTags(String tagName) {
+		String uri = uriConstructor.constructUri(
+				UriFactory.Tags.SEARCH_TAGS, null,
+				Collections.singletonMap("q", tagName), true);
+		return call(new GetMethod().setMethodURI(uri), object -> {
+			ArrayList<Tag> tags = new ArrayList<Tag>();
+			JSONArray tagItems = object.getJSONArray("data");
+			for (int i = 0; i < tagItems.length(); i++) {
+				tags.add(new Tag(tagItems.getJSONObject(i), getAccessToken()));
+			}
+			return tags;
+		});
+	}
+
+	public CompletableFuture<Location> getLocation(int locationId) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("location_id", locationId);
+		String uri = uriConstructor.constructUri(
+				UriFactory.Locations.GET_LOCATION, map, true);
+		return call(new GetMethod().setMethodURI(uri),
+				object -> new Location(object.getJSONObject("data"), getAccessToken()));
+	}
+
+	/**
+	 * Converts a parsed response into the value of a future
+	 */
+	interface Binder<T> {
+		T bind(JSONObject object) throws Exception;
+	}
+
+	private <T> CompletableFuture<T> call(APIMethod method, final Binder<T> binder) {
+		return transport.call(method).thenApplyAsync(response -> {
+			try {
+				return binder.bind(response.getJSON());
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	private List<Media> toMediaList(JSONObject object) throws Exception {
+		ArrayList<Media> media = new ArrayList<Media>();
+		JSONArray mediaItems = object.getJSONArray("data");
+		for (int i = 0; i < mediaItems.length(); i++) {
+			media.add(Media.fromJSON(mediaItems.getJSONObject(i), getAccessToken()));
+		}
+		return media;
+	}
+
+	private List<User> toUserList(JSONObject object) throws Exception {
+		ArrayList<User> users = new ArrayList<User>();
+		JSONArray userObjects = object.getJSONArray("data");
+		for (int i = 0; i < userObjects.length(); i++) {
+			users.add(new User(userObjects.getJSONObject(i), getAccessToken()));
+		}
+		return users;
+	}
+
+	private Boolean isSuccessful(JSONObject object) throws Exception {
+		return object.getJSONObject("meta").getInt("code") == 200;
+	}
+}
@@ -25,50 +25,127 @@ package com.sola.instagram;
  */
 import com.sola.instagram.auth.AccessToken;
 import com.sola.instagram.exception.InstagramException;
+import com.sola.instagram.exception.RateLimitException;
 import com.sola.instagram.io.DeleteMethod;
 import com.sola.instagram.io.GetMethod;
+import com.sola.instagram.io.HttpTransport;
 import com.sola.instagram.io.PostMethod;
 import com.sola.instagram.io.RequestResponse;
 import com.sola.instagram.io.UriFactory;
 import com.sola.instagram.model.*;
+import com.sola.instagram.util.EntityCache;
 import com.sola.instagram.util.PaginatedCollection;
 import com.sola.instagram.util.PaginationIterator;
 import com.sola.instagram.util.UriConstructor;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONArray;
+import org.json.JSONReader;
 
 import java.lang.reflect.*;
 /**
  * Constains a methods used to interact with the API.
  * 
+ * Sessions are thread-safe: a single session per access token can be 
+ * shared by a whole pool of worker threads. The models it returns can be 
+ * shared as well; their lazily loaded comments, likers and user details 
+ * are fetched once, by the first thread that asks for them, and safely 
+ * published to the others. Lists returned by the session and by the models
+ * must be treated as read-only once shared.
+ * 
  * @author Sola Ogunsakin
  * @version 2012-08-22
  */
 public class InstagramSession {
 
-	String accessToken;
-	User currentUser;
-	UriConstructor uriConstructor;
-	HashMap<String, ArrayList<String>> pageMap;
+	/**
+	 * Default number of requests hydrateUsers sends at a time
+	 */
+	public static final int DEFAULT_HYDRATION_PARALLELISM = 8;
+
+	volatile String accessToken;
+	volatile UriConstructor uriConstructor;
+	final HttpTransport transport;
+	float prefetchThreshold;
+	int prefetchDepth = 0;
+	ExecutorService executor;
+	final EntityCache<Integer, User> userCache;
+	final EntityCache<String, Media> mediaCache;
+	final EntityCache<String, Tag> tagCache;
+	final EntityCache<Integer, Location> locationCache;
+	final EntityCache<Integer, Relationship> relationshipCache;
+
 	public InstagramSession() {
+		this((String) null, null, null);
 	}
 
 	/**
-	 * Creates a new Instagram session
+	 * Creates a new Instagram session with its own pooled transport
 	 * 
 	 * @param accessToken
 	 *            the session's access token
 	 */
 	public InstagramSession(AccessToken accessToken) {
-		setAccessToken(accessToken.getTokenString());
-		this.uriConstructor = new UriConstructor(getAccessToken());
+		this(accessToken, new HttpTransport());
+	}
+
+	/**
+	 * Creates a new Instagram session that sends all of its requests
+	 * through the transport passed
+	 * 
+	 * @param accessToken
+	 *            the session's access token
+	 * @param transport
+	 *            the pooled transport used for every api request
+	 */
+	public InstagramSession(AccessToken accessToken, HttpTransport transport) {
+		this(accessToken.getTokenString(), transport, null);
+	}
+
+	/**
+	 * Creates a session that shares the entity caches of another one
+	 * 
+	 * @param accessToken
+	 *            the session's access token
+	 * @param transport
+	 *            the pooled transport used for every api request
+	 * @param caches
+	 *            session whose caches are used, or null to create new ones
+	 */
+	InstagramSession(String accessToken, HttpTransport transport,
+			InstagramSession caches) {
+		if (accessToken != null) {
+			setAccessToken(accessToken);
+		}
+		this.transport = transport;
+		if (caches == null) {
+			userCache = new EntityCache<Integer, User>(1000, 5, TimeUnit.MINUTES);
+			mediaCache = new EntityCache<String, Media>(1000, 1, TimeUnit.MINUTES);
+			tagCache = new EntityCache<String, Tag>(500, 1, TimeUnit.MINUTES);
+			locationCache = new EntityCache<Integer, Location>(500, 1, TimeUnit.HOURS);
+			relationshipCache = new EntityCache<Integer, Relationship>(1000, 1, TimeUnit.MINUTES);
+		} else {
+			userCache = caches.userCache;
+			mediaCache = caches.mediaCache;
+			tagCache = caches.tagCache;
+			locationCache = caches.locationCache;
+			relationshipCache = caches.relationshipCache;
+		}
 	}
 
 	protected String getAccessToken() {
@@ -76,8 +153,233 @@ public class InstagramSession {
 	}
 
 	protected void setAccessToken(String accessToken) {
+		this.uriConstructor = new UriConstructor(accessToken);
 		this.accessToken = accessToken;
 	}
+
+	/**
+	 * Returns the transport this session's requests are sent through
+	 * 
+	 * @return The session's transport
+	 */
+	public HttpTransport getTransport() {
+		return transport == null ? HttpTransport.getDefault() : transport;
+	}
+
+	/**
+	 * Returns the cache of users returned by getUserById. Users are kept for
+	 * 5 minutes by default.
+	 */
+	public EntityCache<Integer, User> getUserCache() {
+		return userCache;
+	}
+
+	/**
+	 * Returns the cache of media returned by getMedia. Media are kept for a 
+	 * minute by default and are dropped when they are liked or commented on
+	 * through this session.
+	 */
+	public EntityCache<String, Media> getMediaCache() {
+		return mediaCache;
+	}
+
+	/**
+	 * Returns the cache of tags returned by getTag. Tags are kept for a 
+	 * minute by default.
+	 */
+	public EntityCache<String, Tag> getTagCache() {
+		return tagCache;
+	}
+
+	/**
+	 * Returns the cache of locations returned by getLocation. Locations are
+	 * kept for an hour by default.
+	 */
+	public EntityCache<Integer, Location> getLocationCache() {
+		return locationCache;
+	}
+
+	/**
+	 * Returns the cache of relationships returned by getRelationshipWith. 
+	 * Relationships are kept for a minute by default and are dropped when 
+	 * they are modified through this session.
+	 */
+	public EntityCache<Integer, Relationship> getRelationshipCache() {
+		return relationshipCache;
+	}
+
+	/**
+	 * Empties every entity cache of this session
+	 */
+	public void invalidateCaches() {
+		userCache.invalidateAll();
+		mediaCache.invalidateAll();
+		tagCache.invalidateAll();
+		locationCache.invalidateAll();
+		relationshipCache.invalidateAll();
+	}
+
+	/**
+	 * Makes the paginated collections returned by this session load their
+	 * following pages in the background. Once iteration has passed the
+	 * threshold fraction of a page, up to depth pages are requested ahead.
+	 * 
+	 * @param threshold
+	 *            fraction of a page, between 0 and 1, after which the
+	 *            following pages are requested
+	 * @param depth
+	 *            number of pages to load ahead, 0 to disable prefetching
+	 */
+	public synchronized void setPagePrefetch(float threshold, int depth) {
+		this.prefetchThreshold = threshold;
+		this.prefetchDepth = depth;
+	}
+
+	/**
+	 * Closes the pooled connections held by this session's transport
+	 * and stops its page prefetching and user hydration threads
+	 */
+	public void close() {
+		getTransport().shutdown();
+		synchronized (this) {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private <E> PaginatedCollection<E> paginate(ArrayList<E> list,
+			PaginationIterator<E> iterator) {
+		synchronized (this) {
+			if (prefetchDepth > 0) {
+				iterator.setPrefetch(prefetchThreshold, prefetchDepth,
+						getExecutor());
+			}
+		}
+		return new PaginatedCollection<E>(list, iterator);
+	}
+
+	private PaginatedCollection<Media> paginateMedia(String uriString)
+			throws Exception {
+		ArrayList<Media> media = new ArrayList<Media>();
+		PaginationIterator<Media> iterator = new PaginationIterator<Media>(media, uriString, getTransport()) {
+			@Override
+			protected Media convert(JSONObject item) throws JSONException {
+				return bind(Media.fromJSON(item, getAccessToken()));
+			}
+		};
+		return paginate(media, iterator);
+	}
+
+	private PaginatedCollection<User> paginateUsers(String uriString)
+			throws Exception {
+		ArrayList<User> users = new ArrayList<User>();
+		PaginationIterator<User> iterator = new PaginationIterator<User>(users, uriString, getTransport()) {
+			@Override
+			protected User convert(JSONObject item) throws JSONException {
+				return bind(new User(item, getAccessToken()));
+			}
+		};
+		return paginate(users, iterator);
+	}
+
+	/**
+	 * Returns the executor that prefetches pages and hydrates users, whose
+	 * threads are created as needed and reused across calls
+	 */
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "instagram-session");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Makes a model straight from a reader positioned at its json object
+	 */
+	interface Binder<T> {
+		T bind(JSONReader reader) throws JSONException;
+	}
+
+	/**
+	 * Sends a GET request and binds the object in the "data" field of the 
+	 * response straight from the stream, without building a tree of the 
+	 * whole response; the model keeps only what its retention asks for
+	 * 
+	 * @return The bound model, or null if the response has no data
+	 */
+	private <T extends InstagramModel> T readData(String uri, Binder<T> binder)
+			throws Exception {
+		RequestResponse response = (new GetMethod(getTransport())
+				.setMethodURI(uri)).call();
+		T model = null;
+		try {
+			JSONReader reader = response.getReader();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (!reader.nextName().equals("data")) {
+					reader.skipValue();
+				} else if (!reader.skipNull()) {
+					model = bind(binder.bind(reader));
+				}
+			}
+			reader.endObject();
+		} finally {
+			response.close();
+		}
+		return model;
+	}
+
+	/**
+	 * Sends a GET request and binds each object of the array in the "data" 
+	 * field of the response straight from the stream
+	 * 
+	 * @return The bound models, or null if the response has no data
+	 */
+	private <T extends InstagramModel> List<T> readDataList(String uri,
+			Binder<T> binder) throws Exception {
+		RequestResponse response = (new GetMethod(getTransport())
+				.setMethodURI(uri)).call();
+		ArrayList<T> models = null;
+		try {
+			JSONReader reader = response.getReader();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (!reader.nextName().equals("data")) {
+					reader.skipValue();
+				} else if (!reader.skipNull()) {
+					models = new ArrayList<T>();
+					reader.beginArray();
+					while (reader.hasNext()) {
+						models.add(bind(binder.bind(reader)));
+					}
+					reader.endArray();
+				}
+			}
+			reader.endObject();
+		} finally {
+			response.close();
+		}
+		return models;
+	}
+
+	private static <T> T required(T data) throws JSONException {
+		if (data == null) {
+			throw new JSONException("JSONObject[\"data\"] not found.");
+		}
+		return data;
+	}
+
+	private <T extends InstagramModel> T bind(T model) {
+		model.setTransport(getTransport());
+		return model;
+	}
 	
 	/**
 	 * Finds and returns a user with the given id. Throws an InstagramException
@@ -88,20 +390,24 @@ public class InstagramSession {
 	 * @return The user with the id passed
 	 */
 	public User getUserById(int userId) throws Exception {
+		User cached = userCache.get(userId);
+		if (cached != null) {
+			return cached;
+		}
 		HashMap<String, Object> map = new HashMap<String, Object>();
 		map.put("user_id", userId);
 		try {
-			JSONObject userObject = (new GetMethod()
-					.setMethodURI(uriConstructor.constructUri(
-							UriFactory.Users.GET_DATA, map, true))).call()
-					.getJSON();
-			if (userObject.has("data")) {
-				return new User(userObject.getJSONObject("data"),
-						getAccessToken());
+			User user = readData(uriConstructor.constructUri(
+					UriFactory.Users.GET_DATA, map, true),
+					reader -> new User(reader, getAccessToken()));
+			if (user != null) {
+				return userCache.put(userId, user);
 			} else {
 				throw new InstagramException("User with id = " + userId
 						+ " cannot be accessed" + " or may not exist");
 			}
+		} catch (RateLimitException e) {
+			throw e;
 		} catch (InstagramException e) {
 			throw new InstagramException(
 					"User with id = "
@@ -111,6 +417,92 @@ public class InstagramSession {
 		}
 	}
 
+	/**
+	 * Loads the bio, website and counts of the users passed, sending up to
+	 * DEFAULT_HYDRATION_PARALLELISM requests at a time
+	 * 
+	 * @param users
+	 *            users to be loaded, such as the members of a follower list
+	 * @see #hydrateUsers(Collection, int)
+	 */
+	public void hydrateUsers(Collection<User> users) throws Exception {
+		hydrateUsers(users, DEFAULT_HYDRATION_PARALLELISM);
+	}
+
+	/**
+	 * Loads the bio, website and counts of the users passed, so that their
+	 * getters do not each send a request. Users that already have their 
+	 * details are skipped, and users listed more than once are loaded with
+	 * a single request. Requests go through the transport's rate limits and
+	 * the session's user cache, and run on the session's executor, whose 
+	 * threads are reused from one call to the next.
+	 * 
+	 * Users that cannot be accessed are left as they are. Any other failure
+	 * is thrown once every request has completed.
+	 * 
+	 * @param users
+	 *            users to be loaded, such as the members of a follower list
+	 * @param parallelism
+	 *            maximum number of requests sent at a time
+	 */
+	public void hydrateUsers(Collection<User> users, int parallelism) 
+			throws Exception {
+		LinkedHashMap<Integer, List<User>> usersById = new LinkedHashMap<Integer, List<User>>();
+		for (User user : users) {
+			if (user.hasDetails()) {
+				continue;
+			}
+			List<User> sameId = usersById.get(user.getId());
+			if (sameId == null) {
+				sameId = new ArrayList<User>(1);
+				usersById.put(user.getId(), sameId);
+			}
+			sameId.add(user);
+		}
+		if (usersById.isEmpty()) {
+			return;
+		}
+		ExecutorService executor = getExecutor();
+		// a request is only submitted once one of the earlier ones is done
+		final Semaphore slots = new Semaphore(Math.max(1, parallelism));
+		LinkedHashMap<Integer, Future<User>> requests = new LinkedHashMap<Integer, Future<User>>();
+		Exception failure = null;
+		try {
+			for (final Integer userId : usersById.keySet()) {
+				slots.acquire();
+				requests.put(userId, executor.submit(() -> {
+					try {
+						return getUserById(userId);
+					} finally {
+						slots.release();
+					}
+				}));
+			}
+			for (Map.Entry<Integer, Future<User>> request : requests.entrySet()) {
+				try {
+					User details = request.getValue().get();
+					for (User user : usersById.get(request.getKey())) {
+						user.setDetails(details);
+					}
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					boolean inaccessible = cause instanceof InstagramException
+							&& !(cause instanceof RateLimitException);
+					if (!inaccessible && failure == null) {
+						failure = cause instanceof Exception ? (Exception) cause : e;
+					}
+				}
+			}
+		} finally {
+			for (Future<User> request : requests.values()) {
+				request.cancel(true);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
 	/**
 	 * Finds and returns the most recent media published by the user with the id
 	 * passed. 
@@ -127,18 +519,7 @@ public class InstagramSession {
 		map.put("user_id", userId);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Users.GET_RECENT_MEDIA, map, true);
-		ArrayList<Media> media = new ArrayList<Media>();		
-		PaginationIterator<Media> iterator =  new PaginationIterator<Media>(media, uriString) {
-			@Override
-			public void handleLoad(JSONArray mediaItems) throws JSONException {
-				for (int i = 0; i < mediaItems.length(); i++) {
-					list.add(Media.fromJSON(mediaItems.getJSONObject(i),
-							getAccessToken()));
-				}					
-			}
-		};
-
-		return new PaginatedCollection<Media>(media, iterator);
+		return paginateMedia(uriString);
 	}
 
 	/**
@@ -151,17 +532,7 @@ public class InstagramSession {
 		String uriString = uriConstructor.constructUri (
 								UriFactory.Users.GET_FEED, null, true
 						  );
-		ArrayList<Media> media = new ArrayList<Media>();
-		PaginationIterator<Media> iterator =  new PaginationIterator<Media>(media, uriString) {
-			@Override
-			public void handleLoad(JSONArray mediaItems) throws JSONException {
-				for (int i = 0; i < mediaItems.length(); i++) {
-					list.add(Media.fromJSON(mediaItems.getJSONObject(i),
-							getAccessToken()));
-				}					
-			}
-		};
-		return new PaginatedCollection<Media>(media, iterator);
+		return paginateMedia(uriString);
 	}
 	
 	/**
@@ -173,17 +544,7 @@ public class InstagramSession {
 	public PaginatedCollection<Media> getLikedMedia() throws Exception {
 		String uriString = uriConstructor.constructUri(
 									UriFactory.Users.GET_LIKED_MEDIA, null, true);
-		ArrayList<Media> media = new ArrayList<Media>();
-		PaginationIterator<Media> iterator =  new PaginationIterator<Media>(media, uriString) {
-			@Override
-			public void handleLoad(JSONArray mediaItems) throws JSONException {
-				for (int i = 0; i < mediaItems.length(); i++) {
-					list.add(Media.fromJSON(mediaItems.getJSONObject(i),
-							getAccessToken()));
-				}					
-			}
-		};
-		return new PaginatedCollection<Media>(media, iterator);		
+		return paginateMedia(uriString);		
 	}
 
 	/**
@@ -196,12 +557,15 @@ public class InstagramSession {
 	 * @return The media with the id passed
 	 */
 	public Media getMedia(String mediaId) throws Exception {
+		Media cached = mediaCache.get(mediaId);
+		if (cached != null) {
+			return cached;
+		}
 		HashMap<String, Object> map = new HashMap<String, Object>();
 		map.put("media_id", mediaId);
-		JSONObject object = (new GetMethod().setMethodURI(uriConstructor
-				.constructUri(UriFactory.Media.GET_MEDIA, map, true)))
-				.call().getJSON();
-		return Media.fromJSON(object.getJSONObject("data"), getAccessToken());
+		return mediaCache.put(mediaId, required(readData(uriConstructor
+				.constructUri(UriFactory.Media.GET_MEDIA, map, true),
+				reader -> Media.fromJSON(reader, getAccessToken()))));
 	}
 
 	/**
@@ -225,20 +589,16 @@ public class InstagramSession {
 	public List<Media> searchMedia(Object latitude, Object longitude,
 			Object minTimestamp, Object maxTimestamp, Object distance)
 			throws Exception {
-		ArrayList<Media> media = new ArrayList<Media>();
-		String uri = UriFactory.Media.SEARCH_MEDIA + "?access_token="
-				+ getAccessToken() + "&lat=" + latitude + "&lng=" + longitude
-				+ "&min_timestamp=" + minTimestamp + "&max_timestamp="
-				+ maxTimestamp + "&distance=" + distance;
-		JSONObject object = (new GetMethod()
-								.setMethodURI(uri)
-							).call().getJSON();
-		JSONArray mediaItems = object.getJSONArray("data");
-		for (int i = 0; i < mediaItems.length(); i++) {
-			media.add(Media.fromJSON(mediaItems.getJSONObject(i),
-					getAccessToken()));
-		}
-		return media;
+		LinkedHashMap<String, Object> query = new LinkedHashMap<String, Object>();
+		query.put("lat", latitude);
+		query.put("lng", longitude);
+		query.put("min_timestamp", minTimestamp);
+		query.put("max_timestamp", maxTimestamp);
+		query.put("distance", distance);
+		String uri = uriConstructor.constructUri(
+				UriFactory.Media.SEARCH_MEDIA, null, query, true);
+		return required(readDataList(uri,
+				reader -> Media.fromJSON(reader, getAccessToken())));
 	}
 
 	/**
@@ -248,19 +608,10 @@ public class InstagramSession {
 	 * @return List of the most popular media on instagram.
 	 */
 	public List<Media> getPopularMedia() throws Exception {
-		JSONObject object = null; 
-		ArrayList<Media> media = new ArrayList<Media>();
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Media.GET_POPULAR_MEDIA, null, true);
-
-		object = (new GetMethod().setMethodURI(uriString)).call().getJSON();
-
-		JSONArray mediaItems = object.getJSONArray("data");
-		for (int i = 0; i < mediaItems.length(); i++) {
-			media.add(Media.fromJSON(mediaItems.getJSONObject(i),
-					getAccessToken()));
-		}
-		return media;
+		return required(readDataList(uriString,
+				reader -> Media.fromJSON(reader, getAccessToken())));
 	}
 
 	/**
@@ -272,18 +623,11 @@ public class InstagramSession {
 	 * @return List of users who match the search criteria
 	 */
 	public List<User> searchUsersByName(String name) throws Exception {
-		ArrayList<User> users = new ArrayList<User>();
 		String uriString = uriConstructor.constructUri(
-				UriFactory.Users.SEARCH_USER_BY_NAME, null, true)
-				+ "&q="
-				+ name;
-		JSONArray userObjects = (new GetMethod().setMethodURI(uriString))
-				.call().getJSON().getJSONArray("data");
-		for (int i = 0; i < userObjects.length(); i++) {
-			users.add(new User(userObjects.getJSONObject(i),
-					getAccessToken()));
-		}
-		return users;
+				UriFactory.Users.SEARCH_USER_BY_NAME, null,
+				Collections.singletonMap("q", name), true);
+		return required(readDataList(uriString,
+				reader -> new User(reader, getAccessToken())));
 	}
 
 	/**
@@ -301,17 +645,7 @@ public class InstagramSession {
 		map.put("user_id", userId);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Relationships.GET_FOLLOWS, map, true);
-		ArrayList<User> users = new ArrayList<User>();
-		PaginationIterator<User> iterator =  new PaginationIterator<User>(users, uriString) {
-			@Override
-			public void handleLoad(JSONArray userObjects) throws JSONException {
-				for (int i = 0; i < userObjects.length(); i++) {
-					list.add(new User(userObjects.getJSONObject(i),
-							getAccessToken()));
-				}				
-			}
-		};
-		return new PaginatedCollection<User>(users, iterator);		
+		return paginateUsers(uriString);		
 	}
 
 	public PaginatedCollection<User> getFollowers(int userId) throws Exception {
@@ -319,49 +653,29 @@ public class InstagramSession {
 		map.put("user_id", userId);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Relationships.GET_FOLLOWERS, map, true);
-		ArrayList<User> users = new ArrayList<User>();
-		PaginationIterator<User> iterator =  new PaginationIterator<User>(users, uriString) {
-			@Override
-			public void handleLoad(JSONArray userObjects) throws JSONException {
-				for (int i = 0; i < userObjects.length(); i++) {
-					list.add(new User(userObjects.getJSONObject(i),
-							getAccessToken()));
-				}				
-			}
-		};
-		return new PaginatedCollection<User>(users, iterator);
+		return paginateUsers(uriString);
 	}
 
 	public List<User> getFollowRequests() throws Exception,  JSONException,
 				JSONException {
-		JSONObject object = null;
-		ArrayList<User> users = new ArrayList<User>();
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Relationships.GET_FOLLOW_REQUESTS, null, true);
-
-		object = (new GetMethod().setMethodURI(uriString)).call().getJSON();
-
-		JSONArray userObjects;
-		userObjects = object.getJSONArray("data");
-		for (int i = 0; i < userObjects.length(); i++) {
-			users.add(new User(userObjects.getJSONObject(i),
-					getAccessToken()));
-		}
-		return users;
+		return required(readDataList(uriString,
+				reader -> new User(reader, getAccessToken())));
 	}
 
 	public Relationship getRelationshipWith(int userId)
 			throws Exception {
-		JSONObject object = null;
+		Relationship cached = relationshipCache.get(userId);
+		if (cached != null) {
+			return cached;
+		}
 		HashMap<String, Object> map = new HashMap<String, Object>();
 		map.put("user_id", userId);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Relationships.GET_RELATIONSHIP_STATUS, map, true);
-
-		object = (new GetMethod().setMethodURI(uriString)).call().getJSON();
-
-		return new Relationship(object.getJSONObject("data"),
-				getAccessToken());
+		return relationshipCache.put(userId, required(readData(uriString,
+				reader -> new Relationship(reader, getAccessToken()))));
 	}
 
 	public boolean modifyRelationship(int userId, Relationship.Action action)
@@ -396,9 +710,14 @@ public class InstagramSession {
 		args.put("action", actionString);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Relationships.MUTATE_RELATIONSHIP, map, true);
-		object = (new PostMethod().setPostParameters(args)
-				.setMethodURI(uriString)).call().getJSON();
-	
+		try {
+			object = (new PostMethod(getTransport()).setPostParameters(args)
+					.setMethodURI(uriString)).call().getJSON();
+		} finally {
+			// follower counts change along with the relationship
+			relationshipCache.invalidate(userId);
+			userCache.invalidate(userId);
+		}
 		return object.getJSONObject("meta").getInt("code") == 200;
 	}
 
@@ -412,9 +731,13 @@ public class InstagramSession {
 		args.put("access_token", getAccessToken());
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Comments.POST_MEDIA_COMMENT, map, false);
-		object = (new PostMethod().setPostParameters(args)
-				.setMethodURI(uriString)).call().getJSON();
-		return new Comment(object.getJSONObject("data"), getAccessToken());
+		try {
+			object = (new PostMethod(getTransport()).setPostParameters(args)
+					.setMethodURI(uriString)).call().getJSON();
+		} finally {
+			mediaCache.invalidate(mediaId);
+		}
+		return bind(new Comment(object.getJSONObject("data"), getAccessToken()));
 	}
 
 	public boolean removeComment(String mediaId, String commentId)
@@ -425,9 +748,13 @@ public class InstagramSession {
 		map.put("comment_id", commentId);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Comments.DELETE_MEDIA_COMMENT, map, true);
-		object = (new DeleteMethod()
-					.setMethodURI(uriString)
-				).call().getJSON();
+		try {
+			object = (new DeleteMethod(getTransport())
+						.setMethodURI(uriString)
+					).call().getJSON();
+		} finally {
+			mediaCache.invalidate(mediaId);
+		}
 
 		return object.getJSONObject("meta").getInt("code") == 200;
 	}
@@ -440,8 +767,12 @@ public class InstagramSession {
 		args.put("access_token", getAccessToken());
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Likes.SET_LIKE, map, false);
-		object = (new PostMethod().setPostParameters(args)
-				.setMethodURI(uriString)).call().getJSON();
+		try {
+			object = (new PostMethod(getTransport()).setPostParameters(args)
+					.setMethodURI(uriString)).call().getJSON();
+		} finally {
+			mediaCache.invalidate(mediaId);
+		}
 		return object.getJSONObject("meta").getInt("code") == 200;
 	}
 
@@ -452,19 +783,26 @@ public class InstagramSession {
 		map.put("media_id", mediaId);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Likes.REMOVE_LIKE, map, true);
-		object = (new DeleteMethod().setMethodURI(uriString)).call().getJSON();
+		try {
+			object = (new DeleteMethod(getTransport()).setMethodURI(uriString)).call().getJSON();
+		} finally {
+			mediaCache.invalidate(mediaId);
+		}
 		return object.getJSONObject("meta").getInt("code") == 200;
 	}
 
 	public Tag getTag(String tagName) 
 			throws Exception {
-		JSONObject object = null;
+		Tag cached = tagCache.get(tagName);
+		if (cached != null) {
+			return cached;
+		}
 		HashMap<String, Object> map = new HashMap<String, Object>();
 		map.put("tag_name", tagName);
 		String uriString = uriConstructor.constructUri(UriFactory.Tags.GET_TAG,
 				map, true);
-		object = (new GetMethod().setMethodURI(uriString)).call().getJSON();
-		return new Tag(object.getJSONObject("data"), getAccessToken());
+		return tagCache.put(tagName, required(readData(uriString,
+				reader -> new Tag(reader, getAccessToken()))));
 	}
 
 	public PaginatedCollection<Media> getRecentMediaForTag(String tagName)
@@ -473,40 +811,28 @@ public class InstagramSession {
 		map.put("tag_name", tagName);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Tags.GET_RECENT_TAGED_MEDIA, map, true);
-		ArrayList<Media> media = new ArrayList<Media>();
-		PaginationIterator<Media> iterator =  new PaginationIterator<Media>(media, uriString) {
-			@Override
-			public void handleLoad(JSONArray mediaItems) throws JSONException {
-				for (int i = 0; i < mediaItems.length(); i++) {
-					list.add(Media.fromJSON(mediaItems.getJSONObject(i),
-							getAccessToken()));
-				}					
-			}
-		};
-		return new PaginatedCollection<Media>(media, iterator);
+		return paginateMedia(uriString);
 	}
 
 	public List<Tag> searchTags(String tagName) throws Exception {
-		JSONObject object = null;
 		String uriString = uriConstructor.constructUri(
-				UriFactory.Tags.SEARCH_TAGS, null, true) + "&q=" + tagName;
-		object = (new GetMethod().setMethodURI(uriString)).call().getJSON();
-		ArrayList<Tag> tags = new ArrayList<Tag>();
-		JSONArray tagItems = object.getJSONArray("data");
-		for (int i = 0; i < tagItems.length(); i++) {
-			tags.add(new Tag(tagItems.getJSONObject(i), getAccessToken()));
-		}
-		return tags;
+				UriFactory.Tags.SEARCH_TAGS, null,
+				Collections.singletonMap("q", tagName), true);
+		return required(readDataList(uriString,
+				reader -> new Tag(reader, getAccessToken())));
 	}
 
 	public Location getLocation(int locationId) throws Exception {
-		JSONObject object = null;
+		Location cached = locationCache.get(locationId);
+		if (cached != null) {
+			return cached;
+		}
 		HashMap<String, Object> map = new HashMap<String, Object>();
 		map.put("location_id", locationId);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Locations.GET_LOCATION, map, true);
-		object = (new GetMethod().setMethodURI(uriString)).call().getJSON();
-		return new Location(object.getJSONObject("data"), getAccessToken());
+		return locationCache.put(locationId, required(readData(uriString,
+				reader -> new Location(reader, getAccessToken()))));
 	}
 
 	public PaginatedCollection<Media> getRecentMediaFromLocation(int locationId)
@@ -515,16 +841,6 @@ public class InstagramSession {
 		map.put("location_id", locationId);
 		String uriString = uriConstructor.constructUri(
 				UriFactory.Locations.GET_MEDIA_FROM_LOCATION, map, true);
-		ArrayList<Media> media = new ArrayList<Media>();
-		PaginationIterator<Media> iterator =  new PaginationIterator<Media>(media, uriString) {
-			@Override
-			public void handleLoad(JSONArray mediaItems) throws JSONException {
-				for (int i = 0; i < mediaItems.length(); i++) {
-					list.add(Media.fromJSON(mediaItems.getJSONObject(i),
-							getAccessToken()));
-				}					
-			}
-		};
-		return new PaginatedCollection<Media>(media, iterator);
+		return paginateMedia(uriString);
 	}
 }
@@ -0,0 +1,295 @@
+package com.sola.instagram;
+
+import com.sola.instagram.auth.AccessToken;
+import com.sola.instagram.exception.InstagramException;
+import com.sola.instagram.exception.RateLimitException;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.io.RateLimits;
+import com.sola.instagram.model.*;
+import com.sola.instagram.util.PaginatedCollection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Session that spreads its requests over several access tokens, to multiply
+ * the quota available for reads. It has the same api as InstagramSession.
+ *
+ * Reads are sent with the token that has the most quota left. A token that
+ * has used up its quota is only picked once every other token has as well,
+ * and a token the API reports as invalid or revoked is taken out of
+ * rotation; a read that failed because of either is sent again with another
+ * token. Likes, comments, relationship changes and reads that depend on who
+ * asks (the feed, liked media, follow requests and relationships) are always
+ * made by the owner's token.
+ *
+ * Every token shares the pool's transport, rate limits and entity caches.
+ * Pools are thread-safe.
+ */
+public class InstagramSessionPool extends InstagramSession {
+
+	final InstagramSession owner;
+	final List<InstagramSession> sessions;
+
+	/**
+	 * A call made on one of the pool's sessions
+	 */
+	interface Call<T> {
+		T call(InstagramSession session) throws Exception;
+	}
+
+	/**
+	 * Creates a pool with its own pooled transport
+	 *
+	 * @param owner
+	 *            token that makes the pool's likes, comments and
+	 *            relationship changes; it is also used for reads
+	 * @param readers
+	 *            other tokens used for reads
+	 */
+	public InstagramSessionPool(AccessToken owner, Collection<AccessToken> readers) {
+		this(owner, readers, new HttpTransport());
+	}
+
+	/**
+	 * Creates a pool that sends all of its requests through the transport
+	 * passed
+	 *
+	 * @param owner
+	 *            token that makes the pool's likes, comments and
+	 *            relationship changes; it is also used for reads
+	 * @param readers
+	 *            other tokens used for reads
+	 * @param transport
+	 *            the pooled transport used for every api request
+	 */
+	public InstagramSessionPool(AccessToken owner, Collection<AccessToken> readers,
+			HttpTransport transport) {
+		super(owner.getTokenString(), transport, null);
+		ArrayList<InstagramSession> sessions = new ArrayList<InstagramSession>();
+		this.owner = new InstagramSession(owner.getTokenString(), transport, this);
+		sessions.add(this.owner);
+		for (AccessToken reader : readers) {
+			if (!reader.getTokenString().equals(owner.getTokenString())) {
+				sessions.add(new InstagramSession(reader.getTokenString(), transport, this));
+			}
+		}
+		this.sessions = Collections.unmodifiableList(sessions);
+	}
+
+	/**
+	 * Returns the session of the owner's token
+	 */
+	public InstagramSession getOwner() {
+		return owner;
+	}
+
+	/**
+	 * Returns the sessions of every token in the pool, the owner's first
+	 */
+	public List<InstagramSession> getSessions() {
+		return sessions;
+	}
+
+	/**
+	 * Returns the number of tokens that have not been revoked
+	 */
+	public int getActiveCount() {
+		RateLimits limits = getTransport().getRateLimits();
+		int active = 0;
+		for (InstagramSession session : sessions) {
+			if (!limits.isRevoked(session.getAccessToken())) {
+				active++;
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * Picks the session a read is sent with: the one with the most quota
+	 * left, or, when every quota is used up, the one that can send first
+	 */
+	InstagramSession select(List<InstagramSession> excluded)
+			throws InstagramException {
+		RateLimits limits = getTransport().getRateLimits();
+		InstagramSession best = null;
+		int bestAvailable = 0;
+		long bestWait = 0;
+		for (InstagramSession session : sessions) {
+			String token = session.getAccessToken();
+			if (excluded.contains(session) || limits.isRevoked(token)) {
+				continue;
+			}
+			int available = limits.getLimiter(token).getAvailable();
+			long wait = limits.getLimiter(token).getWait();
+			if (best == null || available > bestAvailable
+					|| (available == 0 && bestAvailable == 0 && wait < bestWait)) {
+				best = session;
+				bestAvailable = available;
+				bestWait = wait;
+			}
+		}
+		if (best == null) {
+			throw new InstagramException("No access token of the pool "
+					+ "can be used: every token has been revoked or has failed");
+		}
+		return best;
+	}
+
+	/**
+	 * Makes a read with the token that has the most quota left, and again
+	 * with another token if the first one is revoked or over its quota
+	 */
+	<T> T read(Call<T> call) throws Exception {
+		RateLimits limits = getTransport().getRateLimits();
+		ArrayList<InstagramSession> excluded = new ArrayList<InstagramSession>();
+		while (true) {
+			InstagramSession session = select(excluded);
+			try {
+				return call.call(session);
+			} catch (Exception e) {
+				boolean unusable = e instanceof RateLimitException
+						|| limits.isRevoked(session.getAccessToken());
+				excluded.add(session);
+				if (!unusable || excluded.size() >= sessions.size()) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	@Override
+	public synchronized void setPagePrefetch(float threshold, int depth) {
+		super.setPagePrefetch(threshold, depth);
+		for (InstagramSession session : sessions) {
+			session.setPagePrefetch(threshold, depth);
+		}
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		for (InstagramSession session : sessions) {
+			session.close();
+		}
+	}
+
+	@Override
+	public User getUserById(final int userId) throws Exception {
+		return read(session -> session.getUserById(userId));
+	}
+
+	@Override
+	public PaginatedCollection<Media> getRecentPublishedMedia(final int userId)
+			throws Exception {
+		return read(session -> session.getRecentPublishedMedia(userId));
+	}
+
+	@Override
+	public PaginatedCollection<Media> getFeed() throws Exception {
+		return owner.getFeed();
+	}
+
+	@Override
+	public PaginatedCollection<Media> getLikedMedia() throws Exception {
+		return owner.getLikedMedia();
+	}
+
+	@Override
+	public Media getMedia(final String mediaId) throws Exception {
+		return read(session -> session.getMedia(mediaId));
+	}
+
+	@Override
+	public List<Media> searchMedia(final Object latitude, final Object longitude,
+			final Object minTimestamp, final Object maxTimestamp,
+			final Object distance) throws Exception {
+		return read(session -> session.searchMedia(latitude, longitude,
+				minTimestamp, maxTimestamp, distance));
+	}
+
+	@Override
+	public List<Media> getPopularMedia() throws Exception {
+		return read(session -> session.getPopularMedia());
+	}
+
+	@Override
+	public List<User> searchUsersByName(final String name) throws Exception {
+		return read(session -> session.searchUsersByName(name));
+	}
+
+	@Override
+	public PaginatedCollection<User> getFollows(final int userId) throws Exception {
+		return read(session -> session.getFollows(userId));
+	}
+
+	@Override
+	public PaginatedCollection<User> getFollowers(final int userId) throws Exception {
+		return read(session -> session.getFollowers(userId));
+	}
+
+	@Override
+	public List<User> getFollowRequests() throws Exception {
+		return owner.getFollowRequests();
+	}
+
+	@Override
+	public Relationship getRelationshipWith(int userId) throws Exception {
+		return owner.getRelationshipWith(userId);
+	}
+
+	@Override
+	public boolean modifyRelationship(int userId, Relationship.Action action)
+			throws Exception {
+		return owner.modifyRelationship(userId, action);
+	}
+
+	@Override
+	public Comment postComment(String mediaId, String text) throws Exception {
+		return owner.postComment(mediaId, text);
+	}
+
+	@Override
+	public boolean removeComment(String mediaId, String commentId) throws Exception {
+		return owner.removeComment(mediaId, commentId);
+	}
+
+	@Override
+	public boolean likeMedia(String mediaId) throws Exception {
+		return owner.likeMedia(mediaId);
+	}
+
+	@Override
+	public boolean removeMediaLike(String mediaId) throws Exception {
+		return owner.removeMediaLike(mediaId);
+	}
+
+	@Override
+	public Tag getTag(final String tagName) throws Exception {
+		return read(session -> session.getTag(tagName));
+	}
+
+	@Override
+	public PaginatedCollection<Media> getRecentMediaForTag(final String tagName)
+			throws Exception {
+		return read(session -> session.getRecentMediaForTag(tagName));
+	}
+
+	@Override
+	public List<Tag> searchTags(final String tagName) throws Exception {
+		return read(session -> session.searchTags(tagName));
+	}
+
+	@Override
+	public Location getLocation(final int locationId) throws Exception {
+		return read(session -> session.getLocation(locationId));
+	}
+
+	@Override
+	public PaginatedCollection<Media> getRecentMediaFromLocation(final int locationId)
+			throws Exception {
+		return read(session -> session.getRecentMediaFromLocation(locationId));
+	}
+}
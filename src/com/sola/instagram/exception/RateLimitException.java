@@ -0,0 +1,25 @@
+package com.sola.instagram.exception;
+
+/**
+ * Thrown instead of sending a request when the rate limit policy is 
+ * FAIL_FAST and the request would go over the quota
+ */
+public class RateLimitException extends InstagramException {
+
+	private static final long serialVersionUID = 1L;
+
+	long retryAfterMillis;
+
+	public RateLimitException(String message, long retryAfterMillis) {
+		super(message);
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * Returns how long to wait before the request can be sent
+	 * @return The wait, in milliseconds
+	 */
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+}
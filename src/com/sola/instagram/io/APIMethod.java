@@ -1,10 +1,12 @@
 package com.sola.instagram.io;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.util.EntityUtils;
 import org.json.JSONException;
 import org.json.JSONTokener;
 import org.json.JSONObject;
@@ -15,24 +17,143 @@ public abstract class APIMethod {
 	String methodUri;
 	String type;
 	String accessToken;
+	HttpTransport transport;
 
-	abstract protected InputStream performRequest() throws Exception;
+	abstract protected HttpUriRequest buildRequest() throws Exception;
 
 	public APIMethod() {}
 
+	public APIMethod(HttpTransport transport) {
+		this.transport = transport;
+	}
+
+	protected InputStream performRequest() throws Exception {
+		return execute().getEntity().getContent();
+	}
+
+	protected HttpResponse execute() throws Exception {
+		return getTransport().execute(buildRequest(), getAccessToken());
+	}
+
+	/**
+	 * Performs the request, retrying it as allowed by the transport's 
+	 * RetryPolicy. The response body of an idempotent request is read and
+	 * checked before returning, so that a truncated body can be retried; it
+	 * is only parsed into a JSONObject if getJSON() is called. Without 
+	 * retries, the body is not read until getJSON(), getReader() or 
+	 * getBytes() is called on the returned response.
+	 * @return The response
+	 */
 	public RequestResponse call() throws Exception {
-		String line = "", chunk;
-		BufferedReader rd = new BufferedReader(new InputStreamReader(performRequest()));
-		while ((chunk = rd.readLine()) != null) {
-			line += chunk;
+		RetryPolicy policy = getTransport().getRetryPolicy();
+		if(policy.getMaxAttempts() <= 1) {
+			return new RequestResponse(performRequest());
 		}
-		return new RequestResponse(line);
+		boolean idempotent = isIdempotent();
+		long deadline = System.currentTimeMillis() + policy.getDeadlineMillis();
+		long delay = 0;
+		for(int attempt = 1;; attempt++) {
+			delay = policy.nextDelay(delay);
+			boolean last = attempt >= policy.getMaxAttempts()
+					|| System.currentTimeMillis() + delay > deadline;
+			try {
+				HttpResponse response = execute();
+				int status = response.getStatusLine().getStatusCode();
+				if(!last && idempotent && policy.isRetryable(status)) {
+					EntityUtils.consumeQuietly(response.getEntity());
+				} else {
+					RequestResponse result = new RequestResponse(response.getEntity().getContent());
+					if(idempotent && !checked(result, last)) {
+						sleep(delay);
+						continue;
+					}
+					return result;
+				}
+			} catch(Exception e) {
+				if(last || !policy.isRetryable(e, idempotent)) {
+					throw e;
+				}
+			}
+			sleep(delay);
+		}
+	}
+
+	/**
+	 * Reads the body of a response and checks that it is valid JSON
+	 * @return false if the body was cut short and can be fetched again
+	 */
+	private static boolean checked(RequestResponse result, boolean last) 
+			throws JSONException, IOException {
+		try {
+			result.check();
+			return true;
+		} catch(JSONException e) {
+			if(last || result.isComplete()) {
+				throw e;
+			}
+			return false;
+		}
+	}
+
+	private static void sleep(long millis) throws InterruptedIOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry");
+		}
+	}
+
+	/**
+	 * Returns whether sending the request twice has the same effect as 
+	 * sending it once, which allows it to be retried after any failure
+	 * @return true for GET and DELETE requests
+	 */
+	public boolean isIdempotent() {
+		return true;
 	}
 	
 	public String getType() {
 		return type;
 	}
 
+	/**
+	 * Returns the access token the request is made with, which is taken 
+	 * from the access_token parameter of the uri when it was not set
+	 * @return The access token, or null if the request has none
+	 */
+	public String getAccessToken() {
+		if(accessToken == null && methodUri != null) {
+			accessToken = queryParameter(methodUri, "access_token");
+		}
+		return accessToken;
+	}
+
+	public APIMethod setAccessToken(String accessToken) {
+		this.accessToken = accessToken;
+		return this;
+	}
+
+	static String queryParameter(String uri, String name) {
+		int query = uri.indexOf('?');
+		if(query < 0) {
+			return null;
+		}
+		int start = query + 1;
+		while(start < uri.length()) {
+			int end = uri.indexOf('&', start);
+			if(end < 0) {
+				end = uri.length();
+			}
+			if(uri.startsWith(name, start) && start + name.length() < end
+					&& uri.charAt(start + name.length()) == '=') {
+				return uri.substring(start + name.length() + 1, end);
+			}
+			start = end + 1;
+		}
+		return null;
+	}
+
 	public String getMethodUri() {
 		return methodUri;
 	}
@@ -41,4 +162,18 @@ public abstract class APIMethod {
 		this.methodUri = methodURI;
 		return this;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the transport this method is executed on. Methods that were not
+	 * given a transport use the shared default one.
+	 * @return The transport this method is executed on
+	 */
+	public HttpTransport getTransport() {
+		return transport == null ? HttpTransport.getDefault() : transport;
+	}
+
+	public APIMethod setTransport(HttpTransport transport) {
+		this.transport = transport;
+		return this;
+	}
+}
@@ -0,0 +1,225 @@
+package com.sola.instagram.io;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.reactor.IOReactorException;
+
+/**
+ * Non-blocking counterpart of HttpTransport. Requests are multiplexed over a
+ * small number of I/O reactor threads, so the number of requests in flight is
+ * bounded by the connection pool rather than by the number of threads.
+ * Requests that do not get a connection right away are queued by the pool.
+ *
+ * Responses are delivered on the reactor threads; callers should move any
+ * parsing work to their own executor.
+ *
+ * Requests go through the transport's RateLimits. With the DELAY policy, a
+ * request over the quota is scheduled for when it can be sent and its 
+ * future completes later, without a thread waiting for it.
+ */
+public class AsyncHttpTransport {
+
+	/**
+	 * Default maximum number of pooled connections across all routes
+	 */
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 200;
+
+	/**
+	 * Default maximum number of pooled connections to a single host
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 100;
+
+	PoolingNHttpClientConnectionManager connectionManager;
+	CloseableHttpAsyncClient client;
+	RateLimits rateLimits = new RateLimits();
+	ScheduledExecutorService scheduler;
+
+	/**
+	 * Creates and starts a transport with the default connection limits
+	 */
+	public AsyncHttpTransport() throws IOReactorException {
+		this(DEFAULT_MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+	}
+
+	/**
+	 * Creates and starts a transport with the connection limits passed
+	 *
+	 * @param maxTotalConnections
+	 *            maximum number of pooled connections across all routes
+	 * @param maxConnectionsPerRoute
+	 *            maximum number of pooled connections to a single host
+	 */
+	public AsyncHttpTransport(int maxTotalConnections, int maxConnectionsPerRoute)
+			throws IOReactorException {
+		this.connectionManager = new PoolingNHttpClientConnectionManager(
+				new DefaultConnectingIOReactor());
+		connectionManager.setMaxTotal(maxTotalConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		this.client = HttpAsyncClients.custom()
+				.setConnectionManager(connectionManager)
+				.build();
+		this.client.start();
+	}
+
+	public int getMaxTotalConnections() {
+		return connectionManager.getMaxTotal();
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return connectionManager.getDefaultMaxPerRoute();
+	}
+
+	public RateLimits getRateLimits() {
+		return rateLimits;
+	}
+
+	public AsyncHttpTransport setRateLimits(RateLimits rateLimits) {
+		this.rateLimits = rateLimits;
+		return this;
+	}
+
+	/**
+	 * Sends the request built by the method passed without blocking, unless
+	 * the rate limit policy is BLOCK and the quota is used up
+	 *
+	 * @param method
+	 *            the api method to be performed
+	 * @return A future completed with the buffered response. It fails with 
+	 *         a RateLimitException if the policy is FAIL_FAST and the quota
+	 *         is used up.
+	 */
+	public CompletableFuture<RequestResponse> call(APIMethod method) {
+		try {
+			return execute(method.buildRequest(), method.getAccessToken());
+		} catch (Exception e) {
+			return failed(e);
+		}
+	}
+
+	/**
+	 * Sends a request without blocking
+	 *
+	 * @param request
+	 *            the request to be executed
+	 * @return A future completed with the buffered response
+	 */
+	public CompletableFuture<RequestResponse> execute(HttpUriRequest request) {
+		return execute(request, null);
+	}
+
+	/**
+	 * Sends a request made with an access token, once the token's rate limit 
+	 * allows it
+	 *
+	 * @param request
+	 *            the request to be executed
+	 * @param accessToken
+	 *            the access token of the request, can be null
+	 * @return A future completed with the buffered response
+	 */
+	public CompletableFuture<RequestResponse> execute(final HttpUriRequest request,
+			final String accessToken) {
+		final RateLimits limits = rateLimits;
+		try {
+			if(limits.getPolicy() == RateLimits.Policy.BLOCK) {
+				limits.acquire(accessToken);
+			} else {
+				long wait = limits.reserve(accessToken);
+				if(wait > 0) {
+					final CompletableFuture<RequestResponse> delayed = 
+							new CompletableFuture<RequestResponse>();
+					getScheduler().schedule(new Runnable() {
+						public void run() {
+							send(request, accessToken, limits, delayed);
+						}
+					}, wait, TimeUnit.NANOSECONDS);
+					return delayed;
+				}
+			}
+		} catch (Exception e) {
+			return failed(e);
+		}
+		return send(request, accessToken, limits, new CompletableFuture<RequestResponse>());
+	}
+
+	private CompletableFuture<RequestResponse> send(HttpUriRequest request, 
+			final String accessToken, final RateLimits limits, 
+			final CompletableFuture<RequestResponse> future) {
+		try {
+			execute(request, accessToken, limits, future);
+		} catch (RuntimeException e) {
+			// the client has been closed
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private void execute(HttpUriRequest request, final String accessToken, 
+			final RateLimits limits, final CompletableFuture<RequestResponse> future) {
+		client.execute(request, new FutureCallback<HttpResponse>() {
+			public void completed(HttpResponse response) {
+				limits.update(accessToken, response);
+				try {
+					future.complete(new RequestResponse(response.getEntity().getContent()));
+				} catch (IOException e) {
+					future.completeExceptionally(e);
+				}
+			}
+
+			public void failed(Exception e) {
+				future.completeExceptionally(e);
+			}
+
+			public void cancelled() {
+				future.cancel(false);
+			}
+		});
+	}
+
+	private synchronized ScheduledExecutorService getScheduler() {
+		if(scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "instagram-rate-limit");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return scheduler;
+	}
+
+	private static CompletableFuture<RequestResponse> failed(Exception e) {
+		CompletableFuture<RequestResponse> failed = new CompletableFuture<RequestResponse>();
+		failed.completeExceptionally(e);
+		return failed;
+	}
+
+	/**
+	 * Stops the reactor and closes all pooled connections
+	 */
+	public void shutdown() {
+		synchronized(this) {
+			if(scheduler != null) {
+				scheduler.shutdownNow();
+			}
+		}
+		try {
+			client.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -1,35 +1,22 @@
 package com.sola.instagram.io;
-import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpDelete;
-import org.apache.http.client.methods.HttpGet;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.BufferedReader;
-
-import org.apache.http.impl.client.DefaultHttpClient;
-
-import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
 
 public class DeleteMethod extends APIMethod {
-	DefaultHttpClient client;
 	
 	public DeleteMethod() {
 		super();
-		this.type   = "GET";
-		this.client = new DefaultHttpClient();
+		this.type   = "DELETE";
+	}
+
+	public DeleteMethod(HttpTransport transport) {
+		super(transport);
+		this.type   = "DELETE";
 	}
 	
 	@Override
-	protected InputStream performRequest() throws Exception {
-		HttpResponse response;
-		BufferedReader rd  = null;
-		HttpDelete post    = new HttpDelete(this.methodUri);
-		InputStream stream = null;
-		response = client.execute(post);
-		stream = response.getEntity().getContent();
-		return stream;
+	protected HttpUriRequest buildRequest() {
+		return new HttpDelete(this.methodUri);
 	}
 
 }
@@ -1,33 +1,49 @@
 package com.sola.instagram.io;
-import org.apache.http.client.methods.HttpGet;
-import java.io.InputStream;
-
-
-import org.apache.http.impl.client.DefaultHttpClient;
-
 import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
 
 public class GetMethod extends APIMethod {
-	DefaultHttpClient client;
 	
 	public GetMethod() {
 		super();
 		this.type = "GET";
-		this.client = new DefaultHttpClient();
+	}
+
+	public GetMethod(HttpTransport transport) {
+		super(transport);
+		this.type = "GET";
 	}
 	
+	/**
+	 * Performs the request, unless the same uri is already being fetched
+	 * through the same transport, in which case the response of that 
+	 * request is shared
+	 * @return The parsed response
+	 */
+	@Override
+	public RequestResponse call() throws Exception {
+		SingleFlight singleFlight = getTransport().getSingleFlight();
+		if(singleFlight == null) {
+			return super.call();
+		}
+		return singleFlight.call(methodUri, () -> GetMethod.super.call());
+	}
+
+	/**
+	 * Sends the request, or answers it from the transport's ResponseCache
+	 */
+	@Override
+	protected HttpResponse execute() throws Exception {
+		ResponseCache cache = getTransport().getResponseCache();
+		if(cache == null) {
+			return super.execute();
+		}
+		return cache.execute(getTransport(), buildRequest(), getAccessToken());
+	}
+
 	@Override
-	protected InputStream performRequest() {
-		System.out.println(this.methodUri);
-		HttpResponse response;
-		InputStream stream = null;
-		HttpGet post = new HttpGet(this.methodUri);
-		try {
-			response = client.execute(post);
-			stream = response.getEntity().getContent();
-		} catch (Exception e) {
-			e.printStackTrace();
-		}  
-		return stream;
+	protected HttpUriRequest buildRequest() {
+		return new HttpGet(this.methodUri);
 	}
 }
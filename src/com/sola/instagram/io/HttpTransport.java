@@ -0,0 +1,209 @@
+package com.sola.instagram.io;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import com.sola.instagram.exception.RateLimitException;
+
+/**
+ * Shared HTTP transport used by every APIMethod. Connections to the API are
+ * pooled and kept alive between calls, so a session only pays for the TCP and
+ * TLS handshakes once per pooled connection instead of once per request.
+ *
+ * Requests go through the transport's RateLimits, so every session sharing
+ * a transport shares its view of each token's quota. Failed requests are
+ * retried by APIMethod.call() according to the transport's RetryPolicy, and
+ * identical GET requests in flight at the same time share one call. GET
+ * responses can also be kept in a ResponseCache on disk.
+ *
+ * Instances are thread-safe and are meant to be shared by everything that
+ * talks to the API on behalf of a session.
+ */
+public class HttpTransport {
+
+	/**
+	 * Default maximum number of pooled connections across all routes
+	 */
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 20;
+
+	/**
+	 * Default maximum number of pooled connections to a single host
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+	private static HttpTransport defaultTransport;
+
+	PoolingHttpClientConnectionManager connectionManager;
+	CloseableHttpClient client;
+	RateLimits rateLimits = new RateLimits();
+	RetryPolicy retryPolicy = new RetryPolicy();
+	SingleFlight singleFlight = new SingleFlight();
+	ResponseCache responseCache;
+
+	/**
+	 * Creates a transport with the default connection limits
+	 */
+	public HttpTransport() {
+		this(DEFAULT_MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+	}
+
+	/**
+	 * Creates a transport with the connection limits passed
+	 *
+	 * @param maxTotalConnections
+	 *            maximum number of pooled connections across all routes
+	 * @param maxConnectionsPerRoute
+	 *            maximum number of pooled connections to a single host
+	 */
+	public HttpTransport(int maxTotalConnections, int maxConnectionsPerRoute) {
+		this.connectionManager = new PoolingHttpClientConnectionManager();
+		setMaxTotalConnections(maxTotalConnections);
+		setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+		this.client = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.build();
+	}
+
+	/**
+	 * Returns the process-wide transport used by API methods that were not
+	 * given one explicitly
+	 *
+	 * @return The default transport
+	 */
+	public static synchronized HttpTransport getDefault() {
+		if(defaultTransport == null) {
+			defaultTransport = new HttpTransport();
+		}
+		return defaultTransport;
+	}
+
+	public int getMaxTotalConnections() {
+		return connectionManager.getMaxTotal();
+	}
+
+	public HttpTransport setMaxTotalConnections(int maxTotalConnections) {
+		connectionManager.setMaxTotal(maxTotalConnections);
+		return this;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return connectionManager.getDefaultMaxPerRoute();
+	}
+
+	public HttpTransport setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		return this;
+	}
+
+	public RateLimits getRateLimits() {
+		return rateLimits;
+	}
+
+	public HttpTransport setRateLimits(RateLimits rateLimits) {
+		this.rateLimits = rateLimits;
+		return this;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Sets the policy used to retry failed requests. RetryPolicy.NONE turns
+	 * retries off.
+	 */
+	public HttpTransport setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Returns the registry that coalesces identical GET requests in flight
+	 * @return The registry, or null if requests are not coalesced
+	 */
+	public SingleFlight getSingleFlight() {
+		return singleFlight;
+	}
+
+	/**
+	 * Sets the registry that coalesces identical GET requests in flight. 
+	 * Passing null sends every request on its own.
+	 */
+	public HttpTransport setSingleFlight(SingleFlight singleFlight) {
+		this.singleFlight = singleFlight;
+		return this;
+	}
+
+	/**
+	 * Returns the disk cache GET responses are kept in
+	 * @return The cache, or null if responses are not cached
+	 */
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * Sets the disk cache GET responses are kept in. Passing null turns
+	 * caching off.
+	 */
+	public HttpTransport setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+		return this;
+	}
+
+	/**
+	 * Executes a request on a pooled connection. The connection goes back to
+	 * the pool once the response entity has been fully read or closed.
+	 *
+	 * @param request
+	 *            the request to be executed
+	 * @return The response to the request
+	 */
+	public HttpResponse execute(HttpUriRequest request) 
+			throws IOException, RateLimitException {
+		return execute(request, null);
+	}
+
+	/**
+	 * Executes a request made with an access token, once the token's rate
+	 * limit allows it
+	 *
+	 * @param request
+	 *            the request to be executed
+	 * @param accessToken
+	 *            the access token of the request, can be null
+	 * @return The response to the request
+	 * @throws RateLimitException
+	 *            if the rate limit policy is FAIL_FAST and the quota is
+	 *            used up
+	 */
+	public HttpResponse execute(HttpUriRequest request, String accessToken)
+			throws IOException, RateLimitException {
+		RateLimits limits = rateLimits;
+		limits.acquire(accessToken);
+		HttpResponse response = client.execute(request);
+		limits.update(accessToken, response);
+		limits.checkRevoked(accessToken, response);
+		ResponseCache cache = responseCache;
+		if(cache != null && !"GET".equals(request.getMethod())) {
+			cache.invalidateRelated(request.getURI().toString());
+		}
+		return response;
+	}
+
+	/**
+	 * Closes all pooled connections. The transport cannot be used afterwards.
+	 */
+	public void shutdown() {
+		try {
+			client.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
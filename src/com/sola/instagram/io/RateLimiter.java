@@ -0,0 +1,119 @@
+package com.sola.instagram.io;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket holding the requests left in a quota. The bucket starts full
+ * and refills continuously, so once it is drained requests go out at 
+ * exactly the rate of the quota. 
+ *
+ * The bucket is corrected with what the API reports: a smaller remaining 
+ * count than the bucket holds (because of requests made by another process
+ * with the same token, for instance) empties the bucket down to it.
+ */
+public class RateLimiter {
+
+	long periodNanos;
+	double capacity;
+	double tokens;
+	long updated;
+
+	/**
+	 * Creates a limiter for an hourly quota
+	 * @param requestsPerHour the number of requests allowed per hour
+	 */
+	public RateLimiter(int requestsPerHour) {
+		this(requestsPerHour, 1, TimeUnit.HOURS);
+	}
+
+	/**
+	 * Creates a limiter for a quota
+	 * @param requests the number of requests allowed per period
+	 * @param period the length of the period
+	 * @param unit the unit of period
+	 */
+	public RateLimiter(int requests, long period, TimeUnit unit) {
+		if(requests <= 0) {
+			throw new IllegalArgumentException("The quota must be positive");
+		}
+		this.periodNanos = unit.toNanos(period);
+		this.capacity = requests;
+		this.tokens = requests;
+		this.updated = System.nanoTime();
+	}
+
+	/**
+	 * Takes a request out of the bucket, even if it is empty
+	 * @return How long the caller has to wait before sending the request,
+	 * in nanoseconds
+	 */
+	public synchronized long reserve() {
+		refill();
+		tokens -= 1;
+		return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * periodNanos / capacity);
+	}
+
+	/**
+	 * Takes a request out of the bucket if there is one left
+	 * @return true if the request can be sent right away
+	 */
+	public synchronized boolean tryAcquire() {
+		refill();
+		if(tokens < 1) {
+			return false;
+		}
+		tokens -= 1;
+		return true;
+	}
+
+	/**
+	 * Puts back a request taken by tryAcquire() that was not sent
+	 */
+	public synchronized void release() {
+		tokens = Math.min(capacity, tokens + 1);
+	}
+
+	/**
+	 * Returns how long until a request can be sent right away
+	 * @return The wait, in nanoseconds
+	 */
+	public synchronized long getWait() {
+		refill();
+		return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * periodNanos / capacity);
+	}
+
+	/**
+	 * Returns the number of requests that can be sent right away
+	 * @return The requests left in the bucket
+	 */
+	public synchronized int getAvailable() {
+		refill();
+		return (int) Math.max(0, Math.floor(tokens));
+	}
+
+	public synchronized int getLimit() {
+		return (int) capacity;
+	}
+
+	/**
+	 * Corrects the bucket with the quota reported by the API
+	 * @param limit the quota, or a negative number if unknown
+	 * @param remaining the requests left in the quota
+	 */
+	public synchronized void update(int limit, int remaining) {
+		refill();
+		if(limit > 0) {
+			capacity = limit;
+			tokens = Math.min(tokens, capacity);
+		}
+		if(remaining >= 0 && remaining < tokens) {
+			tokens = remaining;
+		}
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - updated) * capacity / periodNanos);
+		updated = now;
+	}
+}
@@ -0,0 +1,271 @@
+package com.sola.instagram.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+
+import com.sola.instagram.exception.RateLimitException;
+
+/**
+ * The rate limits applied by a transport: one RateLimiter per access token,
+ * matching the API's per-token hourly quota, and optionally one shared by
+ * every request made for a client id. 
+ *
+ * After each response, the token's limiter is corrected with the 
+ * X-Ratelimit-Limit and X-Ratelimit-Remaining headers; a 429 response 
+ * empties it. Tokens the API reports as invalid are marked as revoked.
+ */
+public class RateLimits {
+
+	/**
+	 * What happens to a request that would go over the quota
+	 */
+	public enum Policy {
+		/**
+		 * The calling thread waits until the request can be sent
+		 */
+		BLOCK,
+		/**
+		 * A RateLimitException is thrown, and nothing is sent
+		 */
+		FAIL_FAST,
+		/**
+		 * Asynchronous requests are scheduled for when they can be sent,
+		 * without holding a thread. Synchronous requests block.
+		 */
+		DELAY
+	}
+
+	/**
+	 * Hourly quota of a single access token
+	 */
+	public static final int DEFAULT_REQUESTS_PER_HOUR = 5000;
+
+	public static final String LIMIT_HEADER = "X-Ratelimit-Limit";
+	public static final String REMAINING_HEADER = "X-Ratelimit-Remaining";
+
+	static final int TOO_MANY_REQUESTS = 429;
+	static final String INVALID_TOKEN_ERROR = "OAuthAccessTokenException";
+
+	ConcurrentHashMap<String, RateLimiter> tokenLimiters = 
+			new ConcurrentHashMap<String, RateLimiter>();
+	int requestsPerHour = DEFAULT_REQUESTS_PER_HOUR;
+	Policy policy = Policy.BLOCK;
+	String clientId;
+	RateLimiter clientLimiter;
+	boolean enabled = true;
+	Set<String> revokedTokens = 
+			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	public int getRequestsPerHour() {
+		return requestsPerHour;
+	}
+
+	/**
+	 * Sets the hourly quota of each access token. Tokens already seen keep
+	 * their limiter until the API reports a different limit.
+	 */
+	public RateLimits setRequestsPerHour(int requestsPerHour) {
+		this.requestsPerHour = requestsPerHour;
+		return this;
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	public RateLimits setPolicy(Policy policy) {
+		this.policy = policy;
+		return this;
+	}
+
+	public String getClientId() {
+		return clientId;
+	}
+
+	/**
+	 * Limits every request sent through the transport, whatever its access
+	 * token, to the quota of a client id
+	 * @param clientId the client id
+	 * @param requestsPerHour the client's hourly quota
+	 */
+	public synchronized RateLimits setClientLimit(String clientId, int requestsPerHour) {
+		this.clientId = clientId;
+		this.clientLimiter = new RateLimiter(requestsPerHour);
+		return this;
+	}
+
+	public RateLimiter getClientLimiter() {
+		return clientLimiter;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns rate limiting on or off. It is on by default.
+	 */
+	public RateLimits setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		return this;
+	}
+
+	/**
+	 * Returns the limiter of an access token, creating it on first use
+	 * @param accessToken the access token
+	 * @return The token's limiter
+	 */
+	public RateLimiter getLimiter(String accessToken) {
+		RateLimiter limiter = tokenLimiters.get(accessToken);
+		if(limiter == null) {
+			limiter = new RateLimiter(requestsPerHour);
+			RateLimiter previous = tokenLimiters.putIfAbsent(accessToken, limiter);
+			if(previous != null) {
+				limiter = previous;
+			}
+		}
+		return limiter;
+	}
+
+	/**
+	 * Takes a request out of the quotas that apply to a token
+	 * @param accessToken the access token of the request, can be null
+	 * @return How long the caller has to wait before sending the request,
+	 * in nanoseconds
+	 * @throws RateLimitException if the policy is FAIL_FAST and the request
+	 * cannot be sent right away
+	 */
+	public long reserve(String accessToken) throws RateLimitException {
+		if(!enabled) {
+			return 0;
+		}
+		RateLimiter token = accessToken == null ? null : getLimiter(accessToken);
+		RateLimiter client = clientLimiter;
+		if(policy == Policy.FAIL_FAST) {
+			if(token != null && !token.tryAcquire()) {
+				throw exceeded("access token", token);
+			}
+			if(client != null && !client.tryAcquire()) {
+				if(token != null) {
+					token.release();
+				}
+				throw exceeded("client " + clientId, client);
+			}
+			return 0;
+		}
+		long wait = token == null ? 0 : token.reserve();
+		return client == null ? wait : Math.max(wait, client.reserve());
+	}
+
+	/**
+	 * Takes a request out of the quotas that apply to a token, waiting 
+	 * until it can be sent unless the policy is FAIL_FAST
+	 * @param accessToken the access token of the request, can be null
+	 * @throws RateLimitException if the policy is FAIL_FAST and the request
+	 * cannot be sent right away
+	 */
+	public void acquire(String accessToken) 
+			throws RateLimitException, InterruptedIOException {
+		long wait = reserve(accessToken);
+		if(wait > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting "
+						+ "for the rate limit");
+			}
+		}
+	}
+
+	/**
+	 * Corrects the limiter of a token with the quota reported in a response
+	 * @param accessToken the access token of the request, can be null
+	 * @param response the response to the request
+	 */
+	public void update(String accessToken, HttpResponse response) {
+		if(!enabled || accessToken == null) {
+			return;
+		}
+		int remaining = intHeader(response, REMAINING_HEADER);
+		if(response.getStatusLine() != null 
+				&& response.getStatusLine().getStatusCode() == TOO_MANY_REQUESTS) {
+			remaining = 0;
+		}
+		int limit = intHeader(response, LIMIT_HEADER);
+		if(remaining >= 0 || limit > 0) {
+			getLimiter(accessToken).update(limit, remaining);
+		}
+	}
+
+	/**
+	 * Returns whether the API has reported a token as invalid, because it
+	 * expired or was revoked by its user
+	 * @param accessToken the access token
+	 */
+	public boolean isRevoked(String accessToken) {
+		return accessToken != null && revokedTokens.contains(accessToken);
+	}
+
+	public RateLimits setRevoked(String accessToken, boolean revoked) {
+		if(revoked) {
+			revokedTokens.add(accessToken);
+		} else {
+			revokedTokens.remove(accessToken);
+		}
+		return this;
+	}
+
+	/**
+	 * Marks the token of a request as revoked if the API rejected it. The 
+	 * body of a 400 or 401 response is buffered to be checked, and can still
+	 * be read afterwards.
+	 * @param accessToken the access token of the request, can be null
+	 * @param response the response to the request
+	 */
+	public void checkRevoked(String accessToken, HttpResponse response) 
+			throws IOException {
+		HttpEntity entity = response.getEntity();
+		if(accessToken == null || entity == null || response.getStatusLine() == null) {
+			return;
+		}
+		int status = response.getStatusLine().getStatusCode();
+		if(status != 400 && status != 401) {
+			return;
+		}
+		byte[] body = EntityUtils.toByteArray(entity);
+		response.setEntity(new ByteArrayEntity(body, ContentType.getOrDefault(entity)));
+		if(new String(body, "UTF-8").contains(INVALID_TOKEN_ERROR)) {
+			revokedTokens.add(accessToken);
+		}
+	}
+
+	private static int intHeader(HttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		if(header == null) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(header.getValue().trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static RateLimitException exceeded(String owner, RateLimiter limiter) {
+		long wait = TimeUnit.NANOSECONDS.toMillis(limiter.getWait());
+		return new RateLimitException("The rate limit of the " + owner 
+				+ " has been reached, retry in " + wait + "ms", wait);
+	}
+}
@@ -1,31 +1,203 @@
 package com.sola.instagram.io;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
 import org.json.JSONTokener;
 
+/**
+ * Body of an API response. A response built from a stream is read lazily:
+ * getJSON() parses straight from the stream without building the body as a
+ * String, while getBytes() buffers the raw body for callers that need it.
+ * Either call releases the underlying connection once the body has been read.
+ * A buffered body can be shared between threads: each getReader() call reads
+ * the bytes on its own, and getJSON() builds the tree once, on first use.
+ */
 public class RequestResponse {
 	
+	static final String CHARSET = "UTF-8";
+
 	String responseString;
+	InputStream responseStream;
+	byte[] responseBytes;
+	JSONObject json;
+	boolean streamed;
+	boolean checked;
+
 	public RequestResponse(String responseAsString) {
 		this.responseString = responseAsString;
 	}
+
+	public RequestResponse(InputStream responseStream) {
+		this.responseStream = responseStream;
+	}
 	
-	public JSONObject getJSON() {
-		JSONObject res =null;
-		try {
-			res = new JSONObject(new JSONTokener(getResponseString()));
-		} catch (JSONException e) {
-			e.printStackTrace();
+	public synchronized JSONObject getJSON() {
+		if(json == null) {
+			try {
+				json = new JSONObject(openTokener());
+			} catch (JSONException e) {
+				e.printStackTrace();
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				close();
+			}
+		}
+		return json;
+	}
+
+	/**
+	 * Reads and parses the whole body. Unlike getJSON(), failures are 
+	 * thrown: an IOException if the body could not be read in full, and a
+	 * JSONException if it is not valid JSON.
+	 * @return The parsed body
+	 */
+	public synchronized JSONObject parse() throws JSONException, IOException {
+		if(json == null) {
+			getBytes();
+			json = new JSONObject(openTokener());
+		}
+		return json;
+	}
+
+	/**
+	 * Reads the whole body and checks that it holds one complete JSON 
+	 * value, by walking it with a JSONReader that builds nothing. The body
+	 * stays buffered for getReader(), getJSON() and getBytes().
+	 * @throws JSONException if the body is not valid JSON
+	 * @throws IOException if the body could not be read in full
+	 */
+	public synchronized void check() throws JSONException, IOException {
+		if(checked || json != null) {
+			return;
+		}
+		getBytes();
+		new JSONReader(openTokener()).skipValue();
+		checked = true;
+	}
+
+	/**
+	 * Returns whether the buffered body ends like a JSON document, which a 
+	 * body cut short in transit does not
+	 * @return true if the last non-blank character of the body closes an 
+	 * object or an array
+	 */
+	public boolean isComplete() {
+		return isComplete(responseBytes);
+	}
+
+	static boolean isComplete(byte[] bytes) {
+		if(bytes == null) {
+			return false;
+		}
+		for(int i = bytes.length - 1; i >= 0; i--) {
+			byte b = bytes[i];
+			if(b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+				return b == '}' || b == ']';
+			}
 		}
-		return res;
+		return false;
+	}
+
+	/**
+	 * Returns a pull reader over the response body, for callers that bind 
+	 * models straight from the stream instead of building a JSONObject. 
+	 * The caller must close() the response once done reading.
+	 * @return A reader positioned at the start of the body
+	 */
+	public JSONReader getReader() throws IOException {
+		return new JSONReader(openTokener());
+	}
+
+	/**
+	 * Returns the raw bytes of the response body, reading them from the 
+	 * stream on first use. The bytes are not available once the body has 
+	 * been streamed into getJSON().
+	 * @return The raw response body
+	 */
+	public synchronized byte[] getBytes() throws IOException {
+		if(responseBytes == null) {
+			if(responseString != null) {
+				responseBytes = responseString.getBytes(CHARSET);
+			} else if(responseStream != null) {
+				try {
+					responseBytes = readFully(responseStream);
+				} finally {
+					close();
+				}
+			} else if(streamed) {
+				throw new IllegalStateException("The response body has "
+						+ "already been streamed into a JSONObject");
+			}
+		}
+		return responseBytes;
 	}
 
 	public String getResponseString() {
+		if(responseString == null) {
+			try {
+				byte[] bytes = getBytes();
+				if(bytes != null) {
+					responseString = new String(bytes, CHARSET);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 		return responseString;
 	}
 
 	public void setResponseString(String responseString) {
 		this.responseString = responseString;
 	}
+
+	/**
+	 * Releases the connection behind an unread response body. Responses that
+	 * are never read must be closed so the connection can go back to the pool.
+	 */
+	public void close() {
+		if(responseStream != null) {
+			try {
+				responseStream.close();
+			} catch (IOException e) {
+				// the connection is discarded by the pool either way
+			}
+			responseStream = null;
+		}
+	}
+
+	/**
+	 * Buffered bodies are tokenized straight from their chars or bytes; 
+	 * only a body that is still on the wire goes through a Reader.
+	 */
+	private JSONTokener openTokener() throws UnsupportedEncodingException {
+		if(responseString != null) {
+			return new JSONTokener(responseString);
+		}
+		if(responseBytes != null) {
+			return new JSONTokener(responseBytes);
+		}
+		if(responseStream == null) {
+			throw new IllegalStateException("The response has no body");
+		}
+		streamed = true;
+		return new JSONTokener(new InputStreamReader(responseStream, CHARSET));
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = stream.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
 }
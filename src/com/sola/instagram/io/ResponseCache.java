@@ -0,0 +1,703 @@
+package com.sola.instagram.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import com.sola.instagram.exception.RateLimitException;
+
+/**
+ * Disk cache of GET responses, kept across restarts. Responses are keyed by
+ * their normalized uri, without the access token, and stored with their
+ * ETag and Last-Modified validators.
+ *
+ * A response younger than its freshness lifetime (the Cache-Control max-age
+ * of the response, or the cache's default freshness) is served without a
+ * request. Within the stale-while-revalidate window after that, it is still
+ * served right away while a conditional request refreshes it in the
+ * background. Older responses are revalidated with a conditional request,
+ * and a 304 answer is served from the cache.
+ *
+ * Entries are appended to memory-mapped segment files in the cache's
+ * directory. When the last segment is full a new one is started, and the
+ * oldest segment is deleted once there are more than the maximum number of
+ * segments. A POST or DELETE sent through the transport drops the cached
+ * responses of the entity it acts on, such as /media/{id} for a like.
+ *
+ * Responses are shared by every access token using the cache. Endpoints
+ * under /users/self and relationship endpoints, which depend on who asks,
+ * are never cached; fields such as user_has_liked reflect the token that
+ * fetched the response.
+ */
+public class ResponseCache {
+
+	/**
+	 * Default size of a segment file, in bytes
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+	/**
+	 * Default number of segment files kept
+	 */
+	public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+	static final int MAGIC = 0x49474331;
+	static final int HEADER_SIZE = 40;
+	static final String SEGMENT_PREFIX = "responses-";
+	static final String SEGMENT_SUFFIX = ".seg";
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	final File directory;
+	final int segmentSize;
+	final int maxSegments;
+	final ArrayList<Segment> segments = new ArrayList<Segment>();
+	final ConcurrentHashMap<String, Pointer> index = new ConcurrentHashMap<String, Pointer>();
+	final Set<String> revalidating =
+			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	volatile long freshness;
+	volatile long staleWhileRevalidate;
+	ExecutorService revalidator;
+	AtomicLong hitCount = new AtomicLong();
+	AtomicLong staleHitCount = new AtomicLong();
+	AtomicLong revalidatedCount = new AtomicLong();
+	AtomicLong missCount = new AtomicLong();
+
+	static class Segment {
+		final int number;
+		final File file;
+		final MappedByteBuffer buffer;
+		int position;
+
+		Segment(File file, int number, int size) throws IOException {
+			this.file = file;
+			this.number = number;
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				long length = Math.max(size, raf.length());
+				buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+						Math.min(length, Integer.MAX_VALUE));
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	static class Pointer {
+		final Segment segment;
+		final int offset;
+
+		Pointer(Segment segment, int offset) {
+			this.segment = segment;
+			this.offset = offset;
+		}
+	}
+
+	static class Entry {
+		final String etag;
+		final String lastModified;
+		final long storedAt;
+		final long maxAge;
+		final byte[] body;
+
+		Entry(String etag, String lastModified, long storedAt, long maxAge, byte[] body) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.storedAt = storedAt;
+			this.maxAge = maxAge;
+			this.body = body;
+		}
+
+		HttpResponse toResponse() {
+			BasicHttpResponse response =
+					new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+			response.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+			return response;
+		}
+	}
+
+	/**
+	 * Opens the cache stored in the directory passed, creating it if needed,
+	 * with the default segment size and count
+	 *
+	 * @param directory
+	 *            directory of the segment files
+	 */
+	public ResponseCache(File directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+	}
+
+	/**
+	 * Opens the cache stored in the directory passed, creating it if needed
+	 *
+	 * @param directory
+	 *            directory of the segment files
+	 * @param segmentSize
+	 *            size of a segment file in bytes, which bounds the size of
+	 *            a cached response
+	 * @param maxSegments
+	 *            number of segment files kept
+	 */
+	public ResponseCache(File directory, int segmentSize, int maxSegments)
+			throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = Math.max(maxSegments, 1);
+		open();
+	}
+
+	/**
+	 * Returns how long a response without a max-age is served without
+	 * being revalidated
+	 */
+	public long getFreshness(TimeUnit unit) {
+		return unit.convert(freshness, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sets how long a response without a max-age is served without being
+	 * revalidated. The default of 0 revalidates every request.
+	 */
+	public ResponseCache setFreshness(long freshness, TimeUnit unit) {
+		this.freshness = unit.toMillis(freshness);
+		return this;
+	}
+
+	public long getStaleWhileRevalidate(TimeUnit unit) {
+		return unit.convert(staleWhileRevalidate, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sets how long after its freshness lifetime a response is still served
+	 * while it is revalidated in the background
+	 */
+	public ResponseCache setStaleWhileRevalidate(long window, TimeUnit unit) {
+		this.staleWhileRevalidate = unit.toMillis(window);
+		return this;
+	}
+
+	/**
+	 * Returns the number of responses served without a request
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of stale responses served while being revalidated
+	 */
+	public long getStaleHitCount() {
+		return staleHitCount.get();
+	}
+
+	/**
+	 * Returns the number of conditional requests answered with a 304
+	 */
+	public long getRevalidatedCount() {
+		return revalidatedCount.get();
+	}
+
+	/**
+	 * Returns the number of requests that returned a new response
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Returns the number of cached responses
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Returns whether responses of the uri passed may be cached
+	 *
+	 * @param uri
+	 *            the uri of a GET request
+	 */
+	public boolean isCacheable(String uri) {
+		int query = uri.indexOf('?');
+		String path = query < 0 ? uri : uri.substring(0, query);
+		return !path.contains("/self") && !path.endsWith("/relationship");
+	}
+
+	/**
+	 * Returns the key a uri is cached under: its scheme and host in lower
+	 * case, followed by its path and its query parameters in sorted order,
+	 * without the access token
+	 *
+	 * @param uri
+	 *            the uri of a request
+	 * @return The normalized uri
+	 */
+	public static String normalize(String uri) {
+		int query = uri.indexOf('?');
+		String base = query < 0 ? uri : uri.substring(0, query);
+		int scheme = base.indexOf("://");
+		if(scheme >= 0) {
+			int path = base.indexOf('/', scheme + 3);
+			if(path < 0) {
+				path = base.length();
+			}
+			base = base.substring(0, path).toLowerCase(Locale.ROOT) + base.substring(path);
+		}
+		if(query < 0) {
+			return base;
+		}
+		ArrayList<String> parameters = new ArrayList<String>();
+		for(String parameter : uri.substring(query + 1).split("&")) {
+			if(parameter.length() > 0 && !parameter.startsWith("access_token=")) {
+				parameters.add(parameter);
+			}
+		}
+		if(parameters.isEmpty()) {
+			return base;
+		}
+		Collections.sort(parameters);
+		StringBuilder key = new StringBuilder(base).append('?');
+		for(int i = 0; i < parameters.size(); i++) {
+			if(i > 0) {
+				key.append('&');
+			}
+			key.append(parameters.get(i));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Executes a GET request through the transport passed, or answers it
+	 * from the cache
+	 *
+	 * @param transport
+	 *            the transport requests are sent through
+	 * @param request
+	 *            the GET request
+	 * @param accessToken
+	 *            the access token of the request, can be null
+	 * @return The response, with its body buffered
+	 */
+	public HttpResponse execute(HttpTransport transport, HttpUriRequest request,
+			String accessToken) throws IOException, RateLimitException {
+		String uri = request.getURI().toString();
+		if(!isCacheable(uri)) {
+			return transport.execute(request, accessToken);
+		}
+		String key = normalize(uri);
+		Entry entry = read(key);
+		if(entry != null) {
+			long age = System.currentTimeMillis() - entry.storedAt;
+			long lifetime = entry.maxAge >= 0 ? entry.maxAge : freshness;
+			if(age < lifetime) {
+				hitCount.incrementAndGet();
+				return entry.toResponse();
+			}
+			if(age < lifetime + staleWhileRevalidate) {
+				staleHitCount.incrementAndGet();
+				revalidateLater(transport, uri, accessToken, key);
+				return entry.toResponse();
+			}
+		}
+		return fetch(transport, request, accessToken, key, entry);
+	}
+
+	/**
+	 * Drops the cached responses of the entity a request acts on: every uri
+	 * under the first three segments of its path, such as /v1/media/{id}
+	 *
+	 * @param uri
+	 *            the uri of a request that modifies an entity
+	 */
+	public void invalidateRelated(String uri) {
+		String key = normalize(uri);
+		int path = key.indexOf("://");
+		path = path < 0 ? 0 : key.indexOf('/', path + 3);
+		if(path < 0) {
+			return;
+		}
+		int end = path;
+		for(int i = 0; i < 3 && end >= 0; i++) {
+			end = nextSeparator(key, end + 1);
+		}
+		String entity = end < 0 ? key : key.substring(0, end);
+		for(String cached : index.keySet()) {
+			if(cached.startsWith(entity) && (cached.length() == entity.length()
+					|| cached.charAt(entity.length()) == '/'
+					|| cached.charAt(entity.length()) == '?')) {
+				invalidate(cached);
+			}
+		}
+	}
+
+	/**
+	 * Drops the cached response of the uri passed
+	 *
+	 * @param uri
+	 *            the uri of a GET request
+	 */
+	public void invalidate(String uri) {
+		String key = normalize(uri);
+		if(index.containsKey(key)) {
+			write(key, null);
+		}
+	}
+
+	/**
+	 * Writes the segment files to disk
+	 */
+	public synchronized void flush() {
+		for(Segment segment : segments) {
+			segment.buffer.force();
+		}
+	}
+
+	/**
+	 * Writes the segment files to disk and stops background revalidation
+	 */
+	public void close() {
+		flush();
+		synchronized(this) {
+			if(revalidator != null) {
+				revalidator.shutdownNow();
+			}
+		}
+	}
+
+	private HttpResponse fetch(HttpTransport transport, HttpUriRequest request,
+			String accessToken, String key, Entry entry)
+			throws IOException, RateLimitException {
+		if(entry != null) {
+			if(entry.etag != null) {
+				request.setHeader("If-None-Match", entry.etag);
+			}
+			if(entry.lastModified != null) {
+				request.setHeader("If-Modified-Since", entry.lastModified);
+			}
+		}
+		HttpResponse response = transport.execute(request, accessToken);
+		int status = response.getStatusLine().getStatusCode();
+		long now = System.currentTimeMillis();
+		if(status == HttpStatus.SC_NOT_MODIFIED && entry != null) {
+			EntityUtils.consumeQuietly(response.getEntity());
+			revalidatedCount.incrementAndGet();
+			Entry refreshed = new Entry(
+					header(response, "ETag", entry.etag),
+					header(response, "Last-Modified", entry.lastModified),
+					now, maxAge(response), entry.body);
+			write(key, refreshed);
+			return refreshed.toResponse();
+		}
+		missCount.incrementAndGet();
+		if(status != HttpStatus.SC_OK || response.getEntity() == null) {
+			return response;
+		}
+		long maxAge = maxAge(response);
+		if(maxAge == -2) {
+			return response;
+		}
+		byte[] body = EntityUtils.toByteArray(response.getEntity());
+		ContentType type = ContentType.getOrDefault(response.getEntity());
+		response.setEntity(new ByteArrayEntity(body, type));
+		if(RequestResponse.isComplete(body)) {
+			write(key, new Entry(header(response, "ETag", null),
+					header(response, "Last-Modified", null), now, maxAge, body));
+		}
+		return response;
+	}
+
+	private void revalidateLater(final HttpTransport transport, final String uri,
+			final String accessToken, final String key) {
+		if(!revalidating.add(key)) {
+			return;
+		}
+		try {
+			getRevalidator().execute(new Runnable() {
+				public void run() {
+					try {
+						HttpResponse response = fetch(transport, new HttpGet(uri),
+								accessToken, key, read(key));
+						EntityUtils.consumeQuietly(response.getEntity());
+					} catch (Exception e) {
+						// the entry is revalidated by the next request instead
+					} finally {
+						revalidating.remove(key);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			// the cache has been closed
+			revalidating.remove(key);
+		}
+	}
+
+	private synchronized ExecutorService getRevalidator() {
+		if(revalidator == null) {
+			revalidator = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "instagram-cache-revalidate");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return revalidator;
+	}
+
+	/**
+	 * Returns the max-age of a response in milliseconds, -1 if it has none
+	 * and -2 if it must not be stored
+	 */
+	private static long maxAge(HttpResponse response) {
+		for(Header header : response.getHeaders("Cache-Control")) {
+			for(HeaderElement element : header.getElements()) {
+				String name = element.getName().toLowerCase(Locale.ROOT);
+				if(name.equals("no-store")) {
+					return -2;
+				}
+				if(name.equals("max-age") && element.getValue() != null) {
+					try {
+						return Long.parseLong(element.getValue().trim()) * 1000;
+					} catch (NumberFormatException e) {
+						return -1;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static String header(HttpResponse response, String name, String fallback) {
+		Header header = response.getFirstHeader(name);
+		return header == null ? fallback : header.getValue();
+	}
+
+	private static int nextSeparator(String key, int from) {
+		for(int i = from; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if(c == '/' || c == '?') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Each record is laid out as:
+	 *   int magic, int length, long storedAt, long maxAge,
+	 *   int keyLength, int etagLength, int lastModifiedLength, int bodyLength,
+	 *   key, etag, lastModified, body, int crc32
+	 * Absent validators have a length of -1; a body length of -1 marks an
+	 * invalidated key. The magic is written last, so a record cut short by
+	 * a crash ends the segment when it is scanned.
+	 */
+
+	private synchronized void open() throws IOException {
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create cache directory " + directory);
+		}
+		ArrayList<Integer> numbers = new ArrayList<Integer>();
+		File[] files = directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				String name = file.getName();
+				if(name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						numbers.add(Integer.parseInt(name.substring(
+								SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+					} catch (NumberFormatException e) {
+						// not a segment
+					}
+				}
+			}
+		}
+		Collections.sort(numbers);
+		for(int number : numbers) {
+			Segment segment = new Segment(segmentFile(number), number, segmentSize);
+			segments.add(segment);
+			scan(segment);
+		}
+		if(segments.isEmpty()) {
+			segments.add(new Segment(segmentFile(1), 1, segmentSize));
+		}
+	}
+
+	private File segmentFile(int number) {
+		return new File(directory, String.format(Locale.ROOT, "%s%06d%s",
+				SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+	}
+
+	private void scan(Segment segment) {
+		ByteBuffer buffer = segment.buffer.duplicate();
+		int limit = buffer.capacity();
+		int position = 0;
+		CRC32 crc = new CRC32();
+		while(position + HEADER_SIZE + 4 <= limit && buffer.getInt(position) == MAGIC) {
+			int length = buffer.getInt(position + 4);
+			if(length < HEADER_SIZE + 4 || length > limit - position) {
+				break;
+			}
+			crc.reset();
+			for(int i = position + 8; i < position + length - 4; i++) {
+				crc.update(buffer.get(i));
+			}
+			if((int) crc.getValue() != buffer.getInt(position + length - 4)) {
+				break;
+			}
+			int keyLength = buffer.getInt(position + 24);
+			int bodyLength = buffer.getInt(position + 36);
+			byte[] key = new byte[keyLength];
+			buffer.position(position + HEADER_SIZE);
+			buffer.get(key);
+			String keyString = new String(key, UTF8);
+			if(bodyLength < 0) {
+				index.remove(keyString);
+			} else {
+				index.put(keyString, new Pointer(segment, position));
+			}
+			position += length;
+		}
+		segment.position = position;
+	}
+
+	private Entry read(String key) {
+		Pointer pointer = index.get(key);
+		if(pointer == null) {
+			return null;
+		}
+		ByteBuffer buffer = pointer.segment.buffer.duplicate();
+		int offset = pointer.offset;
+		long storedAt = buffer.getLong(offset + 8);
+		long maxAge = buffer.getLong(offset + 16);
+		int keyLength = buffer.getInt(offset + 24);
+		int etagLength = buffer.getInt(offset + 28);
+		int lastModifiedLength = buffer.getInt(offset + 32);
+		int bodyLength = buffer.getInt(offset + 36);
+		buffer.position(offset + HEADER_SIZE + keyLength);
+		String etag = readString(buffer, etagLength);
+		String lastModified = readString(buffer, lastModifiedLength);
+		byte[] body = new byte[bodyLength];
+		buffer.get(body);
+		return new Entry(etag, lastModified, storedAt, maxAge, body);
+	}
+
+	private static String readString(ByteBuffer buffer, int length) {
+		if(length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Appends a record for the key passed; a null entry invalidates it
+	 */
+	private synchronized void write(String key, Entry entry) {
+		byte[] keyBytes = key.getBytes(UTF8);
+		byte[] etag = entry == null || entry.etag == null ? null : entry.etag.getBytes(UTF8);
+		byte[] lastModified = entry == null || entry.lastModified == null
+				? null : entry.lastModified.getBytes(UTF8);
+		byte[] body = entry == null ? null : entry.body;
+		long length = HEADER_SIZE + 4L + keyBytes.length + lengthOf(etag)
+				+ lengthOf(lastModified) + lengthOf(body);
+		if(length > segmentSize) {
+			if(entry != null) {
+				// too large to cache, so drop any older response instead
+				write(key, null);
+			}
+			return;
+		}
+		Segment segment = segments.get(segments.size() - 1);
+		if(segment.position + length > segment.buffer.capacity()) {
+			try {
+				segment = roll();
+			} catch (IOException e) {
+				// keep serving the responses already cached
+				index.remove(key);
+				return;
+			}
+		}
+		int position = segment.position;
+		ByteBuffer buffer = segment.buffer.duplicate();
+		buffer.position(position + 4);
+		buffer.putInt((int) length);
+		buffer.putLong(entry == null ? 0 : entry.storedAt);
+		buffer.putLong(entry == null ? -1 : entry.maxAge);
+		buffer.putInt(keyBytes.length);
+		buffer.putInt(etag == null ? -1 : etag.length);
+		buffer.putInt(lastModified == null ? -1 : lastModified.length);
+		buffer.putInt(body == null ? -1 : body.length);
+		buffer.put(keyBytes);
+		putBytes(buffer, etag);
+		putBytes(buffer, lastModified);
+		putBytes(buffer, body);
+		CRC32 crc = new CRC32();
+		for(int i = position + 8; i < buffer.position(); i++) {
+			crc.update(buffer.get(i));
+		}
+		buffer.putInt((int) crc.getValue());
+		buffer.putInt(position, MAGIC);
+		segment.position = buffer.position();
+		if(entry == null) {
+			index.remove(key);
+		} else {
+			index.put(key, new Pointer(segment, position));
+		}
+	}
+
+	private Segment roll() throws IOException {
+		Segment last = segments.get(segments.size() - 1);
+		Segment segment = new Segment(segmentFile(last.number + 1), last.number + 1, segmentSize);
+		segments.add(segment);
+		while(segments.size() > maxSegments) {
+			Segment oldest = segments.remove(0);
+			Iterator<Map.Entry<String, Pointer>> entries = index.entrySet().iterator();
+			while(entries.hasNext()) {
+				if(entries.next().getValue().segment == oldest) {
+					entries.remove();
+				}
+			}
+			oldest.file.delete();
+		}
+		return segment;
+	}
+
+	private static int lengthOf(byte[] bytes) {
+		return bytes == null ? 0 : bytes.length;
+	}
+
+	private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+		if(bytes != null) {
+			buffer.put(bytes);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.sola.instagram.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * Decides which failed requests are sent again, and when. 
+ *
+ * Failures that happen before a request reaches the server (refused
+ * connections, connect timeouts, unknown hosts) are retried for every
+ * method. Failures that can happen after the server has acted on a request
+ * (read timeouts, dropped connections, truncated bodies, 5xx and 429
+ * responses) are only retried for idempotent methods, so a POST such as 
+ * postComment is never sent twice.
+ *
+ * Retries are spaced with decorrelated jitter: each wait is drawn between 
+ * the base delay and three times the previous wait, capped at the maximum
+ * delay. No retry is made that would end after the request's deadline.
+ */
+public class RetryPolicy {
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 4;
+	public static final long DEFAULT_BASE_DELAY_MILLIS = 100;
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+	public static final long DEFAULT_DEADLINE_MILLIS = 30000;
+
+	static final int TOO_MANY_REQUESTS = 429;
+
+	/**
+	 * A policy that never retries
+	 */
+	public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, 0);
+
+	int maxAttempts;
+	long baseDelayMillis;
+	long maxDelayMillis;
+	long deadlineMillis;
+
+	/**
+	 * Creates a policy with the default limits
+	 */
+	public RetryPolicy() {
+		this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS,
+				DEFAULT_MAX_DELAY_MILLIS, DEFAULT_DEADLINE_MILLIS);
+	}
+
+	/**
+	 * Creates a policy
+	 * @param maxAttempts the most times a request is sent, including the first
+	 * @param baseDelayMillis the shortest wait between two attempts
+	 * @param maxDelayMillis the longest wait between two attempts
+	 * @param deadlineMillis the time after which a request is not retried,
+	 * counted from its first attempt
+	 */
+	public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+			long deadlineMillis) {
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		this.deadlineMillis = deadlineMillis;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public long getBaseDelayMillis() {
+		return baseDelayMillis;
+	}
+
+	public long getMaxDelayMillis() {
+		return maxDelayMillis;
+	}
+
+	public long getDeadlineMillis() {
+		return deadlineMillis;
+	}
+
+	/**
+	 * Returns whether a response status is worth another attempt
+	 * @param status the HTTP status of the response
+	 * @return true for 429 and 5xx statuses
+	 */
+	public boolean isRetryable(int status) {
+		return status == TOO_MANY_REQUESTS || (status >= 500 && status < 600);
+	}
+
+	/**
+	 * Returns whether a request that failed with an exception can be sent
+	 * again
+	 * @param e the failure
+	 * @param idempotent whether the request's method is idempotent
+	 * @return true if the request should be retried
+	 */
+	public boolean isRetryable(Exception e, boolean idempotent) {
+		if(e instanceof ConnectException || e instanceof ConnectTimeoutException
+				|| e instanceof UnknownHostException 
+				|| e instanceof NoRouteToHostException) {
+			return true;
+		}
+		if(!idempotent || !(e instanceof IOException)) {
+			return false;
+		}
+		// thrown when the caller's thread is interrupted, but also by
+		// read timeouts, which are subclasses
+		return !(e.getClass() == InterruptedIOException.class);
+	}
+
+	/**
+	 * Draws the wait before the next attempt
+	 * @param previousMillis the previous wait, or 0 before the first retry
+	 * @return The wait, in milliseconds
+	 */
+	public long nextDelay(long previousMillis) {
+		long upper = Math.max(baseDelayMillis, previousMillis * 3);
+		long delay = upper > baseDelayMillis 
+				? ThreadLocalRandom.current().nextLong(baseDelayMillis, upper + 1)
+				: baseDelayMillis;
+		return Math.min(maxDelayMillis, delay);
+	}
+}
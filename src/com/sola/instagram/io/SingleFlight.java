@@ -0,0 +1,88 @@
+package com.sola.instagram.io;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical requests that are in flight at the same time. The
+ * first caller for a key performs the request; callers that arrive while it
+ * is running wait for it and get the same response, read once, instead of
+ * sending their own. Nothing is cached: once the request completes, the 
+ * next caller for the key sends a new one.
+ *
+ * The shared body is only buffered and checked, so each caller can bind 
+ * models from its own reader over the bytes. Callers that ask for getJSON()
+ * share the same JSONObject, which must be treated as read-only.
+ */
+public class SingleFlight {
+
+	ConcurrentHashMap<String, CompletableFuture<RequestResponse>> calls =
+			new ConcurrentHashMap<String, CompletableFuture<RequestResponse>>();
+	AtomicLong shared = new AtomicLong();
+
+	/**
+	 * Performs a request, or joins the identical request already in flight
+	 * @param key the key of the request, its fully expanded uri
+	 * @param request performs the request
+	 * @return The response, with its body buffered
+	 */
+	public RequestResponse call(String key, Callable<RequestResponse> request) 
+			throws Exception {
+		CompletableFuture<RequestResponse> call = new CompletableFuture<RequestResponse>();
+		CompletableFuture<RequestResponse> running = calls.putIfAbsent(key, call);
+		if(running != null) {
+			shared.incrementAndGet();
+			return join(running);
+		}
+		try {
+			RequestResponse response = request.call();
+			// every caller needs the body, so it is read once, up front
+			response.check();
+			call.complete(response);
+			return response;
+		} catch(Exception e) {
+			call.completeExceptionally(e);
+			throw e;
+		} finally {
+			calls.remove(key, call);
+		}
+	}
+
+	/**
+	 * Returns the number of calls that joined a request instead of sending
+	 * their own
+	 * @return The number of shared calls
+	 */
+	public long getSharedCount() {
+		return shared.get();
+	}
+
+	/**
+	 * Returns the number of distinct requests in flight
+	 * @return The number of requests in flight
+	 */
+	public int getInFlightCount() {
+		return calls.size();
+	}
+
+	private static RequestResponse join(CompletableFuture<RequestResponse> running) 
+			throws Exception {
+		try {
+			return running.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for "
+					+ "a shared request");
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw (Error) cause;
+		}
+	}
+}
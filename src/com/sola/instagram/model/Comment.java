@@ -2,8 +2,11 @@ package com.sola.instagram.model;
 
 import org.json.JSONObject;
 import org.json.JSONException;
+import org.json.JSONReader;
+import org.json.JSONWriter;
 
 import com.sola.instagram.exception.InstagramException;
+import com.sola.instagram.io.HttpTransport;
 
 public class Comment extends InstagramModel {
 	String createdTimestamp;
@@ -17,7 +20,34 @@ public class Comment extends InstagramModel {
 		setCreatedTimestamp(obj.getString("created_time"));
 		setText(obj.getString("text"));
 		setId(obj.getString("id"));
-		setSender((new User(obj.getJSONObject("from"), accessToken)));
+		setSender((new User(obj.getJSONObject("from"), accessToken, false)));
+	}
+
+	public Comment(JSONReader reader, String accessToken)
+			throws JSONException {
+		super(accessToken);
+		beginObject(reader, true);
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+			if(reader.skipNull()) continue;
+			switch(name) {
+			case "created_time":
+				setCreatedTimestamp(reader.nextString());
+				break;
+			case "text":
+				setText(reader.nextString());
+				break;
+			case "id":
+				setId(reader.nextString());
+				break;
+			case "from":
+				setSender(new User(reader, accessToken, false));
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		endObject(reader, true);
 	}
 
 	public String getCreatedTimestamp() {
@@ -52,6 +82,25 @@ public class Comment extends InstagramModel {
 		this.sender = sender;
 	}
 
+	@Override
+	protected void writeFields(JSONWriter writer) throws JSONException {
+		writer.key("created_time").value(createdTimestamp)
+			.key("text").value(text)
+			.key("from");
+		if(sender == null) {
+			writer.value(null);
+		} else {
+			sender.write(writer);
+		}
+		writer.key("id").value(id);
+	}
+
+	@Override
+	public void setTransport(HttpTransport transport) {
+		super.setTransport(transport);
+		getSender().setTransport(transport);
+	}
+
     /**
      * Checks if two comment objects are equal
      * @param o The object to be compared 
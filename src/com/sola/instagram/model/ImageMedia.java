@@ -9,4 +9,8 @@ public class ImageMedia extends Media {
 		super(obj, accessToken);
 	}
 
+	protected ImageMedia(String accessToken) {
+		super(accessToken);
+	}
+
 }
@@ -1,21 +1,217 @@
 package com.sola.instagram.model;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONStringer;
+import org.json.JSONWriter;
+import org.json.Utf8Writer;
+
+import com.sola.instagram.io.HttpTransport;
 
 public abstract class InstagramModel {
+
+	/**
+	 * What a model keeps of the json object it was made from
+	 */
+	public enum Retention {
+		/**
+		 * The parsed JSONObject, with everything it holds. Models bound 
+		 * from a JSONReader parse it from the text they were read from.
+		 */
+		TREE,
+		/**
+		 * The json text as UTF-8 bytes, a fraction of the size of the tree.
+		 * Only the outermost model keeps them: models bound from a 
+		 * JSONReader copy the text they were read from, others serialize 
+		 * their object once. Models nested inside it keep nothing.
+		 */
+		BYTES,
+		/**
+		 * Nothing; toString() writes the model's own fields
+		 */
+		NONE
+	}
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static volatile Retention defaultRetention = Retention.TREE;
+
 	String accessToken;
 	JSONObject jsonRepresentation;
+	byte[] jsonBytes;
+	volatile HttpTransport transport;
 
 
 	public InstagramModel(JSONObject obj, String accessToken) {
-		setJsonRepresentation(obj);
+		this(obj, accessToken, true);
+	}
+
+	/**
+	 * @param retain false for a model nested inside another, which keeps 
+	 * no bytes of its own
+	 */
+	InstagramModel(JSONObject obj, String accessToken, boolean retain) {
+		switch(defaultRetention) {
+		case TREE:
+			setJsonRepresentation(obj);
+			break;
+		case BYTES:
+			if(retain) {
+				this.jsonBytes = obj.toString().getBytes(UTF8);
+			}
+			break;
+		default:
+			break;
+		}
 		setAccessToken(accessToken);
 	}
-	
+
+	/**
+	 * Used by models that are bound straight from a JSONReader, which keep
+	 * their json through beginObject(JSONReader, boolean) and 
+	 * endObject(JSONReader, boolean)
+	 */
+	protected InstagramModel(String accessToken) {
+		setAccessToken(accessToken);
+	}
+
+	/**
+	 * Consumes the '{' that starts this model's json object. With TREE or
+	 * BYTES retention, the text of the object is kept as it is read.
+	 * @param retain false for a model nested inside another
+	 */
+	void beginObject(JSONReader reader, boolean retain) throws JSONException {
+		if(retain && defaultRetention != Retention.NONE) {
+			reader.beginObjectSpan();
+		} else {
+			reader.beginObject();
+		}
+	}
+
+	/**
+	 * Consumes the '}' that ends this model's json object, and keeps what 
+	 * the retention asks for of the text read since 
+	 * beginObject(JSONReader, boolean): the JSONObject parsed from it with
+	 * TREE, its bytes with BYTES
+	 * @param retain false for a model nested inside another
+	 */
+	void endObject(JSONReader reader, boolean retain) throws JSONException {
+		if(!retain) {
+			reader.endObject();
+		} else if(defaultRetention == Retention.TREE) {
+			setJsonRepresentation(reader.endObjectSpanTree());
+		} else {
+			this.jsonBytes = reader.endObjectSpan();
+		}
+	}
+
+	/**
+	 * Returns what models made from then on keep of their json object
+	 * @return The retention, TREE by default
+	 */
+	public static Retention getDefaultRetention() {
+		return defaultRetention;
+	}
+
+	/**
+	 * Sets what models made from then on keep of their json object. NONE
+	 * keeps only the fields of each model, which makes large working sets
+	 * of media much smaller.
+	 * @param retention what to keep
+	 */
+	public static void setDefaultRetention(Retention retention) {
+		defaultRetention = retention;
+	}
+
+	/**
+	 * Returns the json of this object: the json it was made from if it was
+	 * kept, otherwise its fields written as the API names them
+	 */
 	public String toString() {
-		return getJsonRepresentation().toString();
+		if(getJsonRepresentation() != null) {
+			return getJsonRepresentation().toString();
+		}
+		if(jsonBytes != null) {
+			return new String(jsonBytes, UTF8);
+		}
+		try {
+			JSONStringer stringer = new JSONStringer();
+			write(stringer);
+			return stringer.toString();
+		} catch (JSONException e) {
+			return super.toString();
+		}
+	}
+
+	/**
+	 * Writes the json of this object to a stream as UTF-8, the same text
+	 * toString() returns, without building it as a String first. The 
+	 * stream is left open.
+	 * @param out the stream
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		if(getJsonRepresentation() == null && jsonBytes != null) {
+			out.write(jsonBytes);
+			return;
+		}
+		writeTo(new Utf8Writer(out));
+	}
+
+	/**
+	 * Writes the json of this object to a channel as UTF-8, the same text
+	 * toString() returns, without building it as a String first. The 
+	 * channel is left open.
+	 * @param channel the channel
+	 */
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		if(getJsonRepresentation() == null && jsonBytes != null) {
+			ByteBuffer bytes = ByteBuffer.wrap(jsonBytes);
+			while(bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			return;
+		}
+		writeTo(new Utf8Writer(channel));
+	}
+
+	private void writeTo(Utf8Writer writer) throws IOException {
+		try {
+			if(getJsonRepresentation() != null) {
+				getJsonRepresentation().write(writer);
+			} else {
+				write(new JSONWriter(writer));
+			}
+		} catch (JSONException e) {
+			throw new IOException(e);
+		} finally {
+			writer.finish();
+		}
 	}
-	
+
+	/**
+	 * Writes this object's fields as a json object
+	 * @param writer the writer, positioned where a value is expected
+	 */
+	void write(JSONWriter writer) throws JSONException {
+		writer.object();
+		writeFields(writer);
+		writer.endObject();
+	}
+
+	/**
+	 * Writes the keys and values of this object's fields, named as in the
+	 * API's json
+	 * @param writer the writer, positioned inside this object's json object
+	 */
+	protected abstract void writeFields(JSONWriter writer) throws JSONException;
+
 	protected void setAccessToken(String accessToken) {
 		this.accessToken = accessToken;
 	}
@@ -23,7 +219,21 @@ public abstract class InstagramModel {
 	protected String getAccessToken() {
 		return this.accessToken;
 	}
-	
+
+	/**
+	 * Sets the transport used for this object's lazy-loaded api requests.
+	 * Models that hold other models pass the transport on to them.
+	 * @param transport transport of the session that created this object
+	 */
+	public void setTransport(HttpTransport transport) {
+		this.transport = transport;
+	}
+
+	protected HttpTransport getTransport() {
+		HttpTransport transport = this.transport;
+		return transport == null ? HttpTransport.getDefault() : transport;
+	}
+
 	private JSONObject getJsonRepresentation() {
 		return jsonRepresentation;
 	}
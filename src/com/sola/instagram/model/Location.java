@@ -1,5 +1,8 @@
 package com.sola.instagram.model;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONWriter;
 
 public class Location extends InstagramModel {
 	int id;
@@ -8,12 +11,55 @@ public class Location extends InstagramModel {
 	Double latitude;
 	
 	public Location(JSONObject obj, String accessToken) {
-		super(obj, accessToken);
+		this(obj, accessToken, true);
+	}
+
+	/**
+	 * @param retain false for a location nested inside another model
+	 */
+	Location(JSONObject obj, String accessToken, boolean retain) {
+		super(obj, accessToken, retain);
 		setName(obj.optString("name"));
 		setId(obj.optInt("id"));
 		setLatitude(obj.optDouble("latitude"));
 		setLongitude(obj.optDouble("longitude"));
 	}
+
+	public Location(JSONReader reader, String accessToken) throws JSONException {
+		this(reader, accessToken, true);
+	}
+
+	/**
+	 * @param retain false for a location nested inside another model
+	 */
+	Location(JSONReader reader, String accessToken, boolean retain) throws JSONException {
+		super(accessToken);
+		setName("");
+		setLatitude(Double.NaN);
+		setLongitude(Double.NaN);
+		beginObject(reader, retain);
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+			if(reader.skipNull()) continue;
+			switch(name) {
+			case "name":
+				setName(reader.nextString());
+				break;
+			case "id":
+				setId(reader.nextInt());
+				break;
+			case "latitude":
+				setLatitude(reader.nextDouble());
+				break;
+			case "longitude":
+				setLongitude(reader.nextDouble());
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		endObject(reader, retain);
+	}
 	
 	public int getId() {
 		return id;
@@ -39,6 +85,19 @@ public class Location extends InstagramModel {
 	public Double getLatitude() {
 		return latitude;
 	}
+
+	@Override
+	protected void writeFields(JSONWriter writer) throws JSONException {
+		writer.key("id").value(String.valueOf(id))
+			.key("name").value(name);
+		// coordinates missing from the json are NaN, which json cannot hold
+		if(latitude != null && !latitude.isNaN()) {
+			writer.key("latitude").value(latitude.doubleValue());
+		}
+		if(longitude != null && !longitude.isNaN()) {
+			writer.key("longitude").value(longitude.doubleValue());
+		}
+	}
     /**
      * Checks if two location objects are equal
      * @param o The object to be compared 
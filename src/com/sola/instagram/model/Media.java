@@ -31,9 +31,13 @@ import java.util.List;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONWriter;
 
 import com.sola.instagram.exception.InstagramException;
 import com.sola.instagram.io.GetMethod;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.io.RequestResponse;
 import com.sola.instagram.io.UriFactory;
 import com.sola.instagram.util.UriConstructor;
 
@@ -165,13 +169,16 @@ public class Media extends InstagramModel {
 	/**
 	 * List of lazyloaded Comment objects for this media 
 	 */
-	protected List<Comment> comments;
+	protected volatile List<Comment> comments;
 	
 	/**
 	 * List of lazyloaded User objects for users who
 	 * liked the media
 	 */
-	protected List<User> likers;
+	protected volatile List<User> likers;
+
+	private final Object commentsLock = new Object();
+	private final Object likersLock = new Object();
 	
 	/**
 	 * User who created this media
@@ -228,7 +235,7 @@ public class Media extends InstagramModel {
 		this.setLink(obj.optString("link"));
 		this.setId(obj.getString("id"));
 		this.setType(obj.getString("type"));
-		this.setUser(new User(obj.getJSONObject("user"), accessToken));
+		this.setUser(new User(obj.getJSONObject("user"), accessToken, false));
 		this.setUserHasLikedMedia(obj.getBoolean("user_has_liked"));
 		
 	 	JSONObject images = obj.getJSONObject("images");
@@ -237,7 +244,7 @@ public class Media extends InstagramModel {
 	 	this.setStandardResolutionImage(this.new Image(images.getJSONObject("standard_resolution")));
 		
 		if(!obj.isNull("location"))
-			this.setLocation(new Location(obj.getJSONObject("location"), accessToken));
+			this.setLocation(new Location(obj.getJSONObject("location"), accessToken, false));
 		
 		ArrayList<String> tags = new ArrayList<String>();
 		JSONArray tagStrings   = obj.getJSONArray("tags");
@@ -263,6 +270,43 @@ public class Media extends InstagramModel {
 	}
 	
 	
+	/**
+	 * Makes an empty Media object, to be filled by readFields
+	 * @param accessToken API access token used for lazyloaded api requests
+	 */
+	protected Media(String accessToken) {
+		super(accessToken);
+		uriConstructor = new UriConstructor(accessToken);
+	}
+
+	/**
+	 * Makes a copy of another Media object
+	 * @param source the media to be copied
+	 */
+	protected Media(Media source) {
+		super(source.getAccessToken());
+		this.transport = source.transport;
+		this.jsonRepresentation = source.jsonRepresentation;
+		this.jsonBytes = source.jsonBytes;
+		this.type = source.type;
+		this.filter = source.filter;
+		this.link = source.link;
+		this.tags = source.tags;
+		this.lowResolutionImage = source.lowResolutionImage;
+		this.thumbnailImage = source.thumbnailImage;
+		this.standardResolutionImage = source.standardResolutionImage;
+		this.comments = source.comments;
+		this.likers = source.likers;
+		this.user = source.user;
+		this.location = source.location;
+		this.createdTimestamp = source.createdTimestamp;
+		this.id = source.id;
+		this.caption = source.caption;
+		this.userHasLikedMedia = source.userHasLikedMedia;
+		this.usersInPhoto = source.usersInPhoto;
+		this.uriConstructor = source.uriConstructor;
+	}
+	
 	public static Media fromJSON(JSONObject obj, String accessToken) throws JSONException {
 		if(obj.getString("type").equals("video")) {
 			return new VideoMedia(obj, accessToken);
@@ -270,6 +314,120 @@ public class Media extends InstagramModel {
 			return new ImageMedia(obj, accessToken);
 		}
 	}
+
+	/**
+	 * Makes a new ImageMedia or VideoMedia object straight from a JSONReader
+	 * positioned at the media's json object. The comments and likes embedded 
+	 * in the object are skipped without being parsed. 
+	 * @param reader reader positioned at the media object
+	 * @param accessToken API access token used for lazyloaded api requests
+	 * @throws JSONException
+	 */
+	public static Media fromJSON(JSONReader reader, String accessToken) throws JSONException {
+		Image[] videos = new Image[2];
+		ImageMedia media = new ImageMedia(accessToken);
+		media.readFields(reader, videos);
+		if("video".equals(media.getType())) {
+			return new VideoMedia(media, videos[0], videos[1]);
+		}
+		return media;
+	}
+
+	/**
+	 * Reads the fields of a media object. The "type" field can come after 
+	 * "videos", so the video versions are read as images into the array 
+	 * passed (low resolution first), for the caller to convert.
+	 * @param reader reader positioned at the media object
+	 * @param videos array that receives the video versions, if any
+	 * @throws JSONException
+	 */
+	protected void readFields(JSONReader reader, Image[] videos) throws JSONException {
+		ArrayList<String> tags = new ArrayList<String>();
+		ArrayList<UserPhotoTag> userPhotoTags = new ArrayList<UserPhotoTag>();
+		beginObject(reader, true);
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+			if(reader.skipNull()) continue;
+			switch(name) {
+			case "caption":
+				this.setCaption(this.new Caption(reader));
+				break;
+			case "created_time":
+				this.setCreatedTimestamp(reader.nextString());
+				break;
+			case "filter":
+				this.setFilter(reader.nextString());
+				break;
+			case "link":
+				this.setLink(reader.nextString());
+				break;
+			case "id":
+				this.setId(reader.nextString());
+				break;
+			case "type":
+				this.setType(reader.nextString());
+				break;
+			case "user":
+				this.setUser(new User(reader, getAccessToken(), false));
+				break;
+			case "user_has_liked":
+				this.setUserHasLikedMedia(reader.nextBoolean());
+				break;
+			case "location":
+				this.setLocation(new Location(reader, getAccessToken(), false));
+				break;
+			case "images":
+				reader.beginObject();
+				while(reader.hasNext()) {
+					String resolution = reader.nextName();
+					if(resolution.equals("low_resolution")) {
+						this.setLowResolutionImage(this.new Image(reader));
+					} else if(resolution.equals("thumbnail")) {
+						this.setThumbnailImage(this.new Image(reader));
+					} else if(resolution.equals("standard_resolution")) {
+						this.setStandardResolutionImage(this.new Image(reader));
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+				break;
+			case "videos":
+				reader.beginObject();
+				while(reader.hasNext()) {
+					String resolution = reader.nextName();
+					if(resolution.equals("low_resolution")) {
+						videos[0] = this.new Image(reader);
+					} else if(resolution.equals("standard_resolution")) {
+						videos[1] = this.new Image(reader);
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+				break;
+			case "tags":
+				reader.beginArray();
+				while(reader.hasNext()) {
+					tags.add(reader.nextString());
+				}
+				reader.endArray();
+				break;
+			case "users_in_photo":
+				reader.beginArray();
+				while(reader.hasNext()) {
+					userPhotoTags.add(new UserPhotoTag(reader));
+				}
+				reader.endArray();
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		endObject(reader, true);
+		this.setTags(tags);
+		this.setUsersInPhoto(userPhotoTags);
+	}
 	
     /**
      * Returns the type of this media
@@ -318,24 +476,53 @@ public class Media extends InstagramModel {
 	}
 
     /**
-     * Lazy-loads and returns a list of comments for this media
+     * Lazy-loads and returns a list of comments for this media. Threads 
+     * asking for the comments while they are loaded wait for the same 
+     * request.
      * @return A list of lazy-loaded comments for this media 
      */
 	public List<Comment> getComments() throws Exception {
+		List<Comment> comments = this.comments;
 		if(comments == null) {
-			HashMap<String, Object> map = new HashMap<String, Object>();
-			map.put("media_id", getId());
-			String uri = uriConstructor.constructUri(
-								UriFactory.Comments.GET_MEDIA_COMMENTS, map, true);
-			JSONObject object = (new GetMethod()
-								.setMethodURI(uri)
-								).call().getJSON();
-			ArrayList<Comment> comments =  new ArrayList<Comment>();
-			JSONArray commentObjects = object.getJSONArray("data");
-			for(int i = 0; i < commentObjects.length(); i++) {
-				comments.add(new Comment(commentObjects.getJSONObject(i), accessToken));
+			synchronized(commentsLock) {
+				comments = this.comments;
+				if(comments == null) {
+					comments = loadComments();
+					setComments(comments);
+				}
 			}
-			setComments(comments);	
+		}
+		return comments;
+	}
+
+	private List<Comment> loadComments() throws Exception {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("media_id", getId());
+		String uri = uriConstructor.constructUri(
+							UriFactory.Comments.GET_MEDIA_COMMENTS, map, true);
+		RequestResponse response = (new GetMethod(getTransport())
+							.setMethodURI(uri)
+							).call();
+		ArrayList<Comment> comments =  new ArrayList<Comment>();
+		try {
+			JSONReader reader = response.getReader();
+			reader.beginObject();
+			while(reader.hasNext()) {
+				if(!reader.nextName().equals("data")) {
+					reader.skipValue();
+					continue;
+				}
+				reader.beginArray();
+				while(reader.hasNext()) {
+					Comment comment = new Comment(reader, accessToken);
+					comment.setTransport(transport);
+					comments.add(comment);
+				}
+				reader.endArray();
+			}
+			reader.endObject();
+		} finally {
+			response.close();
 		}
 		return comments;
 	}
@@ -456,35 +643,48 @@ public class Media extends InstagramModel {
 	}
 	
     /**
-     * Lazy-Loads and returns a list of users who have liked this media
+     * Lazy-Loads and returns a list of users who have liked this media.
+     * Threads asking for the likers while they are loaded wait for the 
+     * same request.
      * @return A lazy-loaded list of users who have liked this media
      */
 	public List<User> getLikers() throws Exception {
+		List<User> likers = this.likers;
 		if(likers == null) {
-			try {
-				
-				HashMap<String, Object> map = new HashMap<String, Object>();
-				map.put("media_id", getId());
-				String uri = uriConstructor.constructUri(
-								UriFactory.Likes.GET_LIKERS, map, true);
-				JSONObject object = (
-									new GetMethod()
-									.setMethodURI(uri)
-									).call().getJSON();
-				ArrayList<User> likers =  new ArrayList<User>();
-				JSONArray likerUserObjects = object.getJSONArray("data");
-				for(int i = 0; i < likerUserObjects.length(); i++) {
-					likers.add(new User(likerUserObjects.getJSONObject(i), accessToken));
+			synchronized(likersLock) {
+				likers = this.likers;
+				if(likers == null) {
+					likers = loadLikers();
+					setLikers(likers);
 				}
-				setLikers(likers);
-				
-			} catch(JSONException e) {
-				throw new InstagramException("JSON parsing error");
 			}
 		}
 		return likers;
 	}
 
+	private List<User> loadLikers() throws Exception {
+		try {
+			HashMap<String, Object> map = new HashMap<String, Object>();
+			map.put("media_id", getId());
+			String uri = uriConstructor.constructUri(
+							UriFactory.Likes.GET_LIKERS, map, true);
+			JSONObject object = (
+								new GetMethod(getTransport())
+								.setMethodURI(uri)
+								).call().getJSON();
+			ArrayList<User> likers =  new ArrayList<User>();
+			JSONArray likerUserObjects = object.getJSONArray("data");
+			for(int i = 0; i < likerUserObjects.length(); i++) {
+				User liker = new User(likerUserObjects.getJSONObject(i), accessToken);
+				liker.setTransport(transport);
+				likers.add(liker);
+			}
+			return likers;
+		} catch(JSONException e) {
+			throw new InstagramException("JSON parsing error");
+		}
+	}
+
 	protected void setLikers(List<User> likers) {
 		this.likers = likers;
 	}
@@ -525,6 +725,94 @@ public class Media extends InstagramModel {
 		return ((Media)o).getId().equals(getId());
 	}
 	
+	/**
+	 * Writes the media's fields. The lazily loaded comments and likers are
+	 * left out.
+	 */
+	@Override
+	protected void writeFields(JSONWriter writer) throws JSONException {
+		writer.key("id").value(id)
+			.key("type").value(type)
+			.key("created_time").value(createdTimestamp)
+			.key("filter").value(filter)
+			.key("link").value(link)
+			.key("user_has_liked").value(userHasLikedMedia);
+		writer.key("user");
+		writeModel(writer, user);
+		writer.key("caption");
+		if(caption == null) {
+			writer.value(null);
+		} else {
+			caption.write(writer);
+		}
+		writer.key("location");
+		writeModel(writer, location);
+		writer.key("tags").array();
+		if(tags != null) {
+			for(String tag : tags) {
+				writer.value(tag);
+			}
+		}
+		writer.endArray();
+		writer.key("images").object();
+		writeImage(writer, "low_resolution", lowResolutionImage);
+		writeImage(writer, "thumbnail", thumbnailImage);
+		writeImage(writer, "standard_resolution", standardResolutionImage);
+		writer.endObject();
+		writer.key("users_in_photo").array();
+		if(usersInPhoto != null) {
+			for(UserPhotoTag tag : usersInPhoto) {
+				tag.write(writer);
+			}
+		}
+		writer.endArray();
+	}
+
+	static void writeModel(JSONWriter writer, InstagramModel model) 
+			throws JSONException {
+		if(model == null) {
+			writer.value(null);
+		} else {
+			model.write(writer);
+		}
+	}
+
+	static void writeImage(JSONWriter writer, String key, Image image) 
+			throws JSONException {
+		if(image != null) {
+			writer.key(key);
+			image.write(writer);
+		}
+	}
+
+    /**
+     * Sets the transport used for lazy-loaded api requests made by this 
+     * media and by the users, comments and location it holds
+     * @param transport transport of the session that created this media
+     */
+	@Override
+	public void setTransport(HttpTransport transport) {
+		super.setTransport(transport);
+		getUser().setTransport(transport);
+		if(getCaption() != null)
+			getCaption().getFrom().setTransport(transport);
+		if(getLocation() != null)
+			getLocation().setTransport(transport);
+		for(UserPhotoTag tag : getUsersInPhoto()) {
+			tag.getUser().setTransport(transport);
+		}
+		if(comments != null) {
+			for(Comment comment : comments) {
+				comment.setTransport(transport);
+			}
+		}
+		if(likers != null) {
+			for(User liker : likers) {
+				liker.setTransport(transport);
+			}
+		}
+	}
+	
 	/**
 	 * Object for a media image
 	 * with the JSON representation
@@ -564,6 +852,28 @@ public class Media extends InstagramModel {
 			this.setWidth(obj.getInt("width"));
 			this.setHeigth(obj.getInt("height"));
 		}
+
+	    /**
+	     * Makes a new Image object from a JSONReader
+	     * @param reader reader positioned at the image's json object
+	     * @throws JSONException
+	     */
+		public Image(JSONReader reader) throws JSONException {
+			reader.beginObject();
+			while(reader.hasNext()) {
+				String name = reader.nextName();
+				if(name.equals("url")) {
+					this.setUri(reader.nextString());
+				} else if(name.equals("width")) {
+					this.setWidth(reader.nextInt());
+				} else if(name.equals("height")) {
+					this.setHeigth(reader.nextInt());
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
 		
 	    /**
 	     * Returns the url link to this image
@@ -613,6 +923,14 @@ public class Media extends InstagramModel {
 			this.heigth = heigth;
 		}
 
+		void write(JSONWriter writer) throws JSONException {
+			writer.object()
+				.key("url").value(uri)
+				.key("width").value(width)
+				.key("height").value(heigth)
+				.endObject();
+		}
+
 	    /**
 	     * Checks if two image objects are equal
 	     * @param o The object to be compared 
@@ -674,10 +992,35 @@ public class Media extends InstagramModel {
 	     */
 		public Caption(JSONObject captionObject) throws JSONException {
 			this.setId(captionObject.getString("id"));
-			this.setFrom(new User(captionObject.getJSONObject("from"), accessToken));
+			this.setFrom(new User(captionObject.getJSONObject("from"), accessToken, false));
 			this.setText(captionObject.getString("text"));
 			this.setCreatedTimestamp(captionObject.getString("created_time"));
 		}
+
+	    /**
+	     * Makes a new caption object from a JSONReader
+	     * @param reader reader positioned at the caption's json object
+	     * @throws JSONException
+	     */
+		public Caption(JSONReader reader) throws JSONException {
+			reader.beginObject();
+			while(reader.hasNext()) {
+				String name = reader.nextName();
+				if(reader.skipNull()) continue;
+				if(name.equals("id")) {
+					this.setId(reader.nextString());
+				} else if(name.equals("from")) {
+					this.setFrom(new User(reader, accessToken, false));
+				} else if(name.equals("text")) {
+					this.setText(reader.nextString());
+				} else if(name.equals("created_time")) {
+					this.setCreatedTimestamp(reader.nextString());
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
 		
 	    /**
 	     * Returns the text for this caption
@@ -742,6 +1085,16 @@ public class Media extends InstagramModel {
 		protected void setId(String id) {
 			this.id = id;
 		}		
+
+		void write(JSONWriter writer) throws JSONException {
+			writer.object()
+				.key("created_time").value(createdTimestamp)
+				.key("text").value(text)
+				.key("from");
+			writeModel(writer, from);
+			writer.key("id").value(id)
+				.endObject();
+		}
 		
 	    /**
 	     * Checks if two caption objects are equal
@@ -790,7 +1143,38 @@ public class Media extends InstagramModel {
 			JSONObject position = obj.getJSONObject("position");
 			this.setX(position.getDouble("x"));
 			this.setY(position.getDouble("y"));
-			this.setUser(new User(obj.getJSONObject("user"), accessToken));			
+			this.setUser(new User(obj.getJSONObject("user"), accessToken, false));			
+		}
+
+	    /**
+	     * Makes a new UserPhotoTag object from a JSONReader
+	     * @param reader reader positioned at the tag's json object
+	     * @throws JSONException
+	     */
+		public UserPhotoTag(JSONReader reader) throws JSONException {
+			reader.beginObject();
+			while(reader.hasNext()) {
+				String name = reader.nextName();
+				if(name.equals("user")) {
+					this.setUser(new User(reader, accessToken, false));
+				} else if(name.equals("position")) {
+					reader.beginObject();
+					while(reader.hasNext()) {
+						String axis = reader.nextName();
+						if(axis.equals("x")) {
+							this.setX(reader.nextDouble());
+						} else if(axis.equals("y")) {
+							this.setY(reader.nextDouble());
+						} else {
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
 		}
 		
 		public double getX() {
@@ -814,5 +1198,16 @@ public class Media extends InstagramModel {
 		private void setUser(User user) {
 			this.user = user;
 		}
+
+		void write(JSONWriter writer) throws JSONException {
+			writer.object()
+				.key("position").object()
+					.key("x").value(x)
+					.key("y").value(y)
+					.endObject()
+				.key("user");
+			writeModel(writer, user);
+			writer.endObject();
+		}
 	}
 }
@@ -1,6 +1,8 @@
 package com.sola.instagram.model;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONWriter;
 
 import com.sola.instagram.exception.InstagramException;
 
@@ -28,6 +30,36 @@ public class Relationship extends InstagramModel {
 		setIncomingStatus(obj.getString("incoming_status"));
 		this.targetUserIsPrivate = obj.getBoolean("target_user_is_private");
 	}
+
+	/**
+	 * Makes a new Relationship straight from a JSONReader positioned at the 
+	 * relationship's json object
+	 * @param reader reader positioned at the relationship object
+	 * @param accessToken API access token used for lazyloaded api requests
+	 * @throws JSONException
+	 */
+	public Relationship(JSONReader reader, String accessToken) throws JSONException {
+		super(accessToken);
+		beginObject(reader, true);
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+			if(reader.skipNull()) continue;
+			switch(name) {
+			case "outgoing_status":
+				setOutgoingStatus(reader.nextString());
+				break;
+			case "incoming_status":
+				setIncomingStatus(reader.nextString());
+				break;
+			case "target_user_is_private":
+				this.targetUserIsPrivate = reader.nextBoolean();
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		endObject(reader, true);
+	}
 	
 	public OutgoingStatus getOutgoingStatus() {
 		return outgoingStatus;
@@ -54,6 +86,15 @@ public class Relationship extends InstagramModel {
 		return this.targetUserIsPrivate;
 	}
 
+	@Override
+	protected void writeFields(JSONWriter writer) throws JSONException {
+		writer.key("outgoing_status").value(outgoingStatus == null 
+				? null : outgoingStatus.name().toLowerCase())
+			.key("incoming_status").value(incomingStatus == null 
+				? null : incomingStatus.name().toLowerCase())
+			.key("target_user_is_private").value(targetUserIsPrivate);
+	}
+
 	private void setIncomingStatus(String incomingStatus) {
 		if(incomingStatus.equals("followed_by")) {
 			this.incomingStatus = IncomingStatus.FOLLOWED_BY;
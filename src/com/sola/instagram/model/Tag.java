@@ -2,6 +2,8 @@ package com.sola.instagram.model;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONWriter;
 
 import com.sola.instagram.exception.InstagramException;
 
@@ -16,6 +18,33 @@ public class Tag extends InstagramModel {
 		setMediaCount(obj.getInt("media_count"));
 	}
 
+	/**
+	 * Makes a new Tag straight from a JSONReader positioned at the 
+	 * tag's json object
+	 * @param reader reader positioned at the tag object
+	 * @param accessToken API access token used for lazyloaded api requests
+	 * @throws JSONException
+	 */
+	public Tag(JSONReader reader, String accessToken) throws JSONException {
+		super(accessToken);
+		beginObject(reader, true);
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+			if(reader.skipNull()) continue;
+			switch(name) {
+			case "name":
+				setName(reader.nextString());
+				break;
+			case "media_count":
+				setMediaCount(reader.nextInt());
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		endObject(reader, true);
+	}
+
 	protected void setMediaCount(int mediaCount) {
 		this.mediaCount = mediaCount;
 	}
@@ -32,6 +61,12 @@ public class Tag extends InstagramModel {
 		return name;
 	}
 
+	@Override
+	protected void writeFields(JSONWriter writer) throws JSONException {
+		writer.key("media_count").value(mediaCount)
+			.key("name").value(name);
+	}
+
     /**
      * Checks if two tags objects are equal
      * @param o The object to be compared 
@@ -3,6 +3,8 @@ import java.util.HashMap;
 
 import org.json.JSONObject;
 import org.json.JSONException;	
+import org.json.JSONReader;
+import org.json.JSONWriter;
 
 import com.sola.instagram.exception.InstagramException;
 import com.sola.instagram.io.GetMethod;
@@ -15,14 +17,21 @@ public class User extends InstagramModel {
 	protected String userName;
 	protected String fullName;
 	protected String profilePictureURI;
-	protected String bio;
-	protected String website;
-	protected int mediaCount = -1;
-	protected int followerCount = -1;
-	protected int followingCount = -1;
+	protected volatile String bio;
+	protected volatile String website;
+	protected volatile int mediaCount = -1;
+	protected volatile int followerCount = -1;
+	protected volatile int followingCount = -1;
 
 	public User(JSONObject obj, String accessToken) throws JSONException {
-		super(obj, accessToken);
+		this(obj, accessToken, true);
+	}
+
+	/**
+	 * @param retain false for a user nested inside another model
+	 */
+	User(JSONObject obj, String accessToken, boolean retain) throws JSONException {
+		super(obj, accessToken, retain);
 		setId(obj.getInt("id"));
 		setUserName(obj.getString("username"));
 		setFullName(obj.getString("full_name"));
@@ -43,6 +52,70 @@ public class User extends InstagramModel {
 		}
 	}
 
+	/**
+	 * Makes a new User straight from a JSONReader positioned at the 
+	 * user's json object, skipping the fields that are not used
+	 * @param reader reader positioned at the user object
+	 * @param accessToken API access token used for lazyloaded api requests
+	 * @throws JSONException
+	 */
+	public User(JSONReader reader, String accessToken) throws JSONException {
+		this(reader, accessToken, true);
+	}
+
+	/**
+	 * @param retain false for a user nested inside another model
+	 */
+	User(JSONReader reader, String accessToken, boolean retain) throws JSONException {
+		super(accessToken);
+		setWebsite("");
+		setBio("");
+		beginObject(reader, retain);
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+			if(reader.skipNull()) continue;
+			switch(name) {
+			case "id":
+				setId(reader.nextInt());
+				break;
+			case "username":
+				setUserName(reader.nextString());
+				break;
+			case "full_name":
+				setFullName(reader.nextString());
+				break;
+			case "profile_picture":
+				setProfilePictureURI(reader.nextString());
+				break;
+			case "website":
+				setWebsite(reader.nextString());
+				break;
+			case "bio":
+				setBio(reader.nextString());
+				break;
+			case "counts":
+				reader.beginObject();
+				while(reader.hasNext()) {
+					String count = reader.nextName();
+					if(count.equals("followed_by")) {
+						setFollowerCount(reader.nextInt());
+					} else if(count.equals("follows")) {
+						setFollowingCount(reader.nextInt());
+					} else if(count.equals("media")) {
+						setMediaCount(reader.nextInt());
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+				break;
+			default:
+				reader.skipValue();
+			}
+		}
+		endObject(reader, retain);
+	}
+
 	public int getId() {
 		return id;
 	}
@@ -98,7 +171,7 @@ public class User extends InstagramModel {
 	}
 	
 	public int getMediaCount() throws Exception {
-		if(this.followingCount == -1) 
+		if(this.mediaCount == -1) 
 			refreshObject();
 		return mediaCount;
 	}
@@ -127,24 +200,83 @@ public class User extends InstagramModel {
 		this.followingCount = followingCount;
 	}
 	
-	private void refreshObject() throws Exception {
+	/**
+	 * Returns whether the counts of this user have been loaded. Users 
+	 * listed in feeds, comments and likes only carry their names and 
+	 * picture until their details are requested.
+	 * @return true if the counts are available without a request
+	 */
+	public boolean hasDetails() {
+		return mediaCount != -1 && followerCount != -1 && followingCount != -1;
+	}
+
+	/**
+	 * Copies the bio, website and counts of a fully loaded user with the
+	 * same id into this one
+	 * @param details the fully loaded user
+	 */
+	public synchronized void setDetails(User details) throws JSONException {
+		if(details.getId() != getId()) {
+			throw new IllegalArgumentException("User " + details.getId() 
+					+ " is not user " + getId());
+		}
+		setWebsite(details.website);
+		setBio(details.bio);
+		setFollowerCount(details.followerCount);
+		setFollowingCount(details.followingCount);
+		setMediaCount(details.mediaCount);
+	}
+
+	/**
+	 * Loads the user's details. Getters called while a refresh is running
+	 * wait for it instead of sending their own request, and refreshes of
+	 * other User objects with the same id share the same request through
+	 * the transport.
+	 */
+	private synchronized void refreshObject() throws Exception {
+		if(hasDetails()) {
+			return;
+		}
 		UriConstructor uriConstructor = new UriConstructor(getAccessToken());
 		HashMap<String, Object> map = new HashMap<String, Object>();
 		map.put("user_id", getId());
 		String uri = uriConstructor.constructUri(
 							UriFactory.Users.GET_DATA, map, true);
-		JSONObject userObject = (new GetMethod()
+		JSONObject userObject = (new GetMethod(getTransport())
 								.setMethodURI(uri)
 								).call().getJSON();
 		
 		if(userObject.has("data")) {
-			JSONObject counts = userObject.getJSONObject("data")
-								.getJSONObject("counts");
+			JSONObject data = userObject.getJSONObject("data");
+			JSONObject counts = data.getJSONObject("counts");
+			// the counts are set last, so a thread that sees them loaded
+			// also sees the bio and website
+			setWebsite(data.optString("website"));
+			setBio(data.optString("bio"));
 			setFollowerCount(counts.getInt("followed_by"));
 			setFollowingCount(counts.getInt("follows"));
-			setMediaCount(counts.getInt("media"));				
-			setWebsite(userObject.optString("website"));
-			setBio(userObject.optString("bio"));			
+			setMediaCount(counts.getInt("media"));
+		}
+	}
+	
+	@Override
+	protected void writeFields(JSONWriter writer) throws JSONException {
+		writer.key("id").value(String.valueOf(getId()))
+			.key("username").value(userName)
+			.key("full_name").value(fullName)
+			.key("profile_picture").value(profilePictureURI);
+		if(bio != null) {
+			writer.key("bio").value(bio);
+		}
+		if(website != null) {
+			writer.key("website").value(website);
+		}
+		if(hasDetails()) {
+			writer.key("counts").object()
+				.key("media").value(mediaCount)
+				.key("follows").value(followingCount)
+				.key("followed_by").value(followerCount)
+				.endObject();
 		}
 	}
 	
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONWriter;
 
 import com.sola.instagram.model.Media;
 
@@ -27,6 +28,21 @@ public class VideoMedia extends Media {
 	 	this.setStandardResolutionVideo(this.new Video(videos.getJSONObject("standard_resolution")));
 	}
 
+	/**
+	 * Makes a VideoMedia out of a media read by Media.fromJSON(JSONReader, String),
+	 * whose video versions were read as images
+	 * @param source the media read so far
+	 * @param lowResolution the low resolution version of the video
+	 * @param standardResolution the standard resolution version of the video
+	 */
+	protected VideoMedia(Media source, Media.Image lowResolution, Media.Image standardResolution) {
+		super(source);
+		if(lowResolution != null)
+			this.setLowResolutionVideo(this.new Video(lowResolution));
+		if(standardResolution != null)
+			this.setStandardResolutionVideo(this.new Video(standardResolution));
+	}
+
 	public Video getLowResolutionVideo() {
 		return lowResolutionVideo;
 	}
@@ -43,6 +59,21 @@ public class VideoMedia extends Media {
 		this.standardResolutionVideo = standardResolutionVideo;
 	}
 
+	@Override
+	protected void writeFields(JSONWriter writer) throws JSONException {
+		super.writeFields(writer);
+		writer.key("videos").object();
+		if(lowResolutionVideo != null) {
+			writer.key("low_resolution");
+			lowResolutionVideo.write(writer);
+		}
+		if(standardResolutionVideo != null) {
+			writer.key("standard_resolution");
+			standardResolutionVideo.write(writer);
+		}
+		writer.endObject();
+	}
+
 	/**
 	 * Object for a media video
 	 * with the JSON representation
@@ -82,6 +113,12 @@ public class VideoMedia extends Media {
 			this.setWidth(obj.getInt("width"));
 			this.setHeigth(obj.getInt("height"));
 		}
+
+		Video(Media.Image image) {
+			this.setUri(image.getUri());
+			this.setWidth(image.getWidth());
+			this.setHeigth(image.getHeigth());
+		}
 		
 	    /**
 	     * Returns the url link to this video
@@ -131,6 +168,14 @@ public class VideoMedia extends Media {
 			this.heigth = heigth;
 		}
 
+		void write(JSONWriter writer) throws JSONException {
+			writer.object()
+				.key("url").value(uri)
+				.key("width").value(width)
+				.key("height").value(heigth)
+				.endObject();
+		}
+
 	    /**
 	     * Checks if two video objects are equal
 	     * @param o The object to be compared 
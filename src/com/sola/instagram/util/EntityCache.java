@@ -0,0 +1,159 @@
+package com.sola.instagram.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of entities returned by the API. Entries expire once they
+ * are older than the cache's time to live, and the least recently used entry
+ * is evicted when the cache grows past its maximum size.
+ *
+ * Hits, misses and evictions are counted so callers can tell whether the
+ * cache's size and time to live fit their access pattern.
+ *
+ * Instances are thread-safe.
+ */
+public class EntityCache<K, V> {
+
+	int maxSize;
+	long timeToLive;
+	long hitCount;
+	long missCount;
+	long evictionCount;
+	final LinkedHashMap<K, Entry<V>> entries;
+
+	static class Entry<V> {
+		final V value;
+		final long expiresAt;
+
+		Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * Creates a cache
+	 *
+	 * @param maxSize
+	 *            maximum number of entries kept, 0 to disable the cache
+	 * @param timeToLive
+	 *            how long an entry is served after it was stored
+	 * @param unit
+	 *            unit of the time to live
+	 */
+	public EntityCache(int maxSize, long timeToLive, TimeUnit unit) {
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+		setMaxSize(maxSize);
+		setTimeToLive(timeToLive, unit);
+	}
+
+	/**
+	 * Returns the entry stored for the key passed, if it has not expired
+	 *
+	 * @param key
+	 *            key of the entity
+	 * @return The cached entity, or null on a miss
+	 */
+	public synchronized V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if(entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+			entries.remove(key);
+			entry = null;
+		}
+		if(entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return entry.value;
+	}
+
+	/**
+	 * Stores an entity, evicting the least recently used entries if the cache
+	 * is full
+	 *
+	 * @param key
+	 *            key of the entity
+	 * @param value
+	 *            the entity
+	 * @return The entity passed
+	 */
+	public synchronized V put(K key, V value) {
+		if(maxSize <= 0 || timeToLive <= 0) {
+			return value;
+		}
+		entries.put(key, new Entry<V>(value, System.nanoTime() + timeToLive));
+		trim();
+		return value;
+	}
+
+	/**
+	 * Removes the entry stored for the key passed
+	 */
+	public synchronized void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * Removes every entry
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized EntityCache<K, V> setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		trim();
+		return this;
+	}
+
+	public synchronized long getTimeToLive(TimeUnit unit) {
+		return unit.convert(timeToLive, TimeUnit.NANOSECONDS);
+	}
+
+	public synchronized EntityCache<K, V> setTimeToLive(long timeToLive, TimeUnit unit) {
+		this.timeToLive = unit.toNanos(timeToLive);
+		return this;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the fraction of lookups that were served from the cache
+	 * @return The hit rate, 0 if the cache has not been looked up
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hitCount + missCount;
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	private void trim() {
+		Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+		while(entries.size() > Math.max(maxSize, 0) && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+			evictionCount++;
+		}
+	}
+}
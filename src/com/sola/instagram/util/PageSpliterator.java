@@ -0,0 +1,194 @@
+package com.sola.instagram.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Spliterator over the pages of a paginated endpoint. Pages are requested
+ * one at a time and only when the stream asks for more elements, so 
+ * short-circuiting operations such as limit() or anyMatch() stop fetching
+ * as soon as they are satisfied.
+ * 
+ * Pages are always fetched in order by whichever thread holds this
+ * spliterator. When split, a whole page is handed off and its items are 
+ * converted by the thread that processes it, so a parallel stream converts
+ * the items of a page on several cores at once. Only a bounded number of 
+ * pages are fetched to be split off; after that, trySplit() returns null
+ * and the remaining pages are fetched one at a time as the stream consumes
+ * them, so a parallel stream does not load every page up front.
+ * 
+ * Iterators that only override handleLoad(JSONArray) cannot convert single
+ * items; their pages are converted whole, by the thread that fetches them.
+ */
+public class PageSpliterator<E> implements Spliterator<E> {
+
+	protected PaginationIterator<E> pages;
+	protected List<E> loaded;
+	protected int loadedIndex = 0;
+	protected String nextUri;
+	protected JSONArray page;
+	protected int pageIndex = 0;
+
+	/**
+	 * Maximum number of pages trySplit() fetches to hand off
+	 */
+	protected int splitLimit;
+
+	/**
+	 * Number of pages trySplit() has fetched so far
+	 */
+	protected int splitPages = 0;
+
+	/**
+	 * Whether pages are converted whole by the iterator's handleLoad()
+	 */
+	protected boolean wholePages;
+
+	/**
+	 * Creates a spliterator that starts with the elements the iterator has
+	 * already loaded and then follows its pagination. The iterator's own 
+	 * position is left untouched. Up to one page per thread of the common
+	 * pool is fetched by trySplit().
+	 * @param pages iterator whose pagination is followed
+	 * @throws IllegalStateException if the iterator is in streaming mode and
+	 * has already released some of its items
+	 */
+	public PageSpliterator(PaginationIterator<E> pages) {
+		this(pages, Math.max(1, ForkJoinPool.getCommonPoolParallelism()));
+	}
+
+	/**
+	 * Creates a spliterator that starts with the elements the iterator has
+	 * already loaded and then follows its pagination
+	 * @param pages iterator whose pagination is followed
+	 * @param splitLimit maximum number of pages fetched by trySplit()
+	 * @throws IllegalStateException if the iterator is in streaming mode and
+	 * has already released some of its items
+	 */
+	public PageSpliterator(PaginationIterator<E> pages, int splitLimit) {
+		if(pages.released > 0) {
+			throw new IllegalStateException("A streaming collection can "
+					+ "only be iterated once");
+		}
+		this.pages = pages;
+		this.loaded = new ArrayList<E>(pages.list);
+		this.nextUri = pages.nextUri;
+		this.splitLimit = splitLimit;
+		this.wholePages = pages.loadsWholePages();
+	}
+
+	public boolean tryAdvance(Consumer<? super E> action) {
+		while(exhausted()) {
+			if(!fetchPage()) return false;
+		}
+		if(loadedIndex < loaded.size()) {
+			action.accept(loaded.get(loadedIndex++));
+		} else {
+			action.accept(convert(pages, page, pageIndex++));
+		}
+		return true;
+	}
+
+	public Spliterator<E> trySplit() {
+		if(exhausted()) {
+			if(splitPages >= splitLimit || !fetchPage()) return null;
+			splitPages++;
+		}
+		if(loadedIndex < loaded.size()) {
+			List<E> rest = loaded.subList(loadedIndex, loaded.size());
+			loadedIndex = loaded.size();
+			return Spliterators.spliterator(rest, ORDERED | NONNULL);
+		}
+		Spliterator<E> split = new Page<E>(pages, page, pageIndex, page.length());
+		page = null;
+		return split;
+	}
+
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	private boolean exhausted() {
+		return loadedIndex >= loaded.size() 
+				&& (page == null || pageIndex >= page.length());
+	}
+
+	protected boolean fetchPage() {
+		if(nextUri == null || nextUri.equals("")) return false;
+		try {
+			JSONObject object = pages.load(nextUri);
+			JSONObject pagination = object.optJSONObject("pagination");
+			nextUri = pagination == null ? null : pagination.optString("next_url");
+			page = object.optJSONArray("data");
+			if(page == null) page = new JSONArray();
+			pageIndex = 0;
+			if(wholePages) {
+				loaded = pages.convertPage(page);
+				loadedIndex = 0;
+				page = null;
+			}
+			return true;
+		} catch (Exception e) {
+			throw new RuntimeException("Could not load page " + nextUri, e);
+		}
+	}
+
+	static <E> E convert(PaginationIterator<E> pages, JSONArray page, int index) {
+		try {
+			return pages.convert(page.getJSONObject(index));
+		} catch (Exception e) {
+			throw new RuntimeException("Could not convert item " + index, e);
+		}
+	}
+
+	/**
+	 * Items of a single page that has already been fetched. Splits in 
+	 * halves so the conversion of one page can be shared between threads.
+	 */
+	static class Page<E> implements Spliterator<E> {
+		PaginationIterator<E> pages;
+		JSONArray page;
+		int index;
+		int end;
+
+		Page(PaginationIterator<E> pages, JSONArray page, int index, int end) {
+			this.pages = pages;
+			this.page = page;
+			this.index = index;
+			this.end = end;
+		}
+
+		public boolean tryAdvance(Consumer<? super E> action) {
+			if(index >= end) return false;
+			action.accept(convert(pages, page, index++));
+			return true;
+		}
+
+		public Spliterator<E> trySplit() {
+			int middle = (index + end) >>> 1;
+			if(middle <= index) return null;
+			Spliterator<E> prefix = new Page<E>(pages, page, index, middle);
+			index = middle;
+			return prefix;
+		}
+
+		public long estimateSize() {
+			return end - index;
+		}
+
+		public int characteristics() {
+			return ORDERED | NONNULL | SIZED | SUBSIZED;
+		}
+	}
+}
@@ -2,6 +2,8 @@ package com.sola.instagram.util;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class PaginatedCollection<E> implements Iterable<E>{
 	ArrayList<E> list;
@@ -16,11 +18,56 @@ public class PaginatedCollection<E> implements Iterable<E>{
         return iterator.reset();
     }
 
+    /**
+     * Returns a lazy stream over this collection. The stream starts with
+     * the items loaded so far and requests further pages only as they are
+     * needed. Pages fetched by the stream are not added to the collection.
+     * A streaming collection cannot be streamed once it has released items.
+     * @return A sequential stream over the collection
+     */
+    public Stream<E> stream() {
+        return StreamSupport.stream(new PageSpliterator<E>(iterator), false);
+    }
+
+    /**
+     * Returns a lazy parallel stream over this collection. Pages are still
+     * fetched in order, but the items of each page are converted on 
+     * several threads. Only the first few pages are fetched ahead to be
+     * split between threads; later pages are fetched as they are needed.
+     * A streaming collection cannot be streamed once it has released items.
+     * @return A parallel stream over the collection
+     */
+    public Stream<E> parallelStream() {
+        return StreamSupport.stream(new PageSpliterator<E>(iterator), true);
+    }
+
+    /**
+     * Switches this collection to streaming mode, where only the given
+     * number of pages are held in memory and pages that have been iterated
+     * over are released. A streaming collection can only be iterated once,
+     * and size() and get(int) are not available.
+     * @param pages number of pages to keep in memory
+     * @return This collection
+     */
+    public PaginatedCollection<E> setPageWindow(int pages) {
+        iterator.setPageWindow(pages);
+        return this;
+    }
+
     public int size() {        
+        checkNotStreaming();
         return list.size();
     }
     
     public E get(int index) {        
+        checkNotStreaming();
         return list.get(index);
     }    
+
+    private void checkNotStreaming() {
+        if(iterator.isStreaming()) {
+            throw new UnsupportedOperationException("size() and get(int) "
+                    + "are not available on a streaming collection");
+        }
+    }
 }
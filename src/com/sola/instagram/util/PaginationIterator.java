@@ -1,22 +1,77 @@
 package com.sola.instagram.util;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.sola.instagram.io.GetMethod;
+import com.sola.instagram.io.HttpTransport;
 
 public class PaginationIterator<E> implements Iterator<E> {
 	protected String nextUri; 
 	protected ArrayList<E> list;
 	protected int index = 0;
+	protected HttpTransport transport;
+
+	/**
+	 * Index in the list where the most recently loaded page starts
+	 */
+	protected int pageStart = 0;
+
+	/**
+	 * Fraction of the most recent page the consumer has to pass before
+	 * the following pages are requested in the background
+	 */
+	protected float prefetchThreshold;
+
+	/**
+	 * Number of pages to keep loading ahead of the consumer, 0 if 
+	 * prefetching is disabled
+	 */
+	protected int prefetchDepth = 0;
+	protected Executor prefetchExecutor;
+
+	/**
+	 * Maximum number of consumed pages kept in the list, 0 if every 
+	 * page is kept
+	 */
+	protected int pageWindow = 0;
+
+	/**
+	 * Sizes of the pages currently held in the list, oldest first
+	 */
+	protected ArrayDeque<Integer> pageSizes = new ArrayDeque<Integer>();
+
+	/**
+	 * Number of items dropped from the front of the list
+	 */
+	protected long released = 0;
+
+	/**
+	 * Pages requested in the background, in pagination order. A page 
+	 * completes with null when pagination ended before it.
+	 */
+	protected LinkedList<CompletableFuture<JSONObject>> prefetched = 
+			new LinkedList<CompletableFuture<JSONObject>>();
 	
 	public PaginationIterator(ArrayList<E> list, String nextUri) throws Exception {
+		this(list, nextUri, HttpTransport.getDefault());
+	}
+
+	public PaginationIterator(ArrayList<E> list, String nextUri, HttpTransport transport) throws Exception {
 		this.list = list;
 		this.nextUri = nextUri;
+		this.transport = transport;
 		if(list.size() == 0) fetch();
 	}
 
@@ -34,7 +89,15 @@ public class PaginationIterator<E> implements Iterator<E> {
 				e.printStackTrace();
 			}
 		} 
-		return list.get(index++);
+		E item = list.get(index++);
+		// the page is only finished once its last item has been taken, 
+		// after the page that follows it was fetched
+		if(pageWindow > 0) releaseConsumedPages();
+		if(prefetchDepth > 0 && 
+				index - pageStart >= prefetchThreshold * (list.size() - pageStart)) {
+			prefetch();
+		}
+		return item;
 	}
 
 	public void remove() {
@@ -43,15 +106,184 @@ public class PaginationIterator<E> implements Iterator<E> {
 
 	public void fetch() throws Exception {
 		if(paginationComplete()) return;
-		JSONObject object = (new GetMethod().setMethodURI(nextUri))
-				.call().getJSON();
-		JSONObject pagination = object.optJSONObject("pagination");
-		nextUri = pagination == null ? null : pagination.optString("next_url");		
+		JSONObject object;
+		if(prefetched.isEmpty()) {
+			object = load(nextUri);
+		} else {
+			try {
+				object = prefetched.removeFirst().get();
+			} catch (ExecutionException e) {
+				prefetched.clear();
+				throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+			}
+			if(object == null) {
+				nextUri = null;
+				return;
+			}
+		}
+		nextUri = nextUriOf(object);
+		pageStart = list.size();
 		handleLoad(object.optJSONArray("data"));
+		pageSizes.addLast(list.size() - pageStart);
+		if(pageWindow > 0) releaseConsumedPages();
+	}
+
+	/**
+	 * Switches this iterator to streaming mode, where only the most recent
+	 * pages are kept in the list and pages the consumer is done with are
+	 * released. The list can then no longer be indexed from the start of
+	 * the collection, and iteration cannot be restarted once a page has 
+	 * been released.
+	 * 
+	 * @param pages number of pages to keep, 0 to keep every page
+	 * @return This iterator
+	 */
+	public PaginationIterator<E> setPageWindow(int pages) {
+		if(pages < 0) {
+			throw new IllegalArgumentException("Page window cannot be negative");
+		}
+		this.pageWindow = pages;
+		if(pageWindow > 0) releaseConsumedPages();
+		return this;
+	}
+
+	public boolean isStreaming() {
+		return pageWindow > 0;
+	}
+
+	protected void releaseConsumedPages() {
+		int drop = 0;
+		while(pageSizes.size() > pageWindow 
+				&& drop + pageSizes.peekFirst() <= index) {
+			drop += pageSizes.removeFirst();
+		}
+		if(drop > 0) {
+			list.subList(0, drop).clear();
+			index -= drop;
+			pageStart -= drop;
+			released += drop;
+		}
+	}
+
+	/**
+	 * Enables background loading of the pages that follow. Once the consumer
+	 * has passed the given fraction of the most recently loaded page, up to
+	 * depth pages are requested ahead of it on the executor passed, so
+	 * network time overlaps with the consumer's processing.
+	 * 
+	 * @param threshold fraction of the current page, between 0 and 1, after
+	 * 			which the following pages are requested
+	 * @param depth number of pages to load ahead, 0 to disable prefetching
+	 * @param executor executor the page requests are run on
+	 * @return This iterator
+	 */
+	public PaginationIterator<E> setPrefetch(float threshold, int depth, Executor executor) {
+		if(threshold < 0 || threshold > 1) {
+			throw new IllegalArgumentException("Prefetch threshold must be between 0 and 1");
+		}
+		if(depth < 0) {
+			throw new IllegalArgumentException("Prefetch depth cannot be negative");
+		}
+		this.prefetchThreshold = threshold;
+		this.prefetchDepth = depth;
+		this.prefetchExecutor = executor;
+		return this;
+	}
+
+	protected void prefetch() {
+		if(paginationComplete()) return;
+		while(prefetched.size() < prefetchDepth) {
+			CompletableFuture<JSONObject> page;
+			if(prefetched.isEmpty()) {
+				final String uri = nextUri;
+				page = CompletableFuture.supplyAsync(() -> loadUnchecked(uri), 
+						prefetchExecutor);
+			} else {
+				page = prefetched.getLast().thenApplyAsync(previous -> {
+					if(previous == null) return null;
+					String uri = nextUriOf(previous);
+					return uri == null || uri.equals("") ? null : loadUnchecked(uri);
+				}, prefetchExecutor);
+			}
+			prefetched.add(page);
+		}
+	}
+
+	protected JSONObject load(String uri) throws Exception {
+		return (new GetMethod(transport).setMethodURI(uri)).call().getJSON();
+	}
+
+	private JSONObject loadUnchecked(String uri) {
+		try {
+			return load(uri);
+		} catch (Exception e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	private static String nextUriOf(JSONObject object) {
+		JSONObject pagination = object.optJSONObject("pagination");
+		return pagination == null ? null : pagination.optString("next_url");
 	}
 
+	/**
+	 * Adds the items of a page's data array to the list, converting each
+	 * with convert(JSONObject)
+	 * @param data the page's data array
+	 */
 	public void handleLoad(JSONArray data) throws JSONException {
-		
+		for(int i = 0; i < data.length(); i++) {
+			list.add(convert(data.getJSONObject(i)));
+		}
+	}
+
+	/**
+	 * Converts one item of a page's data array into an element of the
+	 * collection. Conversions may run on several threads at once when the
+	 * collection is consumed as a parallel stream. By default the item's
+	 * json object is the element itself.
+	 * @param item json object of the item
+	 * @return The element for the item
+	 */
+	@SuppressWarnings("unchecked")
+	protected E convert(JSONObject item) throws JSONException {
+		return (E) item;
+	}
+
+	/**
+	 * Returns whether this iterator overrides handleLoad(JSONArray) but not 
+	 * convert(JSONObject), in which case only whole pages can be converted
+	 */
+	boolean loadsWholePages() {
+		return overrides("handleLoad", JSONArray.class) 
+				&& !overrides("convert", JSONObject.class);
+	}
+
+	private boolean overrides(String name, Class<?> parameter) {
+		for(Class<?> c = getClass(); c != PaginationIterator.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(name, parameter);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// declared further up, if at all
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Converts a whole page with handleLoad(JSONArray), then takes the 
+	 * items it added back out of the list, leaving the list as it was
+	 * @param data the page's data array
+	 * @return The elements of the page
+	 */
+	List<E> convertPage(JSONArray data) throws JSONException {
+		int start = list.size();
+		handleLoad(data);
+		List<E> added = list.subList(start, list.size());
+		List<E> items = new ArrayList<E>(added);
+		added.clear();
+		return items;
 	}
 
 	public boolean paginationComplete() {
@@ -59,6 +291,10 @@ public class PaginationIterator<E> implements Iterator<E> {
 	}
 	
 	public PaginationIterator<E> reset() {
+		if(released > 0) {
+			throw new IllegalStateException("A streaming collection can "
+					+ "only be iterated once");
+		}
 		this.index = 0;
 		return this;
 	}
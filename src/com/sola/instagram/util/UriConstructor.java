@@ -1,6 +1,7 @@
 package com.sola.instagram.util;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class UriConstructor {
@@ -23,16 +24,31 @@ public class UriConstructor {
 		this.accessToken = accessToken;
 	}
 	
-	public String constructUri(String uri, HashMap<String, Object> map, boolean addAccessToken) {
-		try{
-			for (Map.Entry<String, Object> arg : map.entrySet()) {
-				uri = uri.replaceAll("\\{"+arg.getKey()+"\\}", arg.getValue().toString());
-			}
-		}
-		catch(NullPointerException e) {}
+	public String constructUri(String uri, Map<String, ?> map, boolean addAccessToken) {
+		return constructUri(uri, map, null, addAccessToken);
+	}
+
+	/**
+	 * Expands one of the UriFactory templates
+	 * @param uri the template
+	 * @param map value of each placeholder in the template. Can be null.
+	 * @param query query parameters to be appended after the access token.
+	 * Parameters with null values are left out. Can be null.
+	 * @param addAccessToken whether to add the access_token parameter
+	 * @return The expanded, percent-encoded URI
+	 */
+	public String constructUri(String uri, Map<String, ?> map, Map<String, ?> query, 
+			boolean addAccessToken) {
 		if(addAccessToken) {
-			uri += "?access_token=" + getAccessToken();
+			if(query == null || query.isEmpty()) {
+				query = Collections.singletonMap("access_token", getAccessToken());
+			} else {
+				LinkedHashMap<String, Object> parameters = new LinkedHashMap<String, Object>();
+				parameters.put("access_token", getAccessToken());
+				parameters.putAll(query);
+				query = parameters;
+			}
 		}
-		return uri;
+		return UriTemplate.compile(uri).expand(map, query);
 	}
 }
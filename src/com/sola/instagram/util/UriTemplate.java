@@ -0,0 +1,186 @@
+package com.sola.instagram.util;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A URI with {placeholders}, such as the constants of UriFactory. The
+ * template is split once into literal and placeholder segments; expanding it
+ * fills the placeholders and appends the query parameters in a single pass
+ * over one pre-sized builder. Every value is percent-encoded as UTF-8, 
+ * leaving only the unreserved characters of RFC 3986 as they are.
+ *
+ * Templates are immutable and thread-safe. compile() caches them, so each
+ * UriFactory constant is only parsed the first time it is used.
+ */
+public class UriTemplate {
+
+	private static final ConcurrentHashMap<String, UriTemplate> templates =
+			new ConcurrentHashMap<String, UriTemplate>();
+
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * Room reserved for each placeholder and query parameter when sizing
+	 * the builder
+	 */
+	private static final int VALUE_LENGTH_HINT = 24;
+
+	final String template;
+	final String[] literals;
+	final String[] names;
+	final int literalLength;
+	final boolean hasQuery;
+
+	/**
+	 * Parses a template. Use compile() to share parsed templates.
+	 * @param template the template, such as "/users/{user_id}/media/recent"
+	 */
+	public UriTemplate(String template) {
+		this.template = template;
+		ArrayList<String> literals = new ArrayList<String>();
+		ArrayList<String> names = new ArrayList<String>();
+		int length = 0;
+		int start = 0;
+		for(;;) {
+			int open = template.indexOf('{', start);
+			int close = open < 0 ? -1 : template.indexOf('}', open);
+			if(close < 0) {
+				break;
+			}
+			literals.add(template.substring(start, open));
+			names.add(template.substring(open + 1, close));
+			length += open - start;
+			start = close + 1;
+		}
+		literals.add(template.substring(start));
+		length += template.length() - start;
+		this.literals = literals.toArray(new String[literals.size()]);
+		this.names = names.toArray(new String[names.size()]);
+		this.literalLength = length;
+		this.hasQuery = template.indexOf('?') >= 0;
+	}
+
+	/**
+	 * Returns the parsed template for the string passed, parsing it only
+	 * the first time it is seen
+	 * @param template the template
+	 * @return The parsed template
+	 */
+	public static UriTemplate compile(String template) {
+		UriTemplate compiled = templates.get(template);
+		if(compiled == null) {
+			compiled = new UriTemplate(template);
+			UriTemplate previous = templates.putIfAbsent(template, compiled);
+			if(previous != null) {
+				compiled = previous;
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Returns the names of the template's placeholders, in order
+	 * @return The placeholder names
+	 */
+	public String[] getNames() {
+		return names.clone();
+	}
+
+	/**
+	 * Fills the placeholders
+	 * @param values value of each placeholder
+	 * @return The expanded URI
+	 */
+	public String expand(Map<String, ?> values) {
+		return expand(values, null);
+	}
+
+	/**
+	 * Fills the placeholders and appends query parameters. Parameters whose 
+	 * value is null are left out.
+	 * @param values value of each placeholder, can be null if the template 
+	 * has none
+	 * @param query query parameters, in the order they should appear. Can
+	 * be null.
+	 * @return The expanded URI
+	 * @throws IllegalArgumentException if a placeholder has no value
+	 */
+	public String expand(Map<String, ?> values, Map<String, ?> query) {
+		int querySize = query == null ? 0 : query.size();
+		StringBuilder sb = new StringBuilder(literalLength
+				+ (names.length + querySize) * VALUE_LENGTH_HINT);
+		for(int i = 0; i < names.length; i++) {
+			sb.append(literals[i]);
+			Object value = values == null ? null : values.get(names[i]);
+			if(value == null) {
+				throw new IllegalArgumentException("No value for {" + names[i]
+						+ "} in " + template);
+			}
+			appendEncoded(sb, value.toString());
+		}
+		sb.append(literals[names.length]);
+		if(querySize > 0) {
+			boolean first = !hasQuery;
+			for(Map.Entry<String, ?> parameter : query.entrySet()) {
+				if(parameter.getValue() == null) {
+					continue;
+				}
+				sb.append(first ? '?' : '&');
+				appendEncoded(sb, parameter.getKey());
+				sb.append('=');
+				appendEncoded(sb, parameter.getValue().toString());
+				first = false;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Appends a value with every character other than the unreserved ones
+	 * (letters, digits, '-', '.', '_' and '~') percent-encoded as UTF-8
+	 * @param sb the builder to append to
+	 * @param value the value to be encoded
+	 */
+	public static void appendEncoded(StringBuilder sb, String value) {
+		int length = value.length();
+		for(int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if(isUnreserved(c)) {
+				sb.append(c);
+			} else if(c < 0x80) {
+				appendEscaped(sb, c);
+			} else {
+				int end = i + 1;
+				while(end < length && !isUnreserved(value.charAt(end))
+						&& value.charAt(end) >= 0x80) {
+					end++;
+				}
+				try {
+					for(byte b : value.substring(i, end).getBytes("UTF-8")) {
+						appendEscaped(sb, b & 0xFF);
+					}
+				} catch(UnsupportedEncodingException e) {
+					throw new IllegalStateException(e);
+				}
+				i = end - 1;
+			}
+		}
+	}
+
+	private static boolean isUnreserved(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+				|| (c >= '0' && c <= '9') || c == '-' || c == '.'
+				|| c == '_' || c == '~';
+	}
+
+	private static void appendEscaped(StringBuilder sb, int b) {
+		sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
+	}
+
+	public String toString() {
+		return template;
+	}
+}
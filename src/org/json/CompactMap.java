@@ -0,0 +1,328 @@
+package org.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The map where a JSONObject keeps its properties. Most objects in API
+ * responses have only a handful of keys, so keys and values are kept side
+ * by side in one array, in insertion order, and found by a linear scan.
+ * Once an object has more than LINEAR_SCAN_LIMIT keys, an open-addressing
+ * table of positions in that array is added so lookups stay constant time.
+ * Iteration always follows insertion order.
+ */
+class CompactMap extends AbstractMap<String, Object> {
+
+    /**
+     * The number of keys up to which lookups scan the entries.
+     */
+    static final int LINEAR_SCAN_LIMIT = 8;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * Keys at even and values at odd indexes, in insertion order.
+     */
+    private Object[] entries;
+
+    /**
+     * Open-addressing table holding the position of each key plus one,
+     * or 0 for a free slot. Null while the map is small.
+     */
+    private int[] index;
+
+    private int size;
+
+
+    /**
+     * Construct an empty map.
+     */
+    CompactMap() {
+        this.entries = EMPTY;
+    }
+
+
+    /**
+     * Construct an empty map with room for a number of keys.
+     * @param capacity The number of keys expected.
+     */
+    CompactMap(int capacity) {
+        this.entries = capacity > 0 ? new Object[capacity << 1] : EMPTY;
+    }
+
+
+    public int size() {
+        return this.size;
+    }
+
+
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+
+    public Object get(Object key) {
+        int position = find(key);
+        return position < 0 ? null : this.entries[(position << 1) + 1];
+    }
+
+
+    public Object put(String key, Object value) {
+        if (key == null) {
+            throw new NullPointerException("Null key.");
+        }
+        int position = find(key);
+        if (position >= 0) {
+            Object old = this.entries[(position << 1) + 1];
+            this.entries[(position << 1) + 1] = value;
+            return old;
+        }
+        if ((this.size << 1) == this.entries.length) {
+            this.entries = Arrays.copyOf(this.entries,
+                    this.entries.length == 0 ? 8 : this.entries.length << 1);
+        }
+        position = this.size++;
+        this.entries[position << 1] = key;
+        this.entries[(position << 1) + 1] = value;
+        if (this.index != null && this.size <= this.index.length >> 1) {
+            insert(position);
+        } else if (this.size > LINEAR_SCAN_LIMIT) {
+            reindex();
+        }
+        return null;
+    }
+
+
+    public Object remove(Object key) {
+        int position = find(key);
+        if (position < 0) {
+            return null;
+        }
+        Object old = this.entries[(position << 1) + 1];
+        removeAt(position);
+        return old;
+    }
+
+
+    public void clear() {
+        Arrays.fill(this.entries, 0, this.size << 1, null);
+        this.size = 0;
+        this.index = null;
+    }
+
+
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            public int size() {
+                return CompactMap.this.size;
+            }
+
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            public boolean remove(Object o) {
+                int position = find(o);
+                if (position < 0) {
+                    return false;
+                }
+                removeAt(position);
+                return true;
+            }
+
+            public Iterator<String> iterator() {
+                return new Cursor<String>() {
+                    String at(int position) {
+                        return (String)entries[position << 1];
+                    }
+                };
+            }
+        };
+    }
+
+
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            public int size() {
+                return CompactMap.this.size;
+            }
+
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Cursor<Map.Entry<String, Object>>() {
+                    Map.Entry<String, Object> at(int position) {
+                        return new Entry(position);
+                    }
+                };
+            }
+        };
+    }
+
+
+    /**
+     * Find the position of a key.
+     * @param key The key.
+     * @return Its position, or -1 if the map does not contain it.
+     */
+    private int find(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        Object[] entries = this.entries;
+        if (this.index == null) {
+            for (int i = 0; i < this.size; i++) {
+                Object k = entries[i << 1];
+                if (k == key || k.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = this.index.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int position = this.index[slot] - 1;
+            if (position < 0) {
+                return -1;
+            }
+            Object k = entries[position << 1];
+            if (k == key || k.equals(key)) {
+                return position;
+            }
+        }
+    }
+
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+
+    /**
+     * Add the key at a position to the index.
+     */
+    private void insert(int position) {
+        int mask = this.index.length - 1;
+        int slot = hash(this.entries[position << 1]) & mask;
+        while (this.index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        this.index[slot] = position + 1;
+    }
+
+
+    /**
+     * Rebuild the index so that it is at most half full, or drop it once
+     * the map is small enough to be scanned.
+     */
+    private void reindex() {
+        if (this.size <= LINEAR_SCAN_LIMIT) {
+            this.index = null;
+            return;
+        }
+        this.index = new int[Integer.highestOneBit(this.size) << 2];
+        for (int i = 0; i < this.size; i++) {
+            insert(i);
+        }
+    }
+
+
+    /**
+     * Remove the entry at a position, keeping the others in order.
+     */
+    private void removeAt(int position) {
+        int moved = this.size - position - 1;
+        if (moved > 0) {
+            System.arraycopy(this.entries, (position + 1) << 1,
+                    this.entries, position << 1, moved << 1);
+        }
+        this.size -= 1;
+        this.entries[this.size << 1] = null;
+        this.entries[(this.size << 1) + 1] = null;
+        if (this.index != null) {
+            reindex();
+        }
+    }
+
+
+    /**
+     * Iterates over positions in insertion order, and can remove the
+     * entry it last returned.
+     */
+    private abstract class Cursor<E> implements Iterator<E> {
+        private int next;
+        private int last = -1;
+
+        abstract E at(int position);
+
+        public boolean hasNext() {
+            return this.next < size;
+        }
+
+        public E next() {
+            if (this.next >= size) {
+                throw new NoSuchElementException();
+            }
+            this.last = this.next++;
+            return at(this.last);
+        }
+
+        public void remove() {
+            if (this.last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(this.last);
+            this.next = this.last;
+            this.last = -1;
+        }
+    }
+
+
+    /**
+     * An entry that reads and writes through to its position.
+     */
+    private class Entry implements Map.Entry<String, Object> {
+        private final int position;
+
+        Entry(int position) {
+            this.position = position;
+        }
+
+        public String getKey() {
+            return (String)entries[this.position << 1];
+        }
+
+        public Object getValue() {
+            return entries[(this.position << 1) + 1];
+        }
+
+        public Object setValue(Object value) {
+            Object old = entries[(this.position << 1) + 1];
+            entries[(this.position << 1) + 1] = value;
+            return old;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+            Object value = getValue();
+            return getKey().equals(e.getKey()) && (value == null
+                    ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
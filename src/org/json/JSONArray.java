@@ -29,6 +29,7 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -56,6 +57,14 @@ import java.util.Map;
  * <code>get</code> and <code>opt</code> methods that do type checking and type
  * coercion for you.
  * <p>
+ * An array whose values are all Integers, all Longs or all Doubles is kept
+ * in an <code>int[]</code>, <code>long[]</code> or <code>double[]</code>
+ * instead of a list of boxed values. It switches to a list the first time a
+ * value of another type is put. <code>get()</code> returns the same boxed
+ * type either way, and the typed <code>get</code> methods and
+ * <code>toIntArray()</code>, <code>toLongArray()</code> and
+ * <code>toDoubleArray()</code> read primitive arrays without boxing.
+ * <p>
  * The texts produced by the <code>toString</code> methods strictly conform to
  * JSON syntax rules. The constructors are more forgiving in the texts they will
  * accept:
@@ -82,17 +91,41 @@ import java.util.Map;
 public class JSONArray {
 
 
+    private static final int EMPTY = 0;
+    private static final int OBJECTS = 1;
+    private static final int INTS = 2;
+    private static final int LONGS = 3;
+    private static final int DOUBLES = 4;
+
+
     /**
-     * The arrayList where the JSONArray's properties are kept.
+     * The arrayList where the JSONArray's properties are kept, or null
+     * while they are kept in a primitive array.
      */
-    private final ArrayList myArrayList;
+    private ArrayList myArrayList;
+
+    /**
+     * How the values are kept: EMPTY until the first value is put, then
+     * OBJECTS in myArrayList, or INTS, LONGS or DOUBLES in the matching
+     * primitive array.
+     */
+    private int kind;
+
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+
+    /**
+     * The number of values held in the primitive array.
+     */
+    private int count;
 
 
     /**
      * Construct an empty JSONArray.
      */
     public JSONArray() {
-        this.myArrayList = new ArrayList();
+        this.kind = EMPTY;
     }
 
     /**
@@ -110,10 +143,10 @@ public class JSONArray {
             for (;;) {
                 if (x.nextClean() == ',') {
                     x.back();
-                    this.myArrayList.add(JSONObject.NULL);
+                    this.add(JSONObject.NULL);
                 } else {
                     x.back();
-                    this.myArrayList.add(x.nextValue());
+                    this.add(x.nextValue());
                 }
                 switch (x.nextClean()) {
                 case ';':
@@ -150,16 +183,56 @@ public class JSONArray {
      * @param collection     A Collection.
      */
     public JSONArray(Collection collection) {
-        this.myArrayList = new ArrayList();
+        this();
         if (collection != null) {
             Iterator iter = collection.iterator();
             while (iter.hasNext()) {
-                this.myArrayList.add(JSONObject.wrap(iter.next()));
+                this.add(JSONObject.wrap(iter.next()));
             }
         }
     }
 
 
+    /**
+     * Construct a JSONArray that holds a copy of an int array.
+     * @param values An int array.
+     */
+    public JSONArray(int[] values) {
+        this.kind = INTS;
+        this.ints = values.clone();
+        this.count = values.length;
+    }
+
+
+    /**
+     * Construct a JSONArray that holds a copy of a long array.
+     * @param values A long array.
+     */
+    public JSONArray(long[] values) {
+        this.kind = LONGS;
+        this.longs = values.clone();
+        this.count = values.length;
+    }
+
+
+    /**
+     * Construct a JSONArray that holds a copy of a double array.
+     * @param values A double array.
+     * @throws JSONException If a value is not finite.
+     */
+    public JSONArray(double[] values) throws JSONException {
+        for (int i = 0; i < values.length; i += 1) {
+            if (Double.isInfinite(values[i]) || Double.isNaN(values[i])) {
+                throw new JSONException(
+                    "JSON does not allow non-finite numbers.");
+            }
+        }
+        this.kind = DOUBLES;
+        this.doubles = values.clone();
+        this.count = values.length;
+    }
+
+
     /**
      * Construct a JSONArray from an array
      * @throws JSONException If not an array.
@@ -227,6 +300,16 @@ public class JSONArray {
      *  be converted to a number.
      */
     public double getDouble(int index) throws JSONException {
+        if (index >= 0 && index < this.count) {
+            switch (this.kind) {
+            case INTS:
+                return this.ints[index];
+            case LONGS:
+                return this.longs[index];
+            case DOUBLES:
+                return this.doubles[index];
+            }
+        }
         Object object = this.get(index);
         try {
             return object instanceof Number
@@ -247,6 +330,16 @@ public class JSONArray {
      * @throws   JSONException If the key is not found or if the value is not a number.
      */
     public int getInt(int index) throws JSONException {
+        if (index >= 0 && index < this.count) {
+            switch (this.kind) {
+            case INTS:
+                return this.ints[index];
+            case LONGS:
+                return (int)this.longs[index];
+            case DOUBLES:
+                return (int)this.doubles[index];
+            }
+        }
         Object object = this.get(index);
         try {
             return object instanceof Number
@@ -302,6 +395,16 @@ public class JSONArray {
      *  be converted to a number.
      */
     public long getLong(int index) throws JSONException {
+        if (index >= 0 && index < this.count) {
+            switch (this.kind) {
+            case INTS:
+                return this.ints[index];
+            case LONGS:
+                return this.longs[index];
+            case DOUBLES:
+                return (long)this.doubles[index];
+            }
+        }
         Object object = this.get(index);
         try {
             return object instanceof Number
@@ -355,7 +458,7 @@ public class JSONArray {
             if (i > 0) {
                 sb.append(separator);
             }
-            sb.append(JSONObject.valueToString(this.myArrayList.get(i)));
+            sb.append(JSONObject.valueToString(this.element(i)));
         }
         return sb.toString();
     }
@@ -367,7 +470,7 @@ public class JSONArray {
      * @return The length (or size).
      */
     public int length() {
-        return this.myArrayList.size();
+        return this.kind == OBJECTS ? this.myArrayList.size() : this.count;
     }
 
 
@@ -380,7 +483,191 @@ public class JSONArray {
     public Object opt(int index) {
         return (index < 0 || index >= this.length())
             ? null
-            : this.myArrayList.get(index);
+            : this.element(index);
+    }
+
+
+    /**
+     * Get the value at an index, boxing it if it is kept in a primitive
+     * array.
+     * @param index The index, between 0 and length() - 1.
+     * @return The value.
+     */
+    private Object element(int index) {
+        switch (this.kind) {
+        case INTS:
+            return Integer.valueOf(this.ints[index]);
+        case LONGS:
+            return Long.valueOf(this.longs[index]);
+        case DOUBLES:
+            return Double.valueOf(this.doubles[index]);
+        default:
+            return this.myArrayList.get(index);
+        }
+    }
+
+
+    /**
+     * Append a value, keeping it in the primitive array if it is of the
+     * same type as the values already there.
+     * @param value The value.
+     */
+    private void add(Object value) {
+        if (this.kind == EMPTY) {
+            if (value instanceof Integer) {
+                this.kind = INTS;
+                this.ints = new int[4];
+            } else if (value instanceof Long) {
+                this.kind = LONGS;
+                this.longs = new long[4];
+            } else if (value instanceof Double) {
+                this.kind = DOUBLES;
+                this.doubles = new double[4];
+            } else {
+                this.kind = OBJECTS;
+                this.myArrayList = new ArrayList();
+            }
+        }
+        switch (this.kind) {
+        case INTS:
+            if (value instanceof Integer) {
+                this.addInt(((Integer)value).intValue());
+                return;
+            }
+            break;
+        case LONGS:
+            if (value instanceof Long) {
+                this.addLong(((Long)value).longValue());
+                return;
+            }
+            break;
+        case DOUBLES:
+            if (value instanceof Double) {
+                this.addDouble(((Double)value).doubleValue());
+                return;
+            }
+            break;
+        default:
+            break;
+        }
+        this.box();
+        this.myArrayList.add(value);
+    }
+
+
+    private void addInt(int value) {
+        if (this.kind == EMPTY) {
+            this.kind = INTS;
+            this.ints = new int[4];
+        } else if (this.kind != INTS) {
+            this.add(Integer.valueOf(value));
+            return;
+        }
+        if (this.count == this.ints.length) {
+            this.ints = Arrays.copyOf(this.ints, this.count * 2 + 1);
+        }
+        this.ints[this.count++] = value;
+    }
+
+
+    private void addLong(long value) {
+        if (this.kind == EMPTY) {
+            this.kind = LONGS;
+            this.longs = new long[4];
+        } else if (this.kind != LONGS) {
+            this.add(Long.valueOf(value));
+            return;
+        }
+        if (this.count == this.longs.length) {
+            this.longs = Arrays.copyOf(this.longs, this.count * 2 + 1);
+        }
+        this.longs[this.count++] = value;
+    }
+
+
+    private void addDouble(double value) {
+        if (this.kind == EMPTY) {
+            this.kind = DOUBLES;
+            this.doubles = new double[4];
+        } else if (this.kind != DOUBLES) {
+            this.add(Double.valueOf(value));
+            return;
+        }
+        if (this.count == this.doubles.length) {
+            this.doubles = Arrays.copyOf(this.doubles, this.count * 2 + 1);
+        }
+        this.doubles[this.count++] = value;
+    }
+
+
+    /**
+     * Move the values from the primitive array into a list of boxed values.
+     */
+    private void box() {
+        if (this.kind == OBJECTS) {
+            return;
+        }
+        ArrayList list = new ArrayList(Math.max(10, this.count + 1));
+        for (int i = 0; i < this.count; i += 1) {
+            list.add(this.element(i));
+        }
+        this.myArrayList = list;
+        this.kind = OBJECTS;
+        this.ints = null;
+        this.longs = null;
+        this.doubles = null;
+        this.count = 0;
+    }
+
+
+    /**
+     * Copy the values of this JSONArray into an int array.
+     * @return A new int array.
+     * @throws JSONException If a value is not a number.
+     */
+    public int[] toIntArray() throws JSONException {
+        if (this.kind == INTS) {
+            return Arrays.copyOf(this.ints, this.count);
+        }
+        int[] values = new int[this.length()];
+        for (int i = 0; i < values.length; i += 1) {
+            values[i] = this.getInt(i);
+        }
+        return values;
+    }
+
+
+    /**
+     * Copy the values of this JSONArray into a long array.
+     * @return A new long array.
+     * @throws JSONException If a value is not a number.
+     */
+    public long[] toLongArray() throws JSONException {
+        if (this.kind == LONGS) {
+            return Arrays.copyOf(this.longs, this.count);
+        }
+        long[] values = new long[this.length()];
+        for (int i = 0; i < values.length; i += 1) {
+            values[i] = this.getLong(i);
+        }
+        return values;
+    }
+
+
+    /**
+     * Copy the values of this JSONArray into a double array.
+     * @return A new double array.
+     * @throws JSONException If a value is not a number.
+     */
+    public double[] toDoubleArray() throws JSONException {
+        if (this.kind == DOUBLES) {
+            return Arrays.copyOf(this.doubles, this.count);
+        }
+        double[] values = new double[this.length()];
+        for (int i = 0; i < values.length; i += 1) {
+            values[i] = this.getDouble(i);
+        }
+        return values;
     }
 
 
@@ -593,9 +880,11 @@ public class JSONArray {
      * @return this.
      */
     public JSONArray put(double value) throws JSONException {
-        Double d = new Double(value);
-        JSONObject.testValidity(d);
-        this.put(d);
+        if (Double.isInfinite(value) || Double.isNaN(value)) {
+            throw new JSONException(
+                "JSON does not allow non-finite numbers.");
+        }
+        this.addDouble(value);
         return this;
     }
 
@@ -607,7 +896,7 @@ public class JSONArray {
      * @return this.
      */
     public JSONArray put(int value) {
-        this.put(new Integer(value));
+        this.addInt(value);
         return this;
     }
 
@@ -619,7 +908,7 @@ public class JSONArray {
      * @return this.
      */
     public JSONArray put(long value) {
-        this.put(new Long(value));
+        this.addLong(value);
         return this;
     }
 
@@ -644,7 +933,7 @@ public class JSONArray {
      * @return this.
      */
     public JSONArray put(Object value) {
-        this.myArrayList.add(value);
+        this.add(value);
         return this;
     }
 
@@ -758,7 +1047,16 @@ public class JSONArray {
             throw new JSONException("JSONArray[" + index + "] not found.");
         }
         if (index < this.length()) {
-            this.myArrayList.set(index, value);
+            if (this.kind == INTS && value instanceof Integer) {
+                this.ints[index] = ((Integer)value).intValue();
+            } else if (this.kind == LONGS && value instanceof Long) {
+                this.longs[index] = ((Long)value).longValue();
+            } else if (this.kind == DOUBLES && value instanceof Double) {
+                this.doubles[index] = ((Double)value).doubleValue();
+            } else {
+                this.box();
+                this.myArrayList.set(index, value);
+            }
         } else {
             while (index != this.length()) {
                 this.put(JSONObject.NULL);
@@ -777,6 +1075,18 @@ public class JSONArray {
      */
     public Object remove(int index) {
         Object o = this.opt(index);
+        if (this.kind != OBJECTS) {
+            if (index < 0 || index >= this.count) {
+                throw new IndexOutOfBoundsException("Index: " + index
+                        + ", Size: " + this.count);
+            }
+            Object array = this.kind == INTS ? (Object)this.ints
+                    : this.kind == LONGS ? (Object)this.longs : this.doubles;
+            System.arraycopy(array, index + 1, array, index,
+                    this.count - index - 1);
+            this.count -= 1;
+            return o;
+        }
         this.myArrayList.remove(index);
         return o;
     }
@@ -875,7 +1185,7 @@ public class JSONArray {
             writer.write('[');
 
             if (length == 1) {
-                JSONObject.writeValue(writer, this.myArrayList.get(0),
+                JSONObject.writeValue(writer, this.element(0),
                         indentFactor, indent);
             } else if (length != 0) {
                 final int newindent = indent + indentFactor;
@@ -888,7 +1198,7 @@ public class JSONArray {
                         writer.write('\n');
                     }
                     JSONObject.indent(writer, newindent);
-                    JSONObject.writeValue(writer, this.myArrayList.get(i),
+                    JSONObject.writeValue(writer, this.element(i),
                             indentFactor, newindent);
                     commanate = true;
                 }
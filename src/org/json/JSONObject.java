@@ -32,7 +32,6 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
@@ -55,6 +54,9 @@ import java.util.ResourceBundle;
  * found. An <code>opt</code> method returns a default value instead of throwing
  * an exception, and so is useful for obtaining optional values.
  * <p>
+ * Although the collection is unordered as far as JSON is concerned, keys()
+ * and toString() return the names in the order they were first put.
+ * <p>
  * The generic <code>get()</code> and <code>opt()</code> methods return an
  * object, which you can cast or query for type. There are also typed
  * <code>get</code> and <code>opt</code> methods that do type checking and type
@@ -131,7 +133,8 @@ public class JSONObject {
 
 
     /**
-     * The map where the JSONObject's properties are kept.
+     * The map where the JSONObject's properties are kept, in insertion
+     * order.
      */
     private final Map map;
 
@@ -149,7 +152,7 @@ public class JSONObject {
      * Construct an empty JSONObject.
      */
     public JSONObject() {
-        this.map = new HashMap();
+        this.map = new CompactMap();
     }
 
 
@@ -194,6 +197,10 @@ public class JSONObject {
                 throw x.syntaxError("A JSONObject text must end with '}'");
             case '}':
                 return;
+            case '"':
+            case '\'':
+                key = x.nextKey(c);
+                break;
             default:
                 x.back();
                 key = x.nextValue().toString();
@@ -238,7 +245,7 @@ public class JSONObject {
      * @throws JSONException
      */
     public JSONObject(Map map) {
-        this.map = new HashMap();
+        this.map = new CompactMap(map == null ? 0 : map.size());
         if (map != null) {
             Iterator i = map.entrySet().iterator();
             while (i.hasNext()) {
@@ -1244,7 +1251,6 @@ public class JSONObject {
      * @return A simple JSON value.
      */
     public static Object stringToValue(String string) {
-        Double d;
         if (string.equals("")) {
             return string;
         }
@@ -1268,22 +1274,10 @@ public class JSONObject {
 
         char b = string.charAt(0);
         if ((b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+') {
-            try {
-                if (string.indexOf('.') > -1 ||
-                        string.indexOf('e') > -1 || string.indexOf('E') > -1) {
-                    d = Double.valueOf(string);
-                    if (!d.isInfinite() && !d.isNaN()) {
-                        return d;
-                    }
-                } else {
-                    Long myLong = new Long(string);
-                    if (myLong.longValue() == myLong.intValue()) {
-                        return new Integer(myLong.intValue());
-                    } else {
-                        return myLong;
-                    }
-                }
-            }  catch (Exception ignore) {
+            Object number = JSONTokener.numberValue(string.toCharArray(), 0,
+                    string.length());
+            if (number != null) {
+                return number;
             }
         }
         return string;
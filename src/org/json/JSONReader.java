@@ -0,0 +1,540 @@
+package org.json;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * A JSONReader reads a JSON text one token at a time, without building a
+ * JSONObject or JSONArray tree. Callers walk the text with beginObject(),
+ * nextName(), nextString() and friends, and can skip whole values they are
+ * not interested in with skipValue(), which allocates nothing for the
+ * skipped subtree.
+ * <p>
+ * The reader accepts the same texts as JSONObject(JSONTokener), except that
+ * keys must be quoted and pairs must be separated by ':' and ','.
+ */
+public class JSONReader {
+
+    /**
+     * The kinds of token a JSONReader can return from peek().
+     */
+    public static enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING,
+        NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final JSONTokener x;
+    private int[] stack = new int[32];
+    private int depth = 1;
+    private Token peeked;
+    private char quote;
+
+
+    /**
+     * Construct a JSONReader over a JSONTokener.
+     * @param x A JSONTokener positioned at the start of a value.
+     */
+    public JSONReader(JSONTokener x) {
+        this.x = x;
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+
+    /**
+     * Construct a JSONReader from a Reader.
+     * @param reader A reader.
+     */
+    public JSONReader(Reader reader) {
+        this(new JSONTokener(reader));
+    }
+
+
+    /**
+     * Construct a JSONReader from a UTF-8 encoded InputStream.
+     * @param inputStream An input stream.
+     */
+    public JSONReader(InputStream inputStream) {
+        this(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+    }
+
+
+    /**
+     * Construct a JSONReader from a string.
+     * @param s A source string.
+     */
+    public JSONReader(String s) {
+        this(new JSONTokener(s));
+    }
+
+
+    /**
+     * Return the kind of the next token without consuming it.
+     * @return The next token.
+     * @throws JSONException If there is a syntax error.
+     */
+    public Token peek() throws JSONException {
+        if (this.peeked != null) {
+            return this.peeked;
+        }
+        char c;
+        switch (this.stack[this.depth - 1]) {
+        case EMPTY_DOCUMENT:
+            this.stack[this.depth - 1] = NONEMPTY_DOCUMENT;
+            return this.peeked = this.peekValue();
+        case NONEMPTY_DOCUMENT:
+            return this.peeked = Token.END_DOCUMENT;
+        case EMPTY_ARRAY:
+            if (this.x.nextClean() == ']') {
+                return this.peeked = Token.END_ARRAY;
+            }
+            this.x.back();
+            this.stack[this.depth - 1] = NONEMPTY_ARRAY;
+            return this.peeked = this.peekValue();
+        case NONEMPTY_ARRAY:
+            c = this.x.nextClean();
+            if (c == ']') {
+                return this.peeked = Token.END_ARRAY;
+            }
+            if (c != ',') {
+                throw this.x.syntaxError("Expected a ',' or ']'");
+            }
+            return this.peeked = this.peekValue();
+        case EMPTY_OBJECT:
+        case NONEMPTY_OBJECT:
+            c = this.x.nextClean();
+            if (c == '}') {
+                return this.peeked = Token.END_OBJECT;
+            }
+            if (this.stack[this.depth - 1] == NONEMPTY_OBJECT) {
+                if (c != ',') {
+                    throw this.x.syntaxError("Expected a ',' or '}'");
+                }
+                c = this.x.nextClean();
+            }
+            if (c != '"' && c != '\'') {
+                throw this.x.syntaxError("Expected a quoted key");
+            }
+            this.quote = c;
+            this.stack[this.depth - 1] = DANGLING_NAME;
+            return this.peeked = Token.NAME;
+        case DANGLING_NAME:
+            if (this.x.nextClean() != ':') {
+                throw this.x.syntaxError("Expected a ':' after a key");
+            }
+            this.stack[this.depth - 1] = NONEMPTY_OBJECT;
+            return this.peeked = this.peekValue();
+        default:
+            throw new IllegalStateException("JSONReader is closed");
+        }
+    }
+
+
+    private Token peekValue() throws JSONException {
+        char c = this.x.nextClean();
+        switch (c) {
+        case '{':
+            return Token.BEGIN_OBJECT;
+        case '[':
+            return Token.BEGIN_ARRAY;
+        case '"':
+        case '\'':
+            this.quote = c;
+            return Token.STRING;
+        case 't':
+        case 'f':
+            this.x.back();
+            return Token.BOOLEAN;
+        case 'n':
+            this.x.back();
+            return Token.NULL;
+        case 0:
+            throw this.x.syntaxError("Missing value");
+        default:
+            this.x.back();
+            return Token.NUMBER;
+        }
+    }
+
+
+    private void expect(Token token) throws JSONException {
+        Token next = this.peek();
+        if (next != token) {
+            throw this.x.syntaxError("Expected " + token + " but was " + next);
+        }
+        this.peeked = null;
+    }
+
+
+    private void push(int state) {
+        if (this.depth == this.stack.length) {
+            int[] grown = new int[this.depth * 2];
+            System.arraycopy(this.stack, 0, grown, 0, this.depth);
+            this.stack = grown;
+        }
+        this.stack[this.depth++] = state;
+    }
+
+
+    /**
+     * Consume the '{' that starts an object.
+     * @throws JSONException If the next token is not the start of an object.
+     */
+    public void beginObject() throws JSONException {
+        this.expect(Token.BEGIN_OBJECT);
+        this.push(EMPTY_OBJECT);
+    }
+
+
+    /**
+     * Consume the '}' that ends the current object.
+     * @throws JSONException If the current object has more members.
+     */
+    public void endObject() throws JSONException {
+        this.expect(Token.END_OBJECT);
+        this.depth -= 1;
+    }
+
+
+    /**
+     * Consume the '{' that starts an object, and keep the text of the object
+     * as it is read, for endObjectSpan() to return. Only one object at a
+     * time can be kept this way; objects inside it are read as usual.
+     * @throws JSONException If the next token is not the start of an object.
+     */
+    public void beginObjectSpan() throws JSONException {
+        this.beginObject();
+        this.x.beginSpan();
+    }
+
+
+    /**
+     * Consume the '}' that ends the current object, and return the text kept
+     * since beginObjectSpan().
+     * @return The text of the object, encoded as UTF-8, or null if
+     *  beginObjectSpan() was not called.
+     * @throws JSONException If the current object has more members.
+     */
+    public byte[] endObjectSpan() throws JSONException {
+        this.endObject();
+        return this.x.endSpan();
+    }
+
+
+    /**
+     * Consume the '}' that ends the current object, and parse the text kept
+     * since beginObjectSpan() into a JSONObject.
+     * @return The object, or null if beginObjectSpan() was not called.
+     * @throws JSONException If the current object has more members.
+     */
+    public JSONObject endObjectSpanTree() throws JSONException {
+        this.endObject();
+        JSONTokener span = this.x.endSpanTokener();
+        return span == null ? null : new JSONObject(span);
+    }
+
+
+    /**
+     * Consume the '[' that starts an array.
+     * @throws JSONException If the next token is not the start of an array.
+     */
+    public void beginArray() throws JSONException {
+        this.expect(Token.BEGIN_ARRAY);
+        this.push(EMPTY_ARRAY);
+    }
+
+
+    /**
+     * Consume the ']' that ends the current array.
+     * @throws JSONException If the current array has more elements.
+     */
+    public void endArray() throws JSONException {
+        this.expect(Token.END_ARRAY);
+        this.depth -= 1;
+    }
+
+
+    /**
+     * Determine if the current object or array has more members.
+     * @return true if the next token is not the end of a container.
+     * @throws JSONException If there is a syntax error.
+     */
+    public boolean hasNext() throws JSONException {
+        Token next = this.peek();
+        return next != Token.END_OBJECT && next != Token.END_ARRAY &&
+                next != Token.END_DOCUMENT;
+    }
+
+
+    /**
+     * Consume the next key of the current object.
+     * @return The key.
+     * @throws JSONException If the next token is not a key.
+     */
+    public String nextName() throws JSONException {
+        this.expect(Token.NAME);
+        return this.x.nextKey(this.quote);
+    }
+
+
+    /**
+     * Consume the next string. Numbers are returned as their source text.
+     * @return The string.
+     * @throws JSONException If the next token is not a string or a number.
+     */
+    public String nextString() throws JSONException {
+        Token next = this.peek();
+        if (next == Token.STRING) {
+            this.peeked = null;
+            return this.x.nextString(this.quote);
+        }
+        if (next == Token.NUMBER) {
+            this.peeked = null;
+            return this.nextLiteral();
+        }
+        throw this.x.syntaxError("Expected a string but was " + next);
+    }
+
+
+    /**
+     * Consume the next boolean.
+     * @return The boolean.
+     * @throws JSONException If the next token is not a boolean.
+     */
+    public boolean nextBoolean() throws JSONException {
+        this.expect(Token.BOOLEAN);
+        String literal = this.nextLiteral();
+        if (literal.equals("true")) {
+            return true;
+        }
+        if (literal.equals("false")) {
+            return false;
+        }
+        throw this.x.syntaxError("Expected a boolean but was " + literal);
+    }
+
+
+    /**
+     * Consume the next null.
+     * @throws JSONException If the next token is not null.
+     */
+    public void nextNull() throws JSONException {
+        this.expect(Token.NULL);
+        if (!this.nextLiteral().equals("null")) {
+            throw this.x.syntaxError("Expected null");
+        }
+    }
+
+
+    /**
+     * Consume the next value if it is null.
+     * @return true if a null was consumed.
+     * @throws JSONException If there is a syntax error.
+     */
+    public boolean skipNull() throws JSONException {
+        if (this.peek() == Token.NULL) {
+            this.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Consume the next number, or string holding a number, as an int.
+     * @return The int.
+     * @throws JSONException If the next value is not a number.
+     */
+    public int nextInt() throws JSONException {
+        if (this.peek() == Token.NUMBER) {
+            this.peeked = null;
+            return this.x.nextInt();
+        }
+        String s = this.nextNumberText();
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            double d = this.parseDouble(s);
+            if ((int) d != d) {
+                throw this.x.syntaxError("Expected an int but was " + s);
+            }
+            return (int) d;
+        }
+    }
+
+
+    /**
+     * Consume the next number, or string holding a number, as a long.
+     * @return The long.
+     * @throws JSONException If the next value is not a number.
+     */
+    public long nextLong() throws JSONException {
+        if (this.peek() == Token.NUMBER) {
+            this.peeked = null;
+            return this.x.nextLong();
+        }
+        String s = this.nextNumberText();
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            double d = this.parseDouble(s);
+            if ((long) d != d) {
+                throw this.x.syntaxError("Expected a long but was " + s);
+            }
+            return (long) d;
+        }
+    }
+
+
+    /**
+     * Consume the next number, or string holding a number, as a double.
+     * @return The double.
+     * @throws JSONException If the next value is not a number.
+     */
+    public double nextDouble() throws JSONException {
+        if (this.peek() == Token.NUMBER) {
+            this.peeked = null;
+            return this.x.nextDouble();
+        }
+        return this.parseDouble(this.nextNumberText());
+    }
+
+
+    private String nextNumberText() throws JSONException {
+        Token next = this.peek();
+        if (next != Token.NUMBER && next != Token.STRING) {
+            throw this.x.syntaxError("Expected a number but was " + next);
+        }
+        return this.nextString();
+    }
+
+
+    private double parseDouble(String s) throws JSONException {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw this.x.syntaxError("Expected a number but was " + s);
+        }
+    }
+
+
+    private String nextLiteral() throws JSONException {
+        StringBuilder sb = new StringBuilder();
+        char c = this.x.next();
+        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+            sb.append(c);
+            c = this.x.next();
+        }
+        this.x.back();
+        return sb.toString().trim();
+    }
+
+
+    /**
+     * Skip the next value, including every member of an object or array,
+     * without building it.
+     * @throws JSONException If there is a syntax error.
+     */
+    public void skipValue() throws JSONException {
+        int open = 0;
+        do {
+            switch (this.peek()) {
+            case BEGIN_OBJECT:
+                this.beginObject();
+                open += 1;
+                break;
+            case BEGIN_ARRAY:
+                this.beginArray();
+                open += 1;
+                break;
+            case END_OBJECT:
+                this.endObject();
+                open -= 1;
+                break;
+            case END_ARRAY:
+                this.endArray();
+                open -= 1;
+                break;
+            case NAME:
+            case STRING:
+                this.peeked = null;
+                this.x.skipString(this.quote);
+                break;
+            case END_DOCUMENT:
+                throw this.x.syntaxError("Unexpected end of text");
+            default:
+                this.peeked = null;
+                this.skipLiteral();
+            }
+        } while (open > 0);
+    }
+
+
+    private void skipLiteral() throws JSONException {
+        char c = this.x.next();
+        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+            c = this.x.next();
+        }
+        this.x.back();
+    }
+
+
+    /**
+     * Read the next value into a JSONObject, JSONArray, String, Boolean,
+     * Number or JSONObject.NULL, for the parts of a text that are easier to
+     * handle as a tree.
+     * @return The value.
+     * @throws JSONException If there is a syntax error.
+     */
+    public Object nextValue() throws JSONException {
+        switch (this.peek()) {
+        case BEGIN_OBJECT:
+            JSONObject object = new JSONObject();
+            this.beginObject();
+            while (this.hasNext()) {
+                object.put(this.nextName(), this.nextValue());
+            }
+            this.endObject();
+            return object;
+        case BEGIN_ARRAY:
+            JSONArray array = new JSONArray();
+            this.beginArray();
+            while (this.hasNext()) {
+                array.put(this.nextValue());
+            }
+            this.endArray();
+            return array;
+        case STRING:
+            return this.nextString();
+        case NULL:
+            this.nextNull();
+            return JSONObject.NULL;
+        case BOOLEAN:
+            return this.nextBoolean() ? Boolean.TRUE : Boolean.FALSE;
+        case NUMBER:
+            this.peeked = null;
+            return this.x.nextValue();
+        default:
+            throw this.x.syntaxError("Expected a value but was " + this.peek());
+        }
+    }
+
+
+    /**
+     * Make a JSONException to signal a syntax error at the reader's position.
+     * @param message The error message.
+     * @return A JSONException object, suitable for throwing.
+     */
+    public JSONException syntaxError(String message) {
+        return this.x.syntaxError(message);
+    }
+}
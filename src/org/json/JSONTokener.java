@@ -1,11 +1,13 @@
 package org.json;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 /*
 Copyright (c) 2002 JSON.org
@@ -35,18 +37,45 @@ SOFTWARE.
  * A JSONTokener takes a source string and extracts characters and tokens from
  * it. It is used by the JSONObject and JSONArray constructors to parse
  * JSON source strings.
+ * <p>
+ * Characters are read from a char buffer. A tokener built from a String, a
+ * char[] or a byte[] scans that buffer directly; a tokener built from a
+ * Reader refills its buffer in blocks. Strings are scanned in bulk up to the
+ * next quote or backslash, and the line and character counters are only
+ * worked out when a syntax error is reported.
  * @author JSON.org
  * @version 2012-02-16
  */
 public class JSONTokener {
 
-    private long    character;
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Number of decimal digits that always fit in a long.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private char[]  buffer;
+    private int     position;
+    private int     limit;
+    private long    consumed;
+    private int     mark;
     private boolean eof;
-    private long    index;
-    private long    line;
-    private char    previous;
     private Reader  reader;
     private boolean usePrevious;
+    private int     tokenStart;
+    private int     spanStart;
+
+    private long    line;
+    private long    lineStart;
+    private int     scanned;
+    private boolean afterReturn;
+    private SymbolTable symbols;
 
 
     /**
@@ -55,15 +84,8 @@ public class JSONTokener {
      * @param reader     A reader.
      */
     public JSONTokener(Reader reader) {
-        this.reader = reader.markSupported()
-            ? reader
-            : new BufferedReader(reader);
-        this.eof = false;
-        this.usePrevious = false;
-        this.previous = 0;
-        this.index = 0;
-        this.character = 1;
-        this.line = 1;
+        this(new char[BUFFER_SIZE], 0, 0);
+        this.reader = reader;
     }
 
 
@@ -81,7 +103,133 @@ public class JSONTokener {
      * @param s     A source string.
      */
     public JSONTokener(String s) {
-        this(new StringReader(s));
+        this(s.toCharArray());
+    }
+
+
+    /**
+     * Construct a JSONTokener that reads straight from a char array. The
+     * array is not copied and must not be changed while it is being read.
+     *
+     * @param chars     A source array.
+     */
+    public JSONTokener(char[] chars) {
+        this(chars, 0, chars.length);
+    }
+
+
+    /**
+     * Construct a JSONTokener that reads straight from part of a char array.
+     * The array is not copied and must not be changed while it is being read.
+     *
+     * @param chars     A source array.
+     * @param offset    The index of the first char to read.
+     * @param length    The number of chars to read.
+     */
+    public JSONTokener(char[] chars, int offset, int length) {
+        this.buffer = chars;
+        this.position = offset;
+        this.limit = offset + length;
+        this.consumed = -offset;
+        this.mark = -1;
+        this.spanStart = -1;
+        this.eof = false;
+        this.usePrevious = false;
+        this.line = 1;
+        this.lineStart = -1;
+        this.scanned = offset;
+    }
+
+
+    /**
+     * Construct a JSONTokener from UTF-8 encoded bytes. The bytes are decoded
+     * into a char array in a single pass.
+     *
+     * @param utf8      A source array of UTF-8 bytes.
+     */
+    public JSONTokener(byte[] utf8) {
+        this(decode(utf8));
+    }
+
+
+    private JSONTokener(CharBuffer chars) {
+        this(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+    }
+
+
+    private static CharBuffer decode(byte[] utf8) {
+        return Charset.forName("UTF-8").decode(ByteBuffer.wrap(utf8));
+    }
+
+
+    /**
+     * Read more characters into the buffer. The character before the current
+     * position is kept so that back() still works, as is everything after a
+     * mark set by skipTo() or the start of a span.
+     * @return true if at least one character was added.
+     */
+    private boolean fill() throws JSONException {
+        if (this.reader == null) {
+            return false;
+        }
+        int keep = this.mark >= 0 ? this.mark : Math.max(this.position - 1, 0);
+        if (this.spanStart >= 0 && this.spanStart < keep) {
+            keep = this.spanStart;
+        }
+        if (keep > 0) {
+            this.countLines(keep);
+            System.arraycopy(this.buffer, keep, this.buffer, 0, this.limit - keep);
+            this.limit -= keep;
+            this.position -= keep;
+            this.scanned -= keep;
+            this.consumed += keep;
+            if (this.mark >= 0) {
+                this.mark -= keep;
+            }
+            if (this.spanStart >= 0) {
+                this.spanStart -= keep;
+            }
+        }
+        if (this.limit == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
+        int n;
+        try {
+            n = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        } catch (IOException exception) {
+            throw new JSONException(exception);
+        }
+        if (n <= 0) {
+            return false;
+        }
+        this.limit += n;
+        return true;
+    }
+
+
+    /**
+     * Update the line counters up to a position in the buffer.
+     */
+    private void countLines(int to) {
+        for (int i = this.scanned; i < to; i += 1) {
+            char c = this.buffer[i];
+            if (c == '\n') {
+                if (!this.afterReturn) {
+                    this.line += 1;
+                }
+                this.lineStart = this.consumed + i + 1;
+                this.afterReturn = false;
+            } else if (c == '\r') {
+                this.line += 1;
+                this.lineStart = this.consumed + i + 1;
+                this.afterReturn = true;
+            } else {
+                this.afterReturn = false;
+            }
+        }
+        if (to > this.scanned) {
+            this.scanned = to;
+        }
     }
 
 
@@ -91,13 +239,15 @@ public class JSONTokener {
      * the next number or identifier.
      */
     public void back() throws JSONException {
-        if (this.usePrevious || this.index <= 0) {
+        if (this.usePrevious || (!this.eof && this.consumed + this.position <= 0)) {
             throw new JSONException("Stepping back two steps is not supported");
         }
-        this.index -= 1;
-        this.character -= 1;
+        if (this.eof) {
+            this.eof = false;
+        } else {
+            this.position -= 1;
+        }
         this.usePrevious = true;
-        this.eof = false;
     }
 
 
@@ -121,7 +271,7 @@ public class JSONTokener {
     }
 
     public boolean end() {
-        return this.eof && !this.usePrevious;
+        return this.eof;
     }
 
 
@@ -146,34 +296,18 @@ public class JSONTokener {
      * @return The next character, or 0 if past the end of the source string.
      */
     public char next() throws JSONException {
-        int c;
-        if (this.usePrevious) {
-            this.usePrevious = false;
-            c = this.previous;
-        } else {
-            try {
-                c = this.reader.read();
-            } catch (IOException exception) {
-                throw new JSONException(exception);
-            }
-
-            if (c <= 0) { // End of stream
-                this.eof = true;
-                c = 0;
-            }
+        this.usePrevious = false;
+        if (this.position >= this.limit && !this.fill()) {
+            this.eof = true;
+            return 0;
         }
-        this.index += 1;
-        if (this.previous == '\r') {
-            this.line += 1;
-            this.character = c == '\n' ? 0 : 1;
-        } else if (c == '\n') {
-            this.line += 1;
-            this.character = 0;
-        } else {
-            this.character += 1;
+        char c = this.buffer[this.position];
+        if (c == 0) {
+            this.eof = true;
+            return 0;
         }
-        this.previous = (char) c;
-        return this.previous;
+        this.position += 1;
+        return c;
     }
 
 
@@ -229,6 +363,18 @@ public class JSONTokener {
      */
     public char nextClean() throws JSONException {
         for (;;) {
+            while (this.position < this.limit) {
+                char c = this.buffer[this.position];
+                if (c > ' ') {
+                    this.position += 1;
+                    this.usePrevious = false;
+                    return c;
+                }
+                if (c == 0) {
+                    break;
+                }
+                this.position += 1;
+            }
             char c = this.next();
             if (c == 0 || c > ' ') {
                 return c;
@@ -249,52 +395,158 @@ public class JSONTokener {
      * @throws JSONException Unterminated string.
      */
     public String nextString(char quote) throws JSONException {
-        char c;
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = null;
+        this.usePrevious = false;
         for (;;) {
+            int start = this.position;
+            int i = start;
+            char[] chars = this.buffer;
+            int end = this.limit;
+            char c = 0;
+            while (i < end) {
+                c = chars[i];
+                if (c == quote || c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                    break;
+                }
+                i += 1;
+            }
+            if (i == end) {
+                if (sb == null) {
+                    sb = new StringBuilder(Math.max(16, i - start + 16));
+                }
+                sb.append(chars, start, i - start);
+                this.position = i;
+                if (!this.fill()) {
+                    throw this.syntaxError("Unterminated string");
+                }
+                continue;
+            }
+            if (c == quote) {
+                this.position = i + 1;
+                if (sb == null) {
+                    return new String(chars, start, i - start);
+                }
+                return sb.append(chars, start, i - start).toString();
+            }
+            if (c != '\\') {
+                this.position = i;
+                throw this.syntaxError("Unterminated string");
+            }
+            if (sb == null) {
+                sb = new StringBuilder(Math.max(16, i - start + 16));
+            }
+            sb.append(chars, start, i - start);
+            this.position = i + 1;
             c = this.next();
             switch (c) {
-            case 0:
-            case '\n':
-            case '\r':
-                throw this.syntaxError("Unterminated string");
+            case 'b':
+                sb.append('\b');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 'u':
+                sb.append((char)Integer.parseInt(this.next(4), 16));
+                break;
+            case '"':
+            case '\'':
             case '\\':
-                c = this.next();
-                switch (c) {
-                case 'b':
-                    sb.append('\b');
-                    break;
-                case 't':
-                    sb.append('\t');
-                    break;
-                case 'n':
-                    sb.append('\n');
-                    break;
-                case 'f':
-                    sb.append('\f');
-                    break;
-                case 'r':
-                    sb.append('\r');
-                    break;
-                case 'u':
-                    sb.append((char)Integer.parseInt(this.next(4), 16));
-                    break;
-                case '"':
-                case '\'':
-                case '\\':
-                case '/':
-                    sb.append(c);
-                    break;
-                default:
-                    throw this.syntaxError("Illegal escape.");
-                }
+            case '/':
+                sb.append(c);
                 break;
             default:
-                if (c == quote) {
-                    return sb.toString();
+                throw this.syntaxError("Illegal escape.");
+            }
+        }
+    }
+
+
+    /**
+     * Return the characters up to the next close quote character, as a key.
+     * Keys are canonicalized: a key that is in the buffer without escapes is
+     * hashed in place, and the same String is returned for every occurrence
+     * of it, so repeated keys are not allocated again.
+     * @param quote The quoting character, either
+     *      <code>"</code>&nbsp;<small>(double quote)</small> or
+     *      <code>'</code>&nbsp;<small>(single quote)</small>.
+     * @return      A String.
+     * @throws JSONException Unterminated string.
+     */
+    public String nextKey(char quote) throws JSONException {
+        int start = this.position;
+        char[] chars = this.buffer;
+        int end = this.limit;
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c == quote) {
+                this.usePrevious = false;
+                this.position = i + 1;
+                String key = SymbolTable.KNOWN.find(chars, start, i, hash);
+                if (key == null) {
+                    if (this.symbols == null) {
+                        this.symbols = new SymbolTable(128, new String[0]);
+                    }
+                    key = this.symbols.get(chars, start, i, hash);
                 }
-                sb.append(c);
+                return key;
+            }
+            if (c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                break;
             }
+            hash = 31 * hash + c;
+        }
+        return this.nextString(quote);
+    }
+
+
+    /**
+     * Skip the characters up to and including the next close quote
+     * character, without building the string.
+     * @param quote The quoting character, either
+     *      <code>"</code>&nbsp;<small>(double quote)</small> or
+     *      <code>'</code>&nbsp;<small>(single quote)</small>.
+     * @throws JSONException Unterminated string.
+     */
+    public void skipString(char quote) throws JSONException {
+        this.usePrevious = false;
+        for (;;) {
+            int i = this.position;
+            char[] chars = this.buffer;
+            int end = this.limit;
+            char c = 0;
+            while (i < end) {
+                c = chars[i];
+                if (c == quote || c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                    break;
+                }
+                i += 1;
+            }
+            this.position = i;
+            if (i == end) {
+                if (!this.fill()) {
+                    throw this.syntaxError("Unterminated string");
+                }
+                continue;
+            }
+            if (c == quote) {
+                this.position = i + 1;
+                return;
+            }
+            if (c != '\\') {
+                throw this.syntaxError("Unterminated string");
+            }
+            this.position = i + 1;
+            this.next();
         }
     }
 
@@ -306,7 +558,7 @@ public class JSONTokener {
      * @return   A string.
      */
     public String nextTo(char delimiter) throws JSONException {
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
         for (;;) {
             char c = this.next();
             if (c == delimiter || c == 0 || c == '\n' || c == '\r') {
@@ -328,7 +580,7 @@ public class JSONTokener {
      */
     public String nextTo(String delimiters) throws JSONException {
         char c;
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
         for (;;) {
             c = this.next();
             if (delimiters.indexOf(c) >= 0 || c == 0 ||
@@ -375,21 +627,305 @@ public class JSONTokener {
          * formatting character.
          */
 
-        StringBuffer sb = new StringBuffer();
-        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
-            sb.append(c);
-            c = this.next();
-        }
-        this.back();
-
-        string = sb.toString().trim();
-        if ("".equals(string)) {
+        if (!isUnquoted(c)) {
+            this.back();
             throw this.syntaxError("Missing value");
         }
+        int end = this.scanUnquoted();
+        int start = this.tokenStart;
+        char[] chars = this.buffer;
+        while (chars[end - 1] <= ' ') {
+            end -= 1;
+        }
+        Object number = numberValue(chars, start, end);
+        if (number != null) {
+            return number;
+        }
+        if (matches(chars, start, end, "true")) {
+            return Boolean.TRUE;
+        }
+        if (matches(chars, start, end, "false")) {
+            return Boolean.FALSE;
+        }
+        if (matches(chars, start, end, "null")) {
+            return JSONObject.NULL;
+        }
+        string = new String(chars, start, end - start);
         return JSONObject.stringToValue(string);
     }
 
 
+    /**
+     * Get the next value as a long, reading the number straight from the
+     * source without building a String or a boxed intermediate.
+     * @throws JSONException If the next value is not an integral number.
+     * @return A long.
+     */
+    public long nextLong() throws JSONException {
+        int end = this.scanNumber();
+        int start = this.tokenStart;
+        char[] chars = this.buffer;
+        int i = start;
+        boolean negative = chars[i] == '-';
+        if (negative || chars[i] == '+') {
+            i += 1;
+        }
+        if (end > i && end - i <= MAX_LONG_DIGITS) {
+            long value = 0;
+            for (; i < end; i += 1) {
+                char c = chars[i];
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (i == end) {
+                return negative ? -value : value;
+            }
+        }
+        Object number = numberValue(chars, start, end);
+        if (number instanceof Number) {
+            double d = ((Number) number).doubleValue();
+            long value = ((Number) number).longValue();
+            if (number instanceof Long || value == d) {
+                return value;
+            }
+        }
+        throw this.syntaxError("Expected a long but was " +
+                new String(chars, start, end - start));
+    }
+
+
+    /**
+     * Get the next value as an int, reading the number straight from the
+     * source without building a String or a boxed intermediate.
+     * @throws JSONException If the next value is not an integral number
+     * within the range of an int.
+     * @return An int.
+     */
+    public int nextInt() throws JSONException {
+        long value = this.nextLong();
+        if ((int) value != value) {
+            throw this.syntaxError("Expected an int but was " + value);
+        }
+        return (int) value;
+    }
+
+
+    /**
+     * Get the next value as a double, reading the number straight from the
+     * source. Decimals with up to 15 digits and a small exponent are
+     * computed without building a String.
+     * @throws JSONException If the next value is not a number.
+     * @return A double.
+     */
+    public double nextDouble() throws JSONException {
+        int end = this.scanNumber();
+        int start = this.tokenStart;
+        double d = fastDouble(this.buffer, start, end);
+        if (d == d) {
+            return d;
+        }
+        String string = new String(this.buffer, start, end - start);
+        try {
+            return Double.parseDouble(string);
+        } catch (NumberFormatException e) {
+            throw this.syntaxError("Expected a number but was " + string);
+        }
+    }
+
+
+    /**
+     * Scan the unquoted text that starts with the character just read. The
+     * whole text is kept in the buffer, starting at tokenStart.
+     * @return The index in the buffer just past the end of the text.
+     */
+    private int scanUnquoted() throws JSONException {
+        this.mark = this.position - 1;
+        try {
+            int i = this.position;
+            for (;;) {
+                if (i == this.limit) {
+                    this.position = i;
+                    if (!this.fill()) {
+                        break;
+                    }
+                    i = this.position;
+                }
+                if (!isUnquoted(this.buffer[i])) {
+                    break;
+                }
+                i += 1;
+            }
+            this.position = i;
+            this.tokenStart = this.mark;
+            return i;
+        } finally {
+            this.mark = -1;
+        }
+    }
+
+
+    /**
+     * Skip whitespace and scan the unquoted text of a number.
+     * @return The index in the buffer just past the end of the text,
+     * without trailing whitespace.
+     */
+    private int scanNumber() throws JSONException {
+        char c = this.nextClean();
+        if (!isUnquoted(c)) {
+            this.back();
+            throw this.syntaxError("Expected a number");
+        }
+        int end = this.scanUnquoted();
+        while (this.buffer[end - 1] <= ' ') {
+            end -= 1;
+        }
+        return end;
+    }
+
+
+    private static boolean matches(char[] chars, int start, int end, String literal) {
+        int length = literal.length();
+        if (end - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i += 1) {
+            if (chars[start + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Convert the text of a number to an Integer, Long or Double the way
+     * JSONObject.stringToValue() does. Integers of up to 18 digits are
+     * decoded in place, without exceptions.
+     * @return The number, or null if the text is not a number.
+     */
+    static Object numberValue(char[] chars, int start, int end) {
+        char b = chars[start];
+        if (!((b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+')) {
+            return null;
+        }
+        int i = start;
+        boolean negative = b == '-';
+        if (negative || b == '+') {
+            i += 1;
+        }
+        boolean decimal = false;
+        if (end > i && end - i <= MAX_LONG_DIGITS) {
+            long value = 0;
+            for (; i < end; i += 1) {
+                char c = chars[i];
+                if (c < '0' || c > '9') {
+                    decimal = c == '.' || c == 'e' || c == 'E';
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (i == end) {
+                value = negative ? -value : value;
+                if ((int) value == value) {
+                    return Integer.valueOf((int) value);
+                }
+                return Long.valueOf(value);
+            }
+            if (decimal) {
+                double d = fastDouble(chars, start, end);
+                if (d == d) {
+                    return Double.valueOf(d);
+                }
+            }
+        }
+        String string = new String(chars, start, end - start);
+        try {
+            if (string.indexOf('.') > -1 ||
+                    string.indexOf('e') > -1 || string.indexOf('E') > -1) {
+                Double d = Double.valueOf(string);
+                if (!d.isInfinite() && !d.isNaN()) {
+                    return d;
+                }
+            } else {
+                Long myLong = Long.valueOf(string);
+                if (myLong.longValue() == myLong.intValue()) {
+                    return Integer.valueOf(myLong.intValue());
+                }
+                return myLong;
+            }
+        } catch (Exception ignore) {
+        }
+        return null;
+    }
+
+
+    /**
+     * Decode a plain JSON number with at most 15 digits and a power of ten
+     * no larger than 10^22. Both the digits and the power of ten are exact
+     * doubles then, so a single multiplication or division is correctly
+     * rounded.
+     * @return The number, or NaN if the text does not have that form.
+     */
+    private static double fastDouble(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i += 1;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i += 1) {
+            mantissa = mantissa * 10 + (chars[i] - '0');
+            digits += 1;
+        }
+        if (i < end && chars[i] == '.') {
+            for (i += 1; i < end && chars[i] >= '0' && chars[i] <= '9'; i += 1) {
+                mantissa = mantissa * 10 + (chars[i] - '0');
+                digits += 1;
+                scale -= 1;
+            }
+        }
+        if (digits == 0 || digits > 15) {
+            return Double.NaN;
+        }
+        if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i += 1;
+            boolean negativeExponent = false;
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExponent = chars[i] == '-';
+                i += 1;
+            }
+            int exponent = 0;
+            int exponentDigits = 0;
+            for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i += 1) {
+                if (exponent < 1000) {
+                    exponent = exponent * 10 + (chars[i] - '0');
+                }
+                exponentDigits += 1;
+            }
+            if (exponentDigits == 0) {
+                return Double.NaN;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (i != end || scale < -22 || scale > 22) {
+            return Double.NaN;
+        }
+        double d = mantissa;
+        d = scale < 0 ? d / POWERS_OF_TEN[-scale] : d * POWERS_OF_TEN[scale];
+        return negative ? -d : d;
+    }
+
+
+    private static boolean isUnquoted(char c) {
+        return c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0;
+    }
+
+
     /**
      * Skip characters until the next character is the requested character.
      * If the requested character is not found, no characters are skipped.
@@ -399,23 +935,19 @@ public class JSONTokener {
      */
     public char skipTo(char to) throws JSONException {
         char c;
+        int startPosition = this.position;
+        this.mark = startPosition;
         try {
-            long startIndex = this.index;
-            long startCharacter = this.character;
-            long startLine = this.line;
-            this.reader.mark(1000000);
             do {
                 c = this.next();
                 if (c == 0) {
-                    this.reader.reset();
-                    this.index = startIndex;
-                    this.character = startCharacter;
-                    this.line = startLine;
+                    this.position = this.mark;
+                    this.eof = false;
                     return c;
                 }
             } while (c != to);
-        } catch (IOException exc) {
-            throw new JSONException(exc);
+        } finally {
+            this.mark = -1;
         }
 
         this.back();
@@ -423,6 +955,48 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Start keeping the text read from the character just consumed on, so
+     * that endSpan() can return it. A new span replaces one still open.
+     */
+    void beginSpan() {
+        this.spanStart = this.position - 1;
+    }
+
+
+    /**
+     * Return the text read since beginSpan(), encoded as UTF-8, and stop
+     * keeping it.
+     *
+     * @return The bytes of the span, or null if no span is open.
+     */
+    byte[] endSpan() {
+        if (this.spanStart < 0) {
+            return null;
+        }
+        ByteBuffer bytes = Charset.forName("UTF-8").encode(CharBuffer.wrap(this.buffer,
+                this.spanStart, this.position - this.spanStart));
+        this.spanStart = -1;
+        return Arrays.copyOf(bytes.array(), bytes.limit());
+    }
+
+
+    /**
+     * Return a tokener over the text read since beginSpan(), and stop
+     * keeping it.
+     *
+     * @return A tokener over a copy of the span, or null if no span is open.
+     */
+    JSONTokener endSpanTokener() {
+        if (this.spanStart < 0) {
+            return null;
+        }
+        char[] span = Arrays.copyOfRange(this.buffer, this.spanStart, this.position);
+        this.spanStart = -1;
+        return new JSONTokener(span);
+    }
+
+
     /**
      * Make a JSONException to signal a syntax error.
      *
@@ -440,7 +1014,9 @@ public class JSONTokener {
      * @return " at {index} [character {character} line {line}]"
      */
     public String toString() {
-        return " at " + this.index + " [character " + this.character + " line " +
-            this.line + "]";
+        this.countLines(this.position);
+        long index = this.consumed + this.position;
+        return " at " + index + " [character " + (index - this.lineStart) +
+            " line " + this.line + "]";
     }
 }
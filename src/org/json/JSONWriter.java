@@ -2,6 +2,7 @@ package org.json;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Arrays;
 
 /*
 Copyright (c) 2006 JSON.org
@@ -76,9 +77,16 @@ public class JSONWriter {
     protected char mode;
 
     /**
-     * The object/array stack.
+     * The object/array stack. Each open object has the set of keys written
+     * so far; an open array has null. It grows with the nesting depth.
      */
-    private final JSONObject stack[];
+    private CompactMap stack[];
+
+    /**
+     * Key sets of the objects closed so far, by depth, reused by the next
+     * object opened at the same depth.
+     */
+    private CompactMap keys[];
 
     /**
      * The stack top index. A value of 0 indicates that the stack is empty.
@@ -96,7 +104,8 @@ public class JSONWriter {
     public JSONWriter(Writer w) {
         this.comma = false;
         this.mode = 'i';
-        this.stack = new JSONObject[maxdepth];
+        this.stack = new CompactMap[8];
+        this.keys = new CompactMap[8];
         this.top = 0;
         this.writer = w;
     }
@@ -111,12 +120,28 @@ public class JSONWriter {
         if (string == null) {
             throw new JSONException("Null pointer");
         }
+        return this.append((Object)string, false);
+    }
+
+    /**
+     * Append a value, writing it straight to the writer.
+     * @param value The value.
+     * @param quoted true if the value is to be written as a JSON value, false
+     *  if it is a string of JSON text to be written as it is.
+     * @return this
+     * @throws JSONException If the value is out of sequence.
+     */
+    private JSONWriter append(Object value, boolean quoted) throws JSONException {
         if (this.mode == 'o' || this.mode == 'a') {
             try {
                 if (this.comma && this.mode == 'a') {
                     this.writer.write(',');
                 }
-                this.writer.write(string);
+                if (quoted) {
+                    JSONObject.writeValue(this.writer, value, 0, 0);
+                } else {
+                    this.writer.write((String)value);
+                }
             } catch (IOException e) {
                 throw new JSONException(e);
             }
@@ -140,7 +165,7 @@ public class JSONWriter {
      */
     public JSONWriter array() throws JSONException {
         if (this.mode == 'i' || this.mode == 'o' || this.mode == 'a') {
-            this.push(null);
+            this.push(false);
             this.append("[");
             this.comma = false;
             return this;
@@ -205,11 +230,13 @@ public class JSONWriter {
         }
         if (this.mode == 'k') {
             try {
-                this.stack[this.top - 1].putOnce(string, Boolean.TRUE);
+                if (this.stack[this.top - 1].put(string, Boolean.TRUE) != null) {
+                    throw new JSONException("Duplicate key \"" + string + "\"");
+                }
                 if (this.comma) {
                     this.writer.write(',');
                 }
-                this.writer.write(JSONObject.quote(string));
+                JSONObject.quote(string, this.writer);
                 this.writer.write(':');
                 this.comma = false;
                 this.mode = 'o';
@@ -237,7 +264,7 @@ public class JSONWriter {
         }
         if (this.mode == 'o' || this.mode == 'a') {
             this.append("{");
-            this.push(new JSONObject());
+            this.push(true);
             this.comma = false;
             return this;
         }
@@ -269,15 +296,30 @@ public class JSONWriter {
 
     /**
      * Push an array or object scope.
-     * @param c The scope to open.
+     * @param object true to open an object, false to open an array.
      * @throws JSONException If nesting is too deep.
      */
-    private void push(JSONObject jo) throws JSONException {
+    private void push(boolean object) throws JSONException {
         if (this.top >= maxdepth) {
             throw new JSONException("Nesting too deep.");
         }
+        if (this.top == this.stack.length) {
+            int length = Math.min(maxdepth, this.top * 2);
+            this.stack = Arrays.copyOf(this.stack, length);
+            this.keys = Arrays.copyOf(this.keys, length);
+        }
+        CompactMap jo = null;
+        if (object) {
+            jo = this.keys[this.top];
+            if (jo == null) {
+                jo = new CompactMap();
+                this.keys[this.top] = jo;
+            } else {
+                jo.clear();
+            }
+        }
         this.stack[this.top] = jo;
-        this.mode = jo == null ? 'a' : 'k';
+        this.mode = object ? 'k' : 'a';
         this.top += 1;
     }
 
@@ -300,7 +342,7 @@ public class JSONWriter {
      * @throws JSONException If the number is not finite.
      */
     public JSONWriter value(double d) throws JSONException {
-        return this.value(new Double(d));
+        return this.value(Double.valueOf(d));
     }
 
     /**
@@ -322,6 +364,6 @@ public class JSONWriter {
      * @throws JSONException If the value is out of sequence.
      */
     public JSONWriter value(Object object) throws JSONException {
-        return this.append(JSONObject.valueToString(object));
+        return this.append(object, true);
     }
 }
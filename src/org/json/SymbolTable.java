@@ -0,0 +1,129 @@
+package org.json;
+
+/**
+ * A table of canonical key strings. The same few dozen keys appear in every
+ * object of an API response, so the tokener looks each key up here, by
+ * hashing the characters in its buffer, and only allocates a String for keys
+ * it has not seen before.
+ * <p>
+ * KNOWN holds the keys of the Instagram API. It is filled once and then only
+ * read, so every thread can share it; its strings are the literals the
+ * models look keys up with, which lets a CompactMap match them by identity.
+ * Tables for other keys belong to a single tokener.
+ */
+final class SymbolTable {
+
+    /**
+     * Keys longer than this are not worth keeping.
+     */
+    static final int MAX_LENGTH = 32;
+
+    /**
+     * The keys of the Instagram API.
+     */
+    static final SymbolTable KNOWN = new SymbolTable(256, new String[] {
+        "access_token", "attribution", "bio", "caption", "code", "comments",
+        "count", "counts", "created_time", "data", "error_message",
+        "error_type", "filter", "followed_by", "follows", "from",
+        "full_name", "height", "id", "images", "incoming_status",
+        "latitude", "likes", "link", "location", "longitude",
+        "low_resolution", "media", "media_count", "meta", "min_tag_id",
+        "name", "next_cursor", "next_max_id", "next_max_like_id",
+        "next_max_tag_id", "next_min_id", "next_url", "outgoing_status",
+        "pagination", "position", "profile_picture", "standard_resolution",
+        "tags", "target_user_is_private", "text", "thumbnail", "type",
+        "url", "user", "user_has_liked", "username", "users_in_photo",
+        "videos", "website", "width", "x", "y"
+    });
+
+    private final String[] symbols;
+    private final int[] hashes;
+    private final int capacity;
+    private int size;
+
+
+    /**
+     * Construct a table.
+     * @param slots The number of slots, a power of two.
+     * @param keys Keys to start with.
+     */
+    SymbolTable(int slots, String[] keys) {
+        this.symbols = new String[slots];
+        this.hashes = new int[slots];
+        this.capacity = slots >> 1;
+        for (int i = 0; i < keys.length; i++) {
+            add(keys[i], keys[i].hashCode());
+        }
+    }
+
+
+    /**
+     * Get the canonical string for some characters, adding it if the table
+     * has room.
+     * @param chars The buffer holding the characters.
+     * @param start The index of the first character.
+     * @param end The index just past the last character.
+     * @param hash The characters' String.hashCode().
+     * @return The canonical string, or a new one if the table is full.
+     */
+    String get(char[] chars, int start, int end, int hash) {
+        String symbol = find(chars, start, end, hash);
+        if (symbol == null) {
+            symbol = new String(chars, start, end - start);
+            if (end - start <= MAX_LENGTH) {
+                add(symbol, hash);
+            }
+        }
+        return symbol;
+    }
+
+
+    /**
+     * Find the canonical string for some characters.
+     * @return The string, or null if the table does not hold it.
+     */
+    String find(char[] chars, int start, int end, int hash) {
+        int mask = this.symbols.length - 1;
+        int length = end - start;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            String symbol = this.symbols[slot];
+            if (symbol == null) {
+                return null;
+            }
+            if (this.hashes[slot] == hash && symbol.length() == length
+                    && matches(symbol, chars, start)) {
+                return symbol;
+            }
+        }
+    }
+
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+
+    private static boolean matches(String symbol, char[] chars, int start) {
+        for (int i = 0; i < symbol.length(); i++) {
+            if (symbol.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private void add(String symbol, int hash) {
+        if (this.size >= this.capacity) {
+            return;
+        }
+        int mask = this.symbols.length - 1;
+        int slot = spread(hash) & mask;
+        while (this.symbols[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        this.symbols[slot] = symbol;
+        this.hashes[slot] = hash;
+        this.size += 1;
+    }
+}
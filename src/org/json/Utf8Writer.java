@@ -0,0 +1,227 @@
+package org.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A Writer that encodes what it is given as UTF-8 straight into a byte
+ * buffer, and drains the buffer to an OutputStream or a WritableByteChannel
+ * whenever it fills. No String or char[] is built for the whole text, so
+ * JSONObject.write(), JSONArray.write() and JSONWriter can stream JSON of
+ * any size with a fixed amount of memory.
+ * <p>
+ * The buffer is borrowed from the writing thread and given back by finish()
+ * or close(), so writing many texts one after the other on the same thread
+ * allocates no new buffer. A Utf8Writer must only be used by one thread.
+ */
+public class Utf8Writer extends Writer {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>();
+
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private byte[] bytes;
+    private int position;
+    private char highSurrogate;
+
+
+    /**
+     * Construct a Utf8Writer that writes to an OutputStream.
+     * @param out The stream.
+     */
+    public Utf8Writer(OutputStream out) {
+        this(out, null);
+    }
+
+
+    /**
+     * Construct a Utf8Writer that writes to a channel.
+     * @param channel The channel.
+     */
+    public Utf8Writer(WritableByteChannel channel) {
+        this(null, channel);
+    }
+
+
+    private Utf8Writer(OutputStream out, WritableByteChannel channel) {
+        this.out = out;
+        this.channel = channel;
+        this.buffer = BUFFERS.get();
+        if (this.buffer == null) {
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        } else {
+            BUFFERS.set(null);
+        }
+        this.bytes = this.buffer.array();
+    }
+
+
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (this.position > this.bytes.length - 4) {
+            drain();
+        }
+        encode((char)c);
+    }
+
+
+    public void write(char[] chars, int offset, int length) throws IOException {
+        ensureOpen();
+        int end = offset + length;
+        for (int i = offset; i < end; i += 1) {
+            if (this.position > this.bytes.length - 4) {
+                drain();
+            }
+            char c = chars[i];
+            if (c < 0x80 && this.highSurrogate == 0) {
+                this.bytes[this.position++] = (byte)c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+
+    public void write(String string, int offset, int length) throws IOException {
+        ensureOpen();
+        int end = offset + length;
+        for (int i = offset; i < end; i += 1) {
+            if (this.position > this.bytes.length - 4) {
+                drain();
+            }
+            char c = string.charAt(i);
+            if (c < 0x80 && this.highSurrogate == 0) {
+                this.bytes[this.position++] = (byte)c;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+
+    public void write(String string) throws IOException {
+        write(string, 0, string.length());
+    }
+
+
+    /**
+     * Encode one char. The caller has made room for four bytes.
+     */
+    private void encode(char c) {
+        byte[] bytes = this.bytes;
+        if (this.highSurrogate != 0) {
+            char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                bytes[this.position++] = (byte)(0xf0 | (codePoint >> 18));
+                bytes[this.position++] = (byte)(0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[this.position++] = (byte)(0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[this.position++] = (byte)(0x80 | (codePoint & 0x3f));
+                return;
+            }
+            // an unpaired surrogate; c still fits in the three bytes left
+            bytes[this.position++] = '?';
+        }
+        if (c < 0x80) {
+            bytes[this.position++] = (byte)c;
+        } else if (c < 0x800) {
+            bytes[this.position++] = (byte)(0xc0 | (c >> 6));
+            bytes[this.position++] = (byte)(0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            this.highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            bytes[this.position++] = '?';
+        } else {
+            bytes[this.position++] = (byte)(0xe0 | (c >> 12));
+            bytes[this.position++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+            bytes[this.position++] = (byte)(0x80 | (c & 0x3f));
+        }
+    }
+
+
+    /**
+     * Write the buffered bytes to the stream or channel.
+     */
+    private void drain() throws IOException {
+        if (this.position == 0) {
+            return;
+        }
+        if (this.out != null) {
+            this.out.write(this.bytes, 0, this.position);
+        } else {
+            this.buffer.clear();
+            this.buffer.limit(this.position);
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+        }
+        this.position = 0;
+    }
+
+
+    private void ensureOpen() throws IOException {
+        if (this.bytes == null) {
+            throw new IOException("Writer finished");
+        }
+    }
+
+
+    /**
+     * Write the buffered bytes and flush the stream.
+     */
+    public void flush() throws IOException {
+        ensureOpen();
+        drain();
+        if (this.out != null) {
+            this.out.flush();
+        }
+    }
+
+
+    /**
+     * Write the buffered bytes and give the buffer back to the thread,
+     * leaving the stream or channel open for more output. A high surrogate
+     * still waiting for its pair is written as '?'.
+     */
+    public void finish() throws IOException {
+        if (this.bytes == null) {
+            return;
+        }
+        if (this.highSurrogate != 0) {
+            this.highSurrogate = 0;
+            this.bytes[this.position++] = '?';
+        }
+        try {
+            drain();
+        } finally {
+            this.buffer.clear();
+            BUFFERS.set(this.buffer);
+            this.buffer = null;
+            this.bytes = null;
+            this.position = 0;
+        }
+    }
+
+
+    /**
+     * Finish, then close the stream or channel.
+     */
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            if (this.out != null) {
+                this.out.close();
+            } else {
+                this.channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.sola.instagram.InstagramSession;
+import com.sola.instagram.auth.AccessToken;
+import com.sola.instagram.exception.RateLimitException;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.model.Media;
+import com.sola.instagram.model.Relationship;
+import com.sola.instagram.model.Tag;
+import com.sola.instagram.model.VideoMedia;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+public class DirectBindingTest {
+
+	/**
+	 * Answers each path with a canned body, without a server
+	 */
+	static class StubTransport extends HttpTransport {
+		@Override
+		public HttpResponse execute(HttpUriRequest request, String accessToken)
+				throws IOException, RateLimitException {
+			String path = request.getURI().getPath();
+			String body;
+			if (path.endsWith("/tags/search")) {
+				body = "{\"meta\":{\"code\":200},\"data\":[{\"media_count\":3,\"name\":\"a\"},"
+						+ "{\"name\":\"b\",\"media_count\":null,\"extra\":[1,{\"x\":2}]}]}";
+			} else if (path.endsWith("/tags/twice")) {
+				// a JSONObject rejects the repeated key, a reader does not
+				body = "{\"meta\":{\"code\":200},\"meta\":{\"code\":200},"
+						+ "\"data\":{\"media_count\":2,\"name\":\"twice\"}}";
+			} else if (path.startsWith("/v1/tags/")) {
+				body = "{\"data\":{\"media_count\":472,\"name\":\"nofilter\"},\"meta\":{\"code\":200}}";
+			} else if (path.endsWith("/relationship")) {
+				body = "{\"meta\":{\"code\":200},\"data\":{\"outgoing_status\":\"requested\","
+						+ "\"incoming_status\":\"followed_by\",\"target_user_is_private\":true}}";
+			} else if (path.endsWith("/media/popular")) {
+				body = "{\"meta\":{\"code\":200},\"data\":[" + ModelRetentionTest.VIDEO + "]}";
+			} else {
+				body = "{\"meta\":{\"code\":200}}";
+			}
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+			response.setEntity(new StringEntity(body, "UTF-8"));
+			return response;
+		}
+	}
+
+	InstagramSession session = new InstagramSession(new AccessToken("token"), new StubTransport());
+
+	@After
+	public void tearDown() {
+		session.close();
+	}
+
+	@Test
+	public void bindsTagsFromTheStream() throws Exception {
+		Tag tag = session.getTag("nofilter");
+		assertEquals("nofilter", tag.getName());
+		assertEquals(472, tag.getMediaCount());
+
+		List<Tag> tags = session.searchTags("a");
+		assertEquals(2, tags.size());
+		assertEquals(3, tags.get(0).getMediaCount());
+		assertEquals("b", tags.get(1).getName());
+	}
+
+	@Test
+	public void readingDataParsesNoResponse() throws Exception {
+		// goes through the retries and single-flight of the default transport,
+		// which would fail here if either of them parsed the body
+		Tag tag = session.getTag("twice");
+		assertEquals("twice", tag.getName());
+		assertEquals(2, tag.getMediaCount());
+	}
+
+	@Test
+	public void bindsRelationshipsFromTheStream() throws Exception {
+		Relationship relationship = session.getRelationshipWith(5);
+		assertEquals(Relationship.OutgoingStatus.REQUESTED, relationship.getOutgoingStatus());
+		assertEquals(Relationship.IncomingStatus.FOLLOWED_BY, relationship.getIncomingStatus());
+		assertTrue(relationship.targetUserIsPrivate());
+	}
+
+	@Test
+	public void bindsVideoMediaFromTheStream() throws Exception {
+		List<Media> media = session.getPopularMedia();
+		assertEquals(1, media.size());
+		assertTrue(media.get(0) instanceof VideoMedia);
+		assertEquals("http://v/s.mp4",
+				((VideoMedia) media.get(0)).getStandardResolutionVideo().getUri());
+	}
+
+	@Test
+	public void treeRetentionKeepsTheApiJson() throws Exception {
+		JSONObject tag = new JSONObject(session.searchTags("a").get(1).toString());
+		assertEquals("b", tag.getString("name"));
+		assertTrue(tag.isNull("media_count"));
+		assertEquals(2, tag.getJSONArray("extra").getJSONObject(1).getInt("x"));
+
+		Media media = session.getPopularMedia().get(0);
+		assertEquals(new JSONObject(ModelRetentionTest.VIDEO).toString(), media.toString());
+		assertEquals("hi", new JSONObject(media.toString()).getJSONObject("comments")
+				.getJSONArray("data").getJSONObject(0).getString("text"));
+	}
+
+	@Test(expected = org.json.JSONException.class)
+	public void missingDataIsAnError() throws Exception {
+		session.getLocation(1);
+	}
+}
@@ -0,0 +1,156 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.sola.instagram.InstagramSession;
+import com.sola.instagram.auth.AccessToken;
+import com.sola.instagram.exception.RateLimitException;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.model.Relationship;
+import com.sola.instagram.util.EntityCache;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+public class EntityCacheTest {
+
+	/**
+	 * Answers media, relationship, like and comment requests with canned 
+	 * bodies, and records each request it gets
+	 */
+	static class RecordingTransport extends HttpTransport {
+		List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public HttpResponse execute(HttpUriRequest request, String accessToken)
+				throws IOException, RateLimitException {
+			String path = request.getURI().getPath();
+			requests.add(request.getMethod() + " " + path);
+			String body = "{\"meta\":{\"code\":200}}";
+			if (path.endsWith("/comments")) {
+				body = "{\"meta\":{\"code\":200},\"data\":{\"id\":\"c2\",\"created_time\":\"2\","
+						+ "\"text\":\"nice\",\"from\":" + ModelRetentionTest.USER + "}}";
+			} else if (request.getMethod().equals("GET") && path.endsWith("/relationship")) {
+				body = "{\"meta\":{\"code\":200},\"data\":{\"outgoing_status\":\"none\","
+						+ "\"incoming_status\":\"none\",\"target_user_is_private\":false}}";
+			} else if (request.getMethod().equals("GET") && path.startsWith("/v1/media/")) {
+				body = "{\"meta\":{\"code\":200},\"data\":" + ModelRetentionTest.VIDEO + "}";
+			}
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+			response.setEntity(new StringEntity(body, "UTF-8"));
+			return response;
+		}
+
+		int count(String request) {
+			return Collections.frequency(requests, request);
+		}
+	}
+
+	@Test
+	public void mutationsInvalidateTheSessionCaches() throws Exception {
+		RecordingTransport transport = new RecordingTransport();
+		InstagramSession session = new InstagramSession(new AccessToken("token"), transport);
+		try {
+			session.getMedia("m1");
+			session.getMedia("m1");
+			assertEquals(1, transport.count("GET /v1/media/m1"));
+
+			session.likeMedia("m1");
+			session.getMedia("m1");
+			assertEquals(2, transport.count("GET /v1/media/m1"));
+
+			session.removeMediaLike("m1");
+			session.getMedia("m1");
+			assertEquals(3, transport.count("GET /v1/media/m1"));
+
+			session.postComment("m1", "nice");
+			session.getMedia("m1");
+			assertEquals(4, transport.count("GET /v1/media/m1"));
+
+			session.getRelationshipWith(5);
+			session.getRelationshipWith(5);
+			assertEquals(1, transport.count("GET /v1/users/5/relationship"));
+
+			session.modifyRelationship(5, Relationship.Action.FOLLOW);
+			session.getRelationshipWith(5);
+			assertEquals(2, transport.count("GET /v1/users/5/relationship"));
+		} finally {
+			session.close();
+		}
+	}
+
+	@Test
+	public void countsHitsAndMisses() {
+		EntityCache<String, String> cache =
+				new EntityCache<String, String>(10, 1, TimeUnit.MINUTES);
+		assertNull(cache.get("a"));
+		cache.put("a", "1");
+		assertEquals("1", cache.get("a"));
+		assertEquals("1", cache.get("a"));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		EntityCache<Integer, String> cache =
+				new EntityCache<Integer, String>(2, 1, TimeUnit.MINUTES);
+		cache.put(1, "one");
+		cache.put(2, "two");
+		cache.get(1);
+		cache.put(3, "three");
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.get(2));
+		assertEquals("one", cache.get(1));
+		assertEquals("three", cache.get(3));
+
+		cache.setMaxSize(1);
+		assertEquals(1, cache.size());
+		assertEquals("three", cache.get(3));
+	}
+
+	@Test
+	public void expiresEntries() throws InterruptedException {
+		EntityCache<String, String> cache =
+				new EntityCache<String, String>(10, 20, TimeUnit.MILLISECONDS);
+		cache.put("a", "1");
+		assertEquals("1", cache.get("a"));
+		Thread.sleep(40);
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void invalidatesEntries() {
+		EntityCache<String, String> cache =
+				new EntityCache<String, String>(10, 1, TimeUnit.MINUTES);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.invalidate("a");
+		assertNull(cache.get("a"));
+		assertEquals("2", cache.get("b"));
+		cache.invalidateAll();
+		assertNull(cache.get("b"));
+	}
+
+	@Test
+	public void disabledCacheStoresNothing() {
+		EntityCache<String, String> cache =
+				new EntityCache<String, String>(0, 1, TimeUnit.MINUTES);
+		assertEquals("1", cache.put("a", "1"));
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,127 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sola.instagram.InstagramSessionPool;
+import com.sola.instagram.auth.AccessToken;
+import com.sola.instagram.exception.RateLimitException;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.io.RateLimits;
+import com.sola.instagram.model.User;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InstagramSessionPoolTest {
+
+	/**
+	 * Answers requests without a server and records the token each one was
+	 * made with. Token "b" is rejected once revoked is set.
+	 */
+	static class StubTransport extends HttpTransport {
+		List<String> tokens = new CopyOnWriteArrayList<String>();
+		volatile boolean revoked;
+
+		@Override
+		public HttpResponse execute(HttpUriRequest request, String accessToken)
+				throws IOException, RateLimitException {
+			RateLimits limits = getRateLimits();
+			limits.acquire(accessToken);
+			tokens.add(accessToken);
+			BasicHttpResponse response;
+			if (revoked && "b".equals(accessToken)) {
+				response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 400, "Bad Request");
+				response.setEntity(new StringEntity("{\"meta\":{\"code\":400,\"error_type\":"
+						+ "\"OAuthAccessTokenException\"}}", "UTF-8"));
+			} else {
+				response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+				String path = request.getURI().getPath();
+				String id = path.substring(path.lastIndexOf('/') + 1);
+				response.setEntity(new StringEntity(path.endsWith("/likes")
+						? "{\"meta\":{\"code\":200}}"
+						: "{\"meta\":{\"code\":200},\"data\":{\"id\":\"" + id
+						+ "\",\"username\":\"u\",\"full_name\":\"U\",\"profile_picture\":\"p\"}}",
+						"UTF-8"));
+			}
+			limits.update(accessToken, response);
+			limits.checkRevoked(accessToken, response);
+			return response;
+		}
+	}
+
+	StubTransport transport;
+	InstagramSessionPool pool;
+
+	@Before
+	public void setUp() {
+		transport = new StubTransport();
+		pool = new InstagramSessionPool(new AccessToken("a"),
+				Arrays.asList(new AccessToken("b"), new AccessToken("c")), transport);
+		RateLimits limits = transport.getRateLimits();
+		limits.getLimiter("a").update(5000, 10);
+		limits.getLimiter("b").update(5000, 300);
+		limits.getLimiter("c").update(5000, 200);
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+	}
+
+	@Test
+	public void readsUseTheTokenWithTheMostQuota() throws Exception {
+		User user = pool.getUserById(1);
+		assertEquals(1, user.getId());
+		assertEquals(Arrays.asList("b"), transport.tokens);
+		assertEquals(3, pool.getSessions().size());
+	}
+
+	@Test
+	public void mutationsUseTheOwner() throws Exception {
+		assertTrue(pool.likeMedia("m1"));
+		assertTrue(pool.removeMediaLike("m1"));
+		assertEquals(Arrays.asList("a", "a"), transport.tokens);
+	}
+
+	@Test
+	public void revokedTokensLeaveTheRotation() throws Exception {
+		transport.revoked = true;
+		assertEquals(2, pool.getUserById(2).getId());
+		assertEquals(Arrays.asList("b", "c"), transport.tokens);
+		assertTrue(transport.getRateLimits().isRevoked("b"));
+		assertEquals(2, pool.getActiveCount());
+
+		pool.getUserById(3);
+		assertEquals(Arrays.asList("b", "c", "c"), transport.tokens);
+	}
+
+	@Test
+	public void exhaustedTokensFailOver() throws Exception {
+		RateLimits limits = transport.getRateLimits().setPolicy(RateLimits.Policy.FAIL_FAST);
+		// a quota of one request an hour does not refill during the test
+		limits.getLimiter("b").update(1, 1);
+		limits.getLimiter("c").update(1, 1);
+		limits.getLimiter("a").update(1, 0);
+		pool.getUserById(4);
+		pool.getUserById(5);
+		assertEquals(2, transport.tokens.size());
+		assertFalse(transport.tokens.contains("a"));
+		try {
+			pool.getUserById(6);
+			fail("every quota is used up");
+		} catch (RateLimitException e) {
+			assertEquals(2, transport.tokens.size());
+		}
+	}
+}
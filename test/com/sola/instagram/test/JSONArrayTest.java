@@ -0,0 +1,67 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Test;
+
+public class JSONArrayTest {
+
+	@Test
+	public void keepsNumbersUnboxed() throws Exception {
+		JSONArray counts = new JSONArray();
+		for (int i = 0; i < 100; i++) {
+			counts.put(i * 3);
+		}
+		assertEquals(100, counts.length());
+		assertEquals(297, counts.getInt(99));
+		assertEquals(Integer.valueOf(6), counts.get(2));
+		assertArrayEquals(new long[] {0, 3, 6}, Arrays.copyOf(counts.toLongArray(), 3));
+		assertEquals(99 * 3, counts.toIntArray()[99]);
+	}
+
+	@Test
+	public void parsesHomogeneousArrays() throws Exception {
+		JSONArray coordinates = new JSONArray("[37.77,-122.38,0.5]");
+		assertArrayEquals(new double[] {37.77, -122.38, 0.5}, coordinates.toDoubleArray(), 0);
+		assertEquals("[37.77,-122.38,0.5]", coordinates.toString());
+		assertEquals(Double.valueOf(0.5), coordinates.get(2));
+
+		JSONArray times = new JSONArray("[1279340983000,1279340984000]");
+		assertEquals(Long.valueOf(1279340984000L), times.get(1));
+		assertEquals(1279340983000L, times.getLong(0));
+	}
+
+	@Test
+	public void switchesToObjectsForOtherValues() throws Exception {
+		JSONArray array = new JSONArray(new int[] {1, 2, 3});
+		array.put("four").put(5L);
+		assertEquals("[1,2,3,\"four\",5]", array.toString());
+		assertEquals(Integer.valueOf(1), array.get(0));
+		assertEquals(Long.valueOf(5), array.get(4));
+		assertEquals(2, array.getInt(1));
+
+		JSONArray mixed = new JSONArray("[1,2.5,null]");
+		assertEquals(Integer.valueOf(1), mixed.get(0));
+		assertEquals(Double.valueOf(2.5), mixed.get(1));
+		assertTrue(mixed.isNull(2));
+	}
+
+	@Test
+	public void replacesAndRemovesPrimitives() throws Exception {
+		JSONArray array = new JSONArray(new long[] {10, 20, 30});
+		array.put(1, 25L);
+		assertEquals(Long.valueOf(10), array.remove(0));
+		assertArrayEquals(new long[] {25, 30}, array.toLongArray());
+		array.put(0, 2.5);
+		assertEquals("[2.5,30]", array.toString());
+	}
+
+	@Test(expected = JSONException.class)
+	public void rejectsNonFiniteDoubles() throws Exception {
+		new JSONArray(new double[] {1, Double.NaN});
+	}
+}
@@ -0,0 +1,100 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class JSONObjectTest {
+
+	static List<String> keys(JSONObject json) {
+		List<String> keys = new ArrayList<String>();
+		Iterator<?> i = json.keys();
+		while (i.hasNext()) {
+			keys.add((String) i.next());
+		}
+		return keys;
+	}
+
+	@Test
+	public void keepsInsertionOrder() throws Exception {
+		JSONObject json = new JSONObject("{\"z\":1,\"a\":2,\"m\":3}");
+		assertEquals("{\"z\":1,\"a\":2,\"m\":3}", json.toString());
+		json.put("b", 4).put("z", 5);
+		assertEquals("[z, a, m, b]", keys(json).toString());
+		json.remove("a");
+		assertEquals("{\"z\":5,\"m\":3,\"b\":4}", json.toString());
+	}
+
+	@Test
+	public void growsPastTheLinearScan() throws Exception {
+		JSONObject json = new JSONObject();
+		for (int i = 0; i < 100; i++) {
+			json.put("k" + i, i);
+		}
+		assertEquals(100, json.length());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, json.getInt("k" + i));
+		}
+		assertFalse(json.has("k100"));
+		for (int i = 0; i < 100; i += 2) {
+			json.remove("k" + i);
+		}
+		assertEquals(50, json.length());
+		assertEquals("k1", keys(json).get(0));
+		assertEquals(99, json.getInt("k99"));
+		assertFalse(json.has("k98"));
+		for (int i = 1; i < 100; i += 2) {
+			if (i > 5) {
+				json.remove("k" + i);
+			}
+		}
+		assertEquals("[k1, k3, k5]", keys(json).toString());
+		assertEquals(5, json.getInt("k5"));
+	}
+
+	@Test
+	public void behavesLikeAHashMap() throws Exception {
+		Random random = new Random(7);
+		JSONObject json = new JSONObject();
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		for (int i = 0; i < 5000; i++) {
+			String key = "k" + random.nextInt(40);
+			if (random.nextInt(3) == 0) {
+				json.remove(key);
+				expected.remove(key);
+			} else {
+				json.put(key, i);
+				expected.put(key, i);
+			}
+			assertEquals(expected.size(), json.length());
+		}
+		for (Map.Entry<String, Integer> e : expected.entrySet()) {
+			assertEquals(e.getValue().intValue(), json.getInt(e.getKey()));
+		}
+		assertEquals(expected.keySet(), new java.util.HashSet<String>(keys(json)));
+	}
+
+	@Test
+	public void keysCanBeRemovedWhileIterating() throws Exception {
+		JSONObject json = new JSONObject();
+		for (int i = 0; i < 12; i++) {
+			json.put("k" + i, i);
+		}
+		Iterator<?> i = json.keys();
+		while (i.hasNext()) {
+			if (((String) i.next()).length() == 2) {
+				i.remove();
+			}
+		}
+		assertEquals("[k10, k11]", keys(json).toString());
+		assertEquals(11, json.getInt("k11"));
+	}
+}
@@ -0,0 +1,127 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import com.sola.instagram.model.Comment;
+import com.sola.instagram.model.ImageMedia;
+import com.sola.instagram.model.Media;
+import com.sola.instagram.model.User;
+import com.sola.instagram.model.VideoMedia;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONReader;
+import org.junit.Test;
+
+public class JSONReaderTest {
+
+	static final String USER = "{\"username\":\"jack\",\"id\":\"66\","
+			+ "\"full_name\":\"Jack Dorsey\",\"profile_picture\":\"http://a/b.jpg\","
+			+ "\"website\":null,\"counts\":{\"media\":5,\"follows\":7,\"followed_by\":9}}";
+
+	static final String MEDIA = "{\"type\":\"image\",\"filter\":\"Earlybird\","
+			+ "\"tags\":[\"expobar\"],"
+			+ "\"comments\":{\"count\":2,\"data\":[{\"id\":\"1\",\"text\":\"a\","
+			+ "\"from\":" + USER + ",\"created_time\":\"1\"},"
+			+ "{\"id\":\"2\",\"text\":\"b\",\"from\":" + USER + ",\"created_time\":\"2\"}]},"
+			+ "\"caption\":null,"
+			+ "\"likes\":{\"count\":1,\"data\":[" + USER + "]},"
+			+ "\"link\":\"http://instagr.am/p/D/\","
+			+ "\"user\":" + USER + ","
+			+ "\"created_time\":\"1279340983\","
+			+ "\"images\":{\"low_resolution\":{\"url\":\"l.jpg\",\"width\":306,\"height\":306},"
+			+ "\"thumbnail\":{\"url\":\"t.jpg\",\"width\":150,\"height\":150},"
+			+ "\"standard_resolution\":{\"url\":\"s.jpg\",\"width\":612,\"height\":612}},"
+			+ "\"id\":\"3\",\"location\":null,\"user_has_liked\":true,"
+			+ "\"users_in_photo\":[{\"user\":" + USER + ",\"position\":{\"x\":0.25,\"y\":0.5}}]}";
+
+	@Test
+	public void readsTokens() throws JSONException {
+		JSONReader reader = new JSONReader("{\"a\":[1,\"x\",true,null],\"b\":2.5}");
+		assertEquals(JSONReader.Token.BEGIN_OBJECT, reader.peek());
+		reader.beginObject();
+		assertEquals("a", reader.nextName());
+		reader.beginArray();
+		assertEquals(1, reader.nextInt());
+		assertEquals("x", reader.nextString());
+		assertTrue(reader.nextBoolean());
+		reader.nextNull();
+		assertFalse(reader.hasNext());
+		reader.endArray();
+		assertEquals("b", reader.nextName());
+		assertEquals(2.5, reader.nextDouble(), 0);
+		reader.endObject();
+		assertEquals(JSONReader.Token.END_DOCUMENT, reader.peek());
+	}
+
+	@Test
+	public void skipsNestedValues() throws JSONException {
+		JSONReader reader = new JSONReader(
+				"{\"skip\":{\"a\":[{\"b\":\"}]\\\"\"},[]]},\"keep\":\"k\"}");
+		reader.beginObject();
+		assertEquals("skip", reader.nextName());
+		reader.skipValue();
+		assertEquals("keep", reader.nextName());
+		assertEquals("k", reader.nextString());
+		reader.endObject();
+	}
+
+	@Test(expected = JSONException.class)
+	public void rejectsMismatchedTokens() throws JSONException {
+		JSONReader reader = new JSONReader("[1]");
+		reader.beginObject();
+	}
+
+	@Test
+	public void bindsUser() throws Exception {
+		User user = new User(new JSONReader(USER), "token");
+		assertEquals(66, user.getId());
+		assertEquals("jack", user.getUserName());
+		assertEquals("Jack Dorsey", user.getFullName());
+		assertEquals("", user.getWebsite());
+		assertEquals(7, user.getFollowingCount());
+		assertEquals(9, user.getFollowerCount());
+		assertEquals(5, user.getMediaCount());
+	}
+
+	@Test
+	public void bindsCommentLikeTheTree() throws JSONException {
+		String json = "{\"id\":\"1\",\"text\":\"a\",\"from\":" + USER
+				+ ",\"created_time\":\"1\"}";
+		Comment fromReader = new Comment(new JSONReader(json), "token");
+		Comment fromTree = new Comment(new JSONObject(json), "token");
+		assertEquals(fromTree.getId(), fromReader.getId());
+		assertEquals(fromTree.getText(), fromReader.getText());
+		assertEquals(fromTree.getCreatedTimestamp(), fromReader.getCreatedTimestamp());
+		assertEquals(fromTree.getSender(), fromReader.getSender());
+	}
+
+	@Test
+	public void bindsImageMedia() throws JSONException {
+		Media media = Media.fromJSON(new JSONReader(MEDIA), "token");
+		assertTrue(media instanceof ImageMedia);
+		assertEquals("3", media.getId());
+		assertEquals("Earlybird", media.getFilter());
+		assertNull(media.getCaption());
+		assertNull(media.getLocation());
+		assertTrue(media.userHasLikedMedia());
+		assertEquals(66, media.getUser().getId());
+		assertEquals("s.jpg", media.getStandardResolutionImage().getUri());
+		assertEquals(150, media.getThumbnailImage().getWidth());
+		assertEquals(1, media.getTags().size());
+		assertEquals(0.25, media.getUsersInPhoto().get(0).getX(), 0);
+	}
+
+	@Test
+	public void bindsVideoMedia() throws JSONException {
+		String json = "{\"videos\":{\"low_resolution\":{\"url\":\"l.mp4\",\"width\":480,\"height\":480},"
+				+ "\"standard_resolution\":{\"url\":\"s.mp4\",\"width\":640,\"height\":640}},"
+				+ "\"images\":{},\"id\":\"4\",\"type\":\"video\",\"user\":" + USER + "}";
+		Media media = Media.fromJSON(new JSONReader(json), "token");
+		assertTrue(media instanceof VideoMedia);
+		VideoMedia video = (VideoMedia) media;
+		assertEquals("4", video.getId());
+		assertEquals("s.mp4", video.getStandardResolutionVideo().getUri());
+		assertEquals(480, video.getLowResolutionVideo().getWidth());
+	}
+}
@@ -0,0 +1,202 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Random;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.Test;
+
+public class JSONTokenerTest {
+
+	static final String JSON = "{\"name\":\"caf\\u00e9 \\\"au\\\" lait\\n\","
+			+ "\"tags\":[\"a\",\"b\\/c\"],\"count\":12,\"ratio\":-0.5,\"ok\":true,"
+			+ "\"none\":null,\"long\":\"" + repeat('x', 20000) + "\"}";
+
+	/**
+	 * Hands out at most three chars per read, so tokens keep crossing
+	 * buffer refills
+	 */
+	static class TrickleReader extends StringReader {
+		TrickleReader(String s) {
+			super(s);
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws java.io.IOException {
+			return super.read(cbuf, off, Math.min(len, 3));
+		}
+	}
+
+	static String repeat(char c, int n) {
+		StringBuilder sb = new StringBuilder(n);
+		for (int i = 0; i < n; i++) {
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private void assertParsed(JSONObject object) throws JSONException {
+		assertEquals("café \"au\" lait\n", object.getString("name"));
+		assertEquals("b/c", object.getJSONArray("tags").getString(1));
+		assertEquals(12, object.getInt("count"));
+		assertEquals(-0.5, object.getDouble("ratio"), 0);
+		assertTrue(object.getBoolean("ok"));
+		assertTrue(object.isNull("none"));
+		assertEquals(20000, object.getString("long").length());
+	}
+
+	@Test
+	public void parsesFromEverySource() throws Exception {
+		assertParsed(new JSONObject(new JSONTokener(JSON)));
+		assertParsed(new JSONObject(new JSONTokener(JSON.toCharArray())));
+		assertParsed(new JSONObject(new JSONTokener(JSON.getBytes("UTF-8"))));
+		assertParsed(new JSONObject(new JSONTokener(new StringReader(JSON))));
+		assertParsed(new JSONObject(new JSONTokener(new TrickleReader(JSON))));
+	}
+
+	@Test
+	public void readsPartOfAnArray() throws JSONException {
+		char[] chars = "xx[1,2]yy".toCharArray();
+		JSONArray array = new JSONArray(new JSONTokener(chars, 2, 5));
+		assertEquals(2, array.length());
+		assertEquals(2, array.getInt(1));
+	}
+
+	@Test
+	public void decodesMultiByteCharacters() throws Exception {
+		String json = "[\"日本\",\"😀\"]";
+		JSONArray array = new JSONArray(new JSONTokener(json.getBytes("UTF-8")));
+		assertEquals("日本", array.getString(0));
+		assertEquals("😀", array.getString(1));
+	}
+
+	@Test
+	public void reportsPositionOfSyntaxErrors() {
+		Reader reader = new TrickleReader("{\"a\":1,\n\"b\":2,\n\"c\" 3}");
+		try {
+			new JSONObject(new JSONTokener(reader));
+			fail();
+		} catch (JSONException e) {
+			assertTrue(e.getMessage(), e.getMessage().endsWith("line 3]"));
+		}
+	}
+
+	@Test
+	public void rejectsUnterminatedStrings() {
+		for (String json : new String[] { "[\"abc", "[\"ab\nc\"]", "[\"a\\" }) {
+			try {
+				new JSONArray(new JSONTokener(new TrickleReader(json)));
+				fail(json);
+			} catch (JSONException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void backsUpOnlyOnce() throws JSONException {
+		JSONTokener x = new JSONTokener("ab");
+		assertEquals('a', x.next());
+		x.back();
+		assertEquals('a', x.next());
+		assertEquals('b', x.next());
+		x.back();
+		try {
+			x.back();
+			fail();
+		} catch (JSONException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void skipsToCharacter() throws JSONException {
+		JSONTokener x = new JSONTokener(new TrickleReader("abcdefgh"));
+		assertEquals('f', x.skipTo('f'));
+		assertEquals('f', x.next());
+		assertEquals(0, x.skipTo('z'));
+		assertEquals('g', x.next());
+	}
+
+	@Test
+	public void convertsNumbersLikeStringToValue() throws JSONException {
+		String[] texts = { "0", "-0", "42", "+7", "-2147483648", "2147483648",
+				"123456789012345678", "1234567890123456789", "99999999999999999999",
+				"1.5", "-0.25", "1e3", "2E-2", ".5", "1.", "1.5f", "1e400", "-",
+				"12a", "0x1F", "007", "37.780716" };
+		for (String text : texts) {
+			Object expected = JSONObject.stringToValue(text);
+			Object actual = new JSONTokener(text).nextValue();
+			assertEquals(text, expected, actual);
+			assertEquals(text, expected.getClass(), actual.getClass());
+		}
+		assertEquals(Integer.valueOf(42), JSONObject.stringToValue("42"));
+		assertEquals(Long.valueOf(2147483648L), JSONObject.stringToValue("2147483648"));
+		assertEquals(Double.valueOf(0.02), JSONObject.stringToValue("2E-2"));
+		assertEquals("12a", JSONObject.stringToValue("12a"));
+	}
+
+	@Test
+	public void readsPrimitives() throws JSONException {
+		JSONTokener x = new JSONTokener(new TrickleReader(" 612 , -9000000000 , 5.0 , 0.1 ,3e-5"));
+		assertEquals(612, x.nextInt());
+		assertEquals(',', x.nextClean());
+		assertEquals(-9000000000L, x.nextLong());
+		assertEquals(',', x.nextClean());
+		assertEquals(5, x.nextInt());
+		assertEquals(',', x.nextClean());
+		assertEquals(0.1, x.nextDouble(), 0);
+		assertEquals(',', x.nextClean());
+		assertEquals(3e-5, x.nextDouble(), 0);
+	}
+
+	@Test(expected = JSONException.class)
+	public void rejectsIntOverflow() throws JSONException {
+		new JSONTokener("9000000000").nextInt();
+	}
+
+	@Test(expected = JSONException.class)
+	public void rejectsFractionalLong() throws JSONException {
+		new JSONTokener("1.5").nextLong();
+	}
+
+	@Test
+	public void decodesDoublesExactly() throws JSONException {
+		Random random = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			String text = Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 10));
+			assertEquals(text, Double.parseDouble(text), new JSONTokener(text).nextDouble(), 0);
+			String fixed = String.format(Locale.ROOT, "%.6f", random.nextDouble() * 180 - 90);
+			assertEquals(fixed, Double.parseDouble(fixed), new JSONTokener(fixed).nextDouble(), 0);
+		}
+	}
+
+	@Test
+	public void sharesKeyStrings() throws JSONException {
+		JSONArray array = new JSONArray("[{\"id\":1,\"zz\":2},{\"id\":3,\"zz\":4}]");
+		String id = (String) array.getJSONObject(0).keys().next();
+		assertSame("id", id);
+		Iterator<?> first = array.getJSONObject(0).keys();
+		Iterator<?> second = array.getJSONObject(1).keys();
+		first.next();
+		second.next();
+		assertSame(first.next(), second.next());
+	}
+
+	@Test
+	public void readsKeysAcrossRefillsAndEscapes() throws JSONException {
+		String text = "{\"a\\u0062\":1,\"" + repeat('k', 50) + "\":2,\"full_name\":3}";
+		JSONObject json = new JSONObject(new JSONTokener(new TrickleReader(text)));
+		assertEquals(1, json.getInt("ab"));
+		assertEquals(2, json.getInt(repeat('k', 50)));
+		assertEquals(3, json.getInt("full_name"));
+	}
+}
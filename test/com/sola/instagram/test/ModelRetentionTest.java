@@ -0,0 +1,142 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import com.sola.instagram.model.Comment;
+import com.sola.instagram.model.InstagramModel;
+import com.sola.instagram.model.Location;
+import com.sola.instagram.model.Media;
+import com.sola.instagram.model.User;
+import com.sola.instagram.model.VideoMedia;
+
+import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONTokener;
+import org.junit.After;
+import org.junit.Test;
+
+public class ModelRetentionTest {
+
+	static final String USER = "{\"id\":\"3\",\"username\":\"kevin\",\"full_name\":\"Kevin S\","
+			+ "\"profile_picture\":\"http://p/3.jpg\"}";
+
+	static final String VIDEO = "{\"id\":\"m1\",\"type\":\"video\",\"created_time\":\"1279340983\","
+			+ "\"filter\":\"Vesper\",\"link\":\"http://l/m1\",\"user_has_liked\":true,"
+			+ "\"caption\":{\"id\":\"c9\",\"created_time\":\"1279340984\",\"text\":\"caf\\u00e9 \\\"night\\\"\","
+			+ "\"from\":" + USER + "},"
+			+ "\"location\":{\"id\":\"7\",\"name\":\"Dogpatch\",\"latitude\":37.77,\"longitude\":-122.38},"
+			+ "\"tags\":[\"coffee\",\"sf\"],\"user\":" + USER + ","
+			+ "\"comments\":{\"count\":1,\"data\":[{\"id\":\"c1\",\"created_time\":\"1\",\"text\":\"hi\","
+			+ "\"from\":" + USER + "}]},"
+			+ "\"likes\":{\"count\":1,\"data\":[" + USER + "]},"
+			+ "\"users_in_photo\":[{\"position\":{\"x\":0.25,\"y\":0.5},\"user\":" + USER + "}],"
+			+ "\"images\":{\"low_resolution\":{\"url\":\"http://i/l.jpg\",\"width\":306,\"height\":306},"
+			+ "\"thumbnail\":{\"url\":\"http://i/t.jpg\",\"width\":150,\"height\":150},"
+			+ "\"standard_resolution\":{\"url\":\"http://i/s.jpg\",\"width\":612,\"height\":612}},"
+			+ "\"videos\":{\"low_resolution\":{\"url\":\"http://v/l.mp4\",\"width\":480,\"height\":480},"
+			+ "\"standard_resolution\":{\"url\":\"http://v/s.mp4\",\"width\":640,\"height\":640}}}";
+
+	@After
+	public void tearDown() {
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.TREE);
+	}
+
+	private static void assertSameMedia(Media expected, Media actual) throws Exception {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getType(), actual.getType());
+		assertEquals(expected.getCreatedTimestamp(), actual.getCreatedTimestamp());
+		assertEquals(expected.getFilter(), actual.getFilter());
+		assertEquals(expected.getLink(), actual.getLink());
+		assertEquals(expected.userHasLikedMedia(), actual.userHasLikedMedia());
+		assertEquals(expected.getTags(), actual.getTags());
+		assertEquals(expected.getCaption().getText(), actual.getCaption().getText());
+		assertEquals(expected.getCaption().getFrom(), actual.getCaption().getFrom());
+		assertEquals(expected.getUser().getUserName(), actual.getUser().getUserName());
+		assertEquals(expected.getLocation().getName(), actual.getLocation().getName());
+		assertEquals(expected.getLocation().getLatitude(), actual.getLocation().getLatitude());
+		assertEquals(expected.getStandardResolutionImage(), actual.getStandardResolutionImage());
+		assertEquals(expected.getThumbnailImage().getWidth(), actual.getThumbnailImage().getWidth());
+		assertEquals(expected.getUsersInPhoto().get(0).getX(), actual.getUsersInPhoto().get(0).getX(), 0);
+		assertEquals(expected.getUsersInPhoto().get(0).getUser(), actual.getUsersInPhoto().get(0).getUser());
+		assertEquals(((VideoMedia) expected).getStandardResolutionVideo(),
+				((VideoMedia) actual).getStandardResolutionVideo());
+	}
+
+	@Test
+	public void leanModelsWriteTheirFields() throws Exception {
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.NONE);
+		Media media = Media.fromJSON(new JSONObject(VIDEO), "token");
+		Media copy = Media.fromJSON(new JSONObject(media.toString()), "token");
+		assertSameMedia(media, copy);
+		assertEquals(media.toString(), copy.toString());
+	}
+
+	@Test
+	public void readerBoundModelsWriteTheirFields() throws Exception {
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.NONE);
+		Media media = Media.fromJSON(new JSONReader(new JSONTokener(VIDEO)), "token");
+		Media copy = Media.fromJSON(new JSONObject(media.toString()), "token");
+		assertSameMedia(media, copy);
+
+		Comment comment = new Comment(new JSONReader(new JSONTokener(
+				"{\"id\":\"c1\",\"created_time\":\"1\",\"text\":\"hi\",\"from\":" + USER + "}")), "token");
+		JSONObject json = new JSONObject(comment.toString());
+		assertEquals("hi", json.getString("text"));
+		assertEquals("kevin", json.getJSONObject("from").getString("username"));
+	}
+
+	@Test
+	public void missingCoordinatesAreLeftOut() throws Exception {
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.NONE);
+		Location location = new Location(new JSONObject("{\"id\":\"7\",\"name\":\"Dogpatch\"}"), "token");
+		JSONObject json = new JSONObject(location.toString());
+		assertEquals("Dogpatch", json.getString("name"));
+		assertFalse(json.has("latitude"));
+	}
+
+	@Test
+	public void bytesKeepTheSource() throws Exception {
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.BYTES);
+		JSONObject source = new JSONObject(VIDEO);
+		Media media = Media.fromJSON(source, "token");
+		assertEquals(source.toString(), media.toString());
+	}
+
+	@Test
+	public void nestedModelsKeepNoBytes() throws Exception {
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.NONE);
+		String lean = new User(new JSONObject(USER), "token").toString();
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.BYTES);
+		Media media = Media.fromJSON(new JSONObject(VIDEO), "token");
+		assertEquals(lean, media.getUser().toString());
+		assertEquals(lean, media.getCaption().getFrom().toString());
+
+		media = Media.fromJSON(new JSONReader(new JSONTokener(VIDEO)), "token");
+		assertEquals(lean, media.getUser().toString());
+		assertEquals(lean, media.getUsersInPhoto().get(0).getUser().toString());
+	}
+
+	@Test
+	public void readerBoundBytesAreTheSourceText() throws Exception {
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.BYTES);
+		String spaced = VIDEO.replace(",\"", ", \"");
+		Media media = Media.fromJSON(new JSONReader(new JSONTokener(spaced)), "token");
+		assertTrue(media instanceof VideoMedia);
+		assertEquals(spaced, media.toString());
+
+		// spans that outgrow the buffer of a streaming reader
+		StringBuilder page = new StringBuilder("[");
+		for (int i = 0; i < 40; i++) {
+			page.append(i == 0 ? "" : ",").append(spaced);
+		}
+		JSONReader reader = new JSONReader(new StringReader(page.append("]").toString()));
+		reader.beginArray();
+		while (reader.hasNext()) {
+			assertEquals(spaced, Media.fromJSON(reader, "token").toString());
+		}
+		reader.endArray();
+	}
+}
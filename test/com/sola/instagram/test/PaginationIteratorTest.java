@@ -0,0 +1,274 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import com.sola.instagram.util.PageSpliterator;
+import com.sola.instagram.util.PaginatedCollection;
+import com.sola.instagram.util.PaginationIterator;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+public class PaginationIteratorTest {
+
+	private ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Serves four pages "page/0" to "page/3" of three numbers each, or
+	 * as many as asked for, without going to the network
+	 */
+	static class FakePages extends PaginationIterator<Integer> {
+		List<String> requested;
+		int pageCount = 4;
+
+		FakePages(ArrayList<Integer> list, List<String> requested) throws Exception {
+			super(list, "page/0");
+			this.requested = requested;
+		}
+
+		FakePages(ArrayList<Integer> list, List<String> requested, int pageCount)
+				throws Exception {
+			this(list, requested);
+			this.pageCount = pageCount;
+		}
+
+		@Override
+		protected JSONObject load(String uri) throws Exception {
+			int page = Integer.parseInt(uri.substring("page/".length()));
+			// the first page is loaded by the super constructor, before
+			// requested is assigned
+			if (requested != null) {
+				requested.add(uri);
+			}
+			// pageCount is still 0 while the super constructor loads page 0
+			return fakePage(page, pageCount == 0 ? 4 : pageCount);
+		}
+
+		@Override
+		protected Integer convert(JSONObject item) throws JSONException {
+			return item.getInt("n");
+		}
+	}
+
+	static JSONObject fakePage(int page, int pageCount) throws JSONException {
+		JSONArray data = new JSONArray();
+		for (int i = 0; i < 3; i++) {
+			data.put(new JSONObject().put("n", page * 3 + i));
+		}
+		JSONObject object = new JSONObject().put("data", data);
+		if (page < pageCount - 1) {
+			object.put("pagination",
+					new JSONObject().put("next_url", "page/" + (page + 1)));
+		}
+		return object;
+	}
+
+	/**
+	 * Serves the same four pages, but converts them the way iterators did
+	 * before convert(JSONObject) existed, by overriding handleLoad alone
+	 */
+	static class WholePages extends PaginationIterator<Integer> {
+		WholePages(ArrayList<Integer> list) throws Exception {
+			super(list, "page/0");
+		}
+
+		@Override
+		protected JSONObject load(String uri) throws Exception {
+			return fakePage(Integer.parseInt(uri.substring("page/".length())), 4);
+		}
+
+		@Override
+		public void handleLoad(JSONArray data) throws JSONException {
+			for (int i = 0; i < data.length(); i++) {
+				list.add(data.getJSONObject(i).getInt("n"));
+			}
+		}
+	}
+
+	private List<Integer> drain(PaginatedCollection<Integer> collection) {
+		List<Integer> seen = new ArrayList<Integer>();
+		for (Integer i : collection) {
+			seen.add(i);
+		}
+		return seen;
+	}
+
+	@Test
+	public void testIteratesAllPages() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		FakePages iterator = new FakePages(list, null);
+		List<Integer> seen = drain(new PaginatedCollection<Integer>(list, iterator));
+		assertEquals(12, seen.size());
+		for (int i = 0; i < seen.size(); i++) {
+			assertEquals(i, seen.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testPrefetchKeepsOrder() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+		FakePages iterator = new FakePages(list, requested);
+		iterator.setPrefetch(0.3f, 2, executor);
+		List<Integer> seen = drain(new PaginatedCollection<Integer>(list, iterator));
+		assertEquals(12, seen.size());
+		for (int i = 0; i < seen.size(); i++) {
+			assertEquals(i, seen.get(i).intValue());
+		}
+		assertEquals(3, requested.size());
+		assertEquals("page/1", requested.get(0));
+		assertEquals("page/3", requested.get(2));
+	}
+
+	@Test
+	public void testPrefetchStartsBeforePageEnd() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+		FakePages iterator = new FakePages(list, requested);
+		iterator.setPrefetch(0.3f, 1, executor);
+		iterator.next();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (requested.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals("page/1", requested.get(0));
+		assertEquals(3, list.size());
+	}
+
+	@Test
+	public void testPageWindowReleasesConsumedPages() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		PaginatedCollection<Integer> collection = new PaginatedCollection<Integer>(
+				list, new FakePages(list, null)).setPageWindow(1);
+		int expected = 0;
+		for (Integer i : collection) {
+			assertEquals(expected++, i.intValue());
+			assertTrue(list.size() <= 6);
+		}
+		assertEquals(12, expected);
+		try {
+			collection.iterator();
+			fail("a streaming collection cannot be iterated twice");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testPageWindowKeepsAtMostItsPages() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		PaginatedCollection<Integer> collection = new PaginatedCollection<Integer>(
+				list, new FakePages(list, null, 50)).setPageWindow(1);
+		int expected = 0;
+		for (Integer i : collection) {
+			assertEquals(expected++, i.intValue());
+			assertTrue(list.size() + " items held", list.size() <= 3);
+		}
+		assertEquals(150, expected);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPageWindowDisablesSize() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		new PaginatedCollection<Integer>(list, new FakePages(list, null))
+				.setPageWindow(2).size();
+	}
+
+	@Test
+	public void testStreamStopsFetchingWhenSatisfied() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+		PaginatedCollection<Integer> collection = new PaginatedCollection<Integer>(
+				list, new FakePages(list, requested));
+		List<Integer> first = collection.stream().limit(5).collect(Collectors.toList());
+		assertEquals(5, first.size());
+		assertEquals(4, first.get(4).intValue());
+		assertEquals(1, requested.size());
+	}
+
+	@Test
+	public void testParallelStreamKeepsOrder() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		PaginatedCollection<Integer> collection = new PaginatedCollection<Integer>(
+				list, new FakePages(list, null));
+		List<Integer> all = collection.parallelStream().collect(Collectors.toList());
+		assertEquals(12, all.size());
+		for (int i = 0; i < all.size(); i++) {
+			assertEquals(i, all.get(i).intValue());
+		}
+		// the stream does not add its pages to the collection
+		assertEquals(3, list.size());
+	}
+
+	@Test
+	public void testParallelLimitFetchesFewPages() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+		PaginatedCollection<Integer> collection = new PaginatedCollection<Integer>(
+				list, new FakePages(list, requested, 100));
+		List<Integer> first = collection.parallelStream().limit(5).collect(Collectors.toList());
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), first);
+		// at most one page per thread is fetched to be split off, and a
+		// couple more by the thread that consumes the rest in order
+		assertTrue(requested.toString(),
+				requested.size() <= ForkJoinPool.getCommonPoolParallelism() + 3);
+	}
+
+	@Test
+	public void testSplittingStopsAfterTheSplitLimit() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+		PageSpliterator<Integer> pages = new PageSpliterator<Integer>(
+				new FakePages(list, requested, 100), 2);
+		// split the way the fork/join framework does, until refused
+		int splits = 0;
+		while (pages.trySplit() != null) {
+			splits++;
+		}
+		// the items already loaded, then two fetched pages
+		assertEquals(3, splits);
+		assertEquals(Arrays.asList("page/1", "page/2"), requested);
+		assertTrue(pages.tryAdvance(n -> assertEquals(9, n.intValue())));
+		assertEquals(3, requested.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReleasedItemsCannotBeStreamed() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		PaginatedCollection<Integer> collection = new PaginatedCollection<Integer>(
+				list, new FakePages(list, null)).setPageWindow(1);
+		drain(collection);
+		collection.stream();
+	}
+
+	@Test
+	public void testHandleLoadOnlyIteratorsCanBeStreamed() throws Exception {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		PaginatedCollection<Integer> collection = new PaginatedCollection<Integer>(
+				list, new WholePages(list));
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 12; i++) {
+			expected.add(i);
+		}
+		assertEquals(expected, collection.stream().collect(Collectors.toList()));
+		assertEquals(expected, collection.parallelStream().collect(Collectors.toList()));
+		assertEquals(3, list.size());
+		assertEquals(expected, drain(collection));
+	}
+}
@@ -0,0 +1,93 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.sola.instagram.exception.RateLimitException;
+import com.sola.instagram.io.GetMethod;
+import com.sola.instagram.io.PostMethod;
+import com.sola.instagram.io.RateLimiter;
+import com.sola.instagram.io.RateLimits;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+	@Test
+	public void drainsThenPacesRequests() {
+		RateLimiter limiter = new RateLimiter(10, 1, TimeUnit.HOURS);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, limiter.reserve());
+		}
+		long wait = limiter.reserve();
+		long interval = TimeUnit.HOURS.toNanos(1) / 10;
+		assertTrue(wait > interval * 0.99 && wait <= interval);
+		assertTrue(limiter.reserve() > interval * 1.99);
+	}
+
+	@Test
+	public void refillsOverTime() throws InterruptedException {
+		RateLimiter limiter = new RateLimiter(100, 1, TimeUnit.SECONDS);
+		while (limiter.tryAcquire()) {
+		}
+		assertFalse(limiter.tryAcquire());
+		Thread.sleep(50);
+		assertTrue(limiter.getAvailable() >= 3);
+		assertTrue(limiter.tryAcquire());
+	}
+
+	@Test
+	public void followsTheRemainingCountOfTheApi() {
+		RateLimiter limiter = new RateLimiter(5000);
+		limiter.update(5000, 12);
+		assertEquals(12, limiter.getAvailable());
+		limiter.update(5000, 4000);
+		assertEquals(12, limiter.getAvailable());
+		limiter.update(30, -1);
+		assertEquals(30, limiter.getLimit());
+	}
+
+	@Test
+	public void failsFastWithoutSpendingTheOtherQuota() throws Exception {
+		RateLimits limits = new RateLimits()
+				.setPolicy(RateLimits.Policy.FAIL_FAST)
+				.setClientLimit("client", 1);
+		limits.reserve("a");
+		try {
+			limits.reserve("b");
+			fail();
+		} catch (RateLimitException e) {
+			assertTrue(e.getRetryAfterMillis() > 0);
+		}
+		assertEquals(limits.getRequestsPerHour(), limits.getLimiter("b").getAvailable());
+	}
+
+	@Test
+	public void readsRateLimitHeaders() {
+		RateLimits limits = new RateLimits();
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.addHeader(RateLimits.LIMIT_HEADER, "5000");
+		response.addHeader(RateLimits.REMAINING_HEADER, "41");
+		limits.update("a", response);
+		assertEquals(41, limits.getLimiter("a").getAvailable());
+
+		limits.update("a", new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, "Too Many Requests"));
+		assertEquals(0, limits.getLimiter("a").getAvailable());
+	}
+
+	@Test
+	public void findsTheAccessTokenOfAMethod() {
+		assertEquals("t.1", new GetMethod()
+				.setMethodURI("https://api.instagram.com/v1/users/self/feed?count=3&access_token=t.1")
+				.getAccessToken());
+		assertNull(new GetMethod().setMethodURI("https://api.instagram.com/v1/tags/x").getAccessToken());
+		HashMap<String, Object> args = new HashMap<String, Object>();
+		args.put("access_token", "t.2");
+		assertEquals("t.2", new PostMethod().setPostParameters(args)
+				.setMethodURI("https://api.instagram.com/v1/media/1/likes").getAccessToken());
+	}
+}
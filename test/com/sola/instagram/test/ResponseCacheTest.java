@@ -0,0 +1,182 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sola.instagram.io.GetMethod;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.io.ResponseCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+	HttpServer server;
+	HttpTransport transport;
+	ResponseCache cache;
+	File directory;
+	AtomicInteger requests = new AtomicInteger();
+	AtomicInteger notModified = new AtomicInteger();
+	String base;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				String path = exchange.getRequestURI().getPath();
+				String etag = "\"" + path + "\"";
+				exchange.getResponseHeaders().set("ETag", etag);
+				if(etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					notModified.incrementAndGet();
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+				byte[] body = ("{\"data\":{\"path\":\"" + path + "\"}}").getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				exchange.getResponseBody().write(body);
+				exchange.close();
+			}
+		});
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+		directory = Files.createTempDirectory("response-cache").toFile();
+		cache = new ResponseCache(directory, 1 << 16, 4);
+		transport = new HttpTransport().setResponseCache(cache);
+	}
+
+	@After
+	public void tearDown() {
+		cache.close();
+		transport.shutdown();
+		server.stop(0);
+		delete(directory);
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if(files != null) {
+			for(File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private JSONObject get(String path) throws Exception {
+		return new GetMethod(transport).setMethodURI(base + path).call().getJSON();
+	}
+
+	@Test
+	public void normalizesUris() {
+		assertEquals("https://api.instagram.com/v1/tags/search?count=2&q=cat",
+				ResponseCache.normalize("HTTPS://API.Instagram.com/v1/tags/search"
+						+ "?q=cat&access_token=abc&count=2"));
+		assertEquals("https://api.instagram.com/v1/users/3",
+				ResponseCache.normalize("https://api.instagram.com/v1/users/3?access_token=abc"));
+	}
+
+	@Test
+	public void revalidatesWithETag() throws Exception {
+		assertEquals("/v1/users/3", get("/users/3?access_token=a")
+				.getJSONObject("data").getString("path"));
+		assertEquals("/v1/users/3", get("/users/3?access_token=b")
+				.getJSONObject("data").getString("path"));
+		assertEquals(2, requests.get());
+		assertEquals(1, notModified.get());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getRevalidatedCount());
+	}
+
+	@Test
+	public void servesFreshResponsesWithoutRequest() throws Exception {
+		cache.setFreshness(1, TimeUnit.MINUTES);
+		get("/users/3");
+		assertEquals("/v1/users/3", get("/users/3").getJSONObject("data").getString("path"));
+		assertEquals(1, requests.get());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void survivesRestart() throws Exception {
+		get("/locations/7");
+		get("/users/3");
+		cache.close();
+		cache = new ResponseCache(directory, 1 << 16, 4).setFreshness(1, TimeUnit.MINUTES);
+		transport.setResponseCache(cache);
+		assertEquals(2, cache.size());
+		assertEquals("/v1/locations/7", get("/locations/7")
+				.getJSONObject("data").getString("path"));
+		assertEquals(2, requests.get());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void servesStaleWhileRevalidating() throws Exception {
+		cache.setStaleWhileRevalidate(1, TimeUnit.MINUTES);
+		get("/users/3");
+		assertEquals("/v1/users/3", get("/users/3").getJSONObject("data").getString("path"));
+		assertEquals(1, cache.getStaleHitCount());
+		for(int i = 0; i < 100 && cache.getRevalidatedCount() == 0; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(1, cache.getRevalidatedCount());
+		assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void mutationsInvalidateTheirEntity() throws Exception {
+		cache.setFreshness(1, TimeUnit.MINUTES);
+		get("/media/5");
+		get("/media/5/likes");
+		get("/media/50");
+		assertEquals(3, cache.size());
+		EntityUtils.consume(transport.execute(new HttpPost(base + "/media/5/likes"))
+				.getEntity());
+		assertEquals(1, cache.size());
+		get("/media/50");
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void skipsViewerSpecificEndpoints() throws Exception {
+		cache.setFreshness(1, TimeUnit.MINUTES);
+		get("/users/self/feed");
+		get("/users/self/feed");
+		get("/users/3/relationship");
+		assertEquals(3, requests.get());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void dropsOldestSegments() throws Exception {
+		File segments = new File(directory, "small");
+		cache.close();
+		cache = new ResponseCache(segments, 256, 2);
+		transport.setResponseCache(cache);
+		for(int i = 0; i < 20; i++) {
+			get("/users/" + i);
+		}
+		assertEquals(2, segments.listFiles().length);
+		assertTrue(cache.size() < 20);
+		assertTrue(cache.size() > 0);
+	}
+}
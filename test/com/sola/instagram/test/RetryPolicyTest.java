@@ -0,0 +1,154 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sola.instagram.io.GetMethod;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.io.PostMethod;
+import com.sola.instagram.io.RetryPolicy;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+	static final String OK = "{\"meta\":{\"code\":200},\"data\":[1,2,3]}";
+
+	HttpServer server;
+	HttpTransport transport;
+	String uri;
+	AtomicInteger requests = new AtomicInteger();
+
+	/**
+	 * Each entry is played once, in order: a status, or -1 for a body
+	 * cut short in transit, or -2 for a complete response holding
+	 * truncated JSON
+	 */
+	LinkedList<Integer> script = new LinkedList<Integer>();
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				Integer step = script.isEmpty() ? 200 : script.removeFirst();
+				byte[] body = OK.getBytes("UTF-8");
+				OutputStream out = exchange.getResponseBody();
+				if (step == -1) {
+					exchange.sendResponseHeaders(200, body.length);
+					out.write(body, 0, 10);
+				} else if (step == -2) {
+					exchange.sendResponseHeaders(200, 10);
+					out.write(body, 0, 10);
+				} else {
+					exchange.sendResponseHeaders(step, body.length);
+					out.write(body);
+				}
+				exchange.close();
+			}
+		});
+		server.start();
+		uri = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/media/1";
+		transport = new HttpTransport().setRetryPolicy(new RetryPolicy(4, 1, 5, 5000));
+	}
+
+	@After
+	public void tearDown() {
+		transport.shutdown();
+		server.stop(0);
+	}
+
+	@Test
+	public void retriesServerErrors() throws Exception {
+		script.add(503);
+		script.add(429);
+		assertEquals(3, new GetMethod(transport).setMethodURI(uri).call()
+				.getJSON().getJSONArray("data").length());
+		assertEquals(3, requests.get());
+	}
+
+	@Test
+	public void returnsTheLastErrorOnceAttemptsRunOut() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			script.add(500);
+		}
+		assertNotNull(new GetMethod(transport).setMethodURI(uri).call().getJSON());
+		assertEquals(4, requests.get());
+	}
+
+	@Test
+	public void retriesTruncatedBodies() throws Exception {
+		script.add(-1);
+		script.add(-2);
+		assertEquals(3, new GetMethod(transport).setMethodURI(uri).call()
+				.getJSON().getJSONArray("data").length());
+		assertEquals(3, requests.get());
+	}
+
+	@Test(expected = JSONException.class)
+	public void doesNotRetryInvalidBodies() throws Exception {
+		server.removeContext("/");
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				byte[] body = "{\"a\" 1}".getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				exchange.getResponseBody().write(body);
+				exchange.close();
+			}
+		});
+		try {
+			new GetMethod(transport).setMethodURI(uri).call();
+		} finally {
+			assertEquals(1, requests.get());
+		}
+	}
+
+	@Test
+	public void neverRetriesPostsThatReachedTheServer() throws Exception {
+		script.add(503);
+		HashMap<String, Object> args = new HashMap<String, Object>();
+		args.put("text", "hi");
+		new PostMethod(transport).setPostParameters(args).setMethodURI(uri).call().getJSON();
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	public void classifiesFailures() {
+		RetryPolicy policy = new RetryPolicy();
+		assertTrue(policy.isRetryable(new ConnectException(), false));
+		assertTrue(policy.isRetryable(new SocketTimeoutException(), true));
+		assertFalse(policy.isRetryable(new SocketTimeoutException(), false));
+		assertFalse(policy.isRetryable(new InterruptedIOException(), true));
+		assertFalse(policy.isRetryable(new IllegalStateException(), true));
+		assertTrue(policy.isRetryable(503));
+		assertFalse(policy.isRetryable(404));
+	}
+
+	@Test
+	public void jittersWithinBounds() {
+		RetryPolicy policy = new RetryPolicy(10, 100, 1000, 10000);
+		long delay = 0;
+		for (int i = 0; i < 100; i++) {
+			long next = policy.nextDelay(delay);
+			assertTrue(next >= 100 && next <= Math.max(100, Math.min(1000, delay * 3)));
+			delay = next;
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sola.instagram.io.GetMethod;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.io.RequestResponse;
+import com.sola.instagram.io.SingleFlight;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+	static final int CALLERS = 8;
+
+	HttpServer server;
+	HttpTransport transport;
+	ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+	AtomicInteger requests = new AtomicInteger();
+	CountDownLatch release = new CountDownLatch(1);
+	String uri;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				byte[] body = "{\"data\":{\"id\":\"1\"}}".getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				exchange.getResponseBody().write(body);
+				exchange.close();
+			}
+		});
+		server.start();
+		uri = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/users/1";
+		transport = new HttpTransport();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+		transport.shutdown();
+		server.stop(0);
+	}
+
+	private List<Future<JSONObject>> callConcurrently(final String uri) {
+		List<Future<JSONObject>> results = new ArrayList<Future<JSONObject>>();
+		for (int i = 0; i < CALLERS; i++) {
+			results.add(executor.submit(new Callable<JSONObject>() {
+				public JSONObject call() throws Exception {
+					return new GetMethod(transport).setMethodURI(uri).call().getJSON();
+				}
+			}));
+		}
+		return results;
+	}
+
+	private void awaitJoiners(long count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (transport.getSingleFlight().getSharedCount() < count
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void sharesOneCallBetweenConcurrentCallers() throws Exception {
+		List<Future<JSONObject>> results = callConcurrently(uri);
+		awaitJoiners(CALLERS - 1);
+		release.countDown();
+		JSONObject first = results.get(0).get();
+		for (Future<JSONObject> result : results) {
+			assertSame(first, result.get());
+		}
+		assertEquals(1, requests.get());
+		assertEquals(0, transport.getSingleFlight().getInFlightCount());
+	}
+
+	@Test
+	public void sendsAgainOnceTheCallIsDone() throws Exception {
+		release.countDown();
+		new GetMethod(transport).setMethodURI(uri).call().getJSON();
+		new GetMethod(transport).setMethodURI(uri).call().getJSON();
+		assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void keysOnTheWholeUri() throws Exception {
+		release.countDown();
+		List<Future<JSONObject>> a = callConcurrently(uri + "?access_token=a");
+		List<Future<JSONObject>> b = callConcurrently(uri + "?access_token=b");
+		for (int i = 0; i < CALLERS; i++) {
+			assertNotNull(a.get(i).get());
+			assertNotNull(b.get(i).get());
+		}
+		assertTrue(requests.get() >= 2);
+	}
+
+	@Test
+	public void sharesFailures() throws Exception {
+		final SingleFlight singleFlight = new SingleFlight();
+		final CountDownLatch joined = new CountDownLatch(1);
+		Future<RequestResponse> joiner = executor.submit(new Callable<RequestResponse>() {
+			public RequestResponse call() throws Exception {
+				joined.await();
+				return singleFlight.call("k", new Callable<RequestResponse>() {
+					public RequestResponse call() {
+						throw new AssertionError("joined call should not run");
+					}
+				});
+			}
+		});
+		try {
+			singleFlight.call("k", new Callable<RequestResponse>() {
+				public RequestResponse call() throws Exception {
+					joined.countDown();
+					long end = System.currentTimeMillis() + 5000;
+					while (singleFlight.getSharedCount() == 0
+							&& System.currentTimeMillis() < end) {
+						Thread.sleep(5);
+					}
+					throw new IOException("boom");
+				}
+			});
+			fail();
+		} catch (IOException e) {
+			assertEquals("boom", e.getMessage());
+		}
+		try {
+			joiner.get();
+			fail();
+		} catch (java.util.concurrent.ExecutionException e) {
+			assertEquals("boom", e.getCause().getMessage());
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import com.sola.instagram.model.InstagramModel;
+import com.sola.instagram.model.Media;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.json.JSONWriter;
+import org.json.Utf8Writer;
+import org.junit.After;
+import org.junit.Test;
+
+public class StreamingWriteTest {
+
+	@After
+	public void tearDown() {
+		InstagramModel.setDefaultRetention(InstagramModel.Retention.TREE);
+	}
+
+	@Test
+	public void encodesUtf8AcrossBufferRefills() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("a\u00e9\u20ac\ud83d\udcf7");
+		}
+		String text = sb.toString();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Utf8Writer writer = new Utf8Writer(out);
+		writer.write(text.substring(0, 7));
+		writer.write(text.toCharArray(), 7, 3);
+		writer.write(text, 10, text.length() - 10);
+		writer.finish();
+		assertArrayEquals(text.getBytes("UTF-8"), out.toByteArray());
+
+		out.reset();
+		writer = new Utf8Writer(Channels.newChannel(out));
+		writer.write("x\ud800y");
+		writer.write('\ud83d');
+		writer.finish();
+		assertEquals("x?y?", out.toString("UTF-8"));
+	}
+
+	@Test
+	public void modelsWriteWhatToStringReturns() throws Exception {
+		for (InstagramModel.Retention retention : InstagramModel.Retention.values()) {
+			InstagramModel.setDefaultRetention(retention);
+			Media media = Media.fromJSON(new JSONObject(ModelRetentionTest.VIDEO), "token");
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			media.writeTo(out);
+			media.writeTo(Channels.newChannel(out));
+			String text = media.toString();
+			assertEquals(retention.name(), text + text, out.toString("UTF-8"));
+		}
+	}
+
+	@Test
+	public void writerStillChecksKeysAndNesting() throws Exception {
+		JSONStringer stringer = new JSONStringer();
+		stringer.object().key("a").value(1).key("b").object().key("a").value("x").endObject();
+		try {
+			stringer.key("a");
+			fail("duplicate key");
+		} catch (JSONException e) {
+			assertEquals("Duplicate key \"a\"", e.getMessage());
+		}
+		stringer.key("c").array().value(true).value(null).value(0.5).endArray().endObject();
+		assertEquals("{\"a\":1,\"b\":{\"a\":\"x\"},\"c\":[true,null,0.5]}", stringer.toString());
+
+		JSONWriter deep = new JSONStringer();
+		for (int i = 0; i < 200; i++) {
+			deep.array();
+		}
+		try {
+			deep.array();
+			fail("too deep");
+		} catch (JSONException e) {
+			assertEquals("Nesting too deep.", e.getMessage());
+		}
+	}
+}
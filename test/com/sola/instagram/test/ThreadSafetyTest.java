@@ -0,0 +1,131 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sola.instagram.exception.RateLimitException;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.model.Media;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+public class ThreadSafetyTest {
+
+	static final int THREADS = 8;
+
+	static final String MEDIA = "{\"id\":\"m1\",\"type\":\"image\",\"created_time\":\"1\","
+			+ "\"user_has_liked\":false,\"caption\":null,\"location\":null,\"tags\":[],"
+			+ "\"user\":{\"id\":\"1\",\"username\":\"u\",\"full_name\":\"U\",\"profile_picture\":\"p\"},"
+			+ "\"images\":{\"low_resolution\":{\"url\":\"l\",\"width\":1,\"height\":1},"
+			+ "\"thumbnail\":{\"url\":\"t\",\"width\":1,\"height\":1},"
+			+ "\"standard_resolution\":{\"url\":\"s\",\"width\":1,\"height\":1}}}";
+
+	static final String USERS = "{\"data\":[{\"id\":\"2\",\"username\":\"a\","
+			+ "\"full_name\":\"A\",\"profile_picture\":\"p\"}]}";
+
+	static final String COMMENTS = "{\"data\":[{\"id\":\"c1\",\"created_time\":\"1\","
+			+ "\"text\":\"hi\",\"from\":{\"id\":\"2\",\"username\":\"a\","
+			+ "\"full_name\":\"A\",\"profile_picture\":\"p\"}}]}";
+
+	/**
+	 * Answers comment and like requests slowly, without coalescing them,
+	 * so that concurrent lazy loads overlap
+	 */
+	static class SlowTransport extends HttpTransport {
+		AtomicInteger requests = new AtomicInteger();
+
+		SlowTransport() {
+			setSingleFlight(null);
+		}
+
+		@Override
+		public HttpResponse execute(HttpUriRequest request, String accessToken)
+				throws IOException, RateLimitException {
+			requests.incrementAndGet();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			String path = request.getURI().getPath();
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+			response.setEntity(new StringEntity(
+					path.endsWith("/comments") ? COMMENTS : USERS, "UTF-8"));
+			return response;
+		}
+	}
+
+	SlowTransport transport = new SlowTransport();
+	ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private <T> List<T> concurrently(final Callable<T> task) throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(executor.submit(new Callable<T>() {
+				public T call() throws Exception {
+					start.await();
+					return task.call();
+				}
+			}));
+		}
+		start.countDown();
+		List<T> results = new ArrayList<T>();
+		for (Future<T> future : futures) {
+			results.add(future.get());
+		}
+		return results;
+	}
+
+	@Test
+	public void loadsCommentsOnce() throws Exception {
+		final Media media = Media.fromJSON(new JSONObject(MEDIA), "token");
+		media.setTransport(transport);
+		List<List<?>> lists = concurrently(new Callable<List<?>>() {
+			public List<?> call() throws Exception {
+				return media.getComments();
+			}
+		});
+		assertEquals(1, transport.requests.get());
+		for (List<?> list : lists) {
+			assertSame(lists.get(0), list);
+			assertEquals(1, list.size());
+		}
+	}
+
+	@Test
+	public void loadsLikersOnce() throws Exception {
+		final Media media = Media.fromJSON(new JSONObject(MEDIA), "token");
+		media.setTransport(transport);
+		List<List<?>> lists = concurrently(new Callable<List<?>>() {
+			public List<?> call() throws Exception {
+				return media.getLikers();
+			}
+		});
+		assertEquals(1, transport.requests.get());
+		for (List<?> list : lists) {
+			assertSame(lists.get(0), list);
+		}
+	}
+}
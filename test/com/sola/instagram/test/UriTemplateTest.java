@@ -0,0 +1,73 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import com.sola.instagram.io.UriFactory;
+import com.sola.instagram.util.UriConstructor;
+import com.sola.instagram.util.UriTemplate;
+
+import org.junit.Test;
+
+public class UriTemplateTest {
+
+	@Test
+	public void fillsPlaceholders() {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		map.put("media_id", "123_456");
+		map.put("comment_id", 789);
+		assertEquals(UriFactory.API_ROOT + "/media/123_456/comments/789",
+				UriTemplate.compile(UriFactory.Comments.DELETE_MEDIA_COMMENT).expand(map));
+	}
+
+	@Test
+	public void percentEncodesValues() {
+		assertEquals(UriFactory.API_ROOT + "/tags/caf%C3%A9%20au%2Flait%F0%9F%98%80",
+				UriTemplate.compile(UriFactory.Tags.GET_TAG).expand(
+						Collections.singletonMap("tag_name", "café au/lait😀")));
+	}
+
+	@Test
+	public void appendsQueryParameters() {
+		LinkedHashMap<String, Object> query = new LinkedHashMap<String, Object>();
+		query.put("lat", 48.858844);
+		query.put("lng", 2.294351);
+		query.put("min_timestamp", null);
+		query.put("distance", 5000);
+		assertEquals(UriFactory.API_ROOT + "/media/search?lat=48.858844&lng=2.294351&distance=5000",
+				UriTemplate.compile(UriFactory.Media.SEARCH_MEDIA).expand(null, query));
+	}
+
+	@Test
+	public void extendsAnExistingQuery() {
+		UriTemplate template = new UriTemplate("https://example.com/a?x={x}");
+		assertEquals("https://example.com/a?x=1%262&y=2", template.expand(
+				Collections.singletonMap("x", "1&2"), Collections.singletonMap("y", 2)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsMissingValues() {
+		UriTemplate.compile(UriFactory.Users.GET_DATA).expand(new HashMap<String, Object>());
+	}
+
+	@Test
+	public void parsesEachTemplateOnce() {
+		assertSame(UriTemplate.compile(UriFactory.Users.GET_FEED),
+				UriTemplate.compile(UriFactory.Users.GET_FEED));
+		assertArrayEquals(new String[] { "media_id", "comment_id" },
+				UriTemplate.compile(UriFactory.Comments.DELETE_MEDIA_COMMENT).getNames());
+	}
+
+	@Test
+	public void putsTheAccessTokenFirst() {
+		UriConstructor constructor = new UriConstructor("tok.en");
+		assertEquals(UriFactory.API_ROOT + "/users/search?access_token=tok.en&q=jack%20d",
+				constructor.constructUri(UriFactory.Users.SEARCH_USER_BY_NAME, null,
+						Collections.singletonMap("q", "jack d"), true));
+		assertEquals(UriFactory.API_ROOT + "/users/self/feed?access_token=tok.en",
+				constructor.constructUri(UriFactory.Users.GET_FEED, null, true));
+	}
+}
@@ -0,0 +1,163 @@
+package com.sola.instagram.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sola.instagram.InstagramSession;
+import com.sola.instagram.auth.AccessToken;
+import com.sola.instagram.exception.RateLimitException;
+import com.sola.instagram.io.HttpTransport;
+import com.sola.instagram.model.User;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+public class UserHydrationTest {
+
+	/**
+	 * Answers user requests without a server; user 99 cannot be accessed
+	 */
+	static class StubTransport extends HttpTransport {
+		ConcurrentHashMap<String, AtomicInteger> requests =
+				new ConcurrentHashMap<String, AtomicInteger>();
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		Set<Thread> threads = Collections.synchronizedSet(
+				Collections.newSetFromMap(new IdentityHashMap<Thread, Boolean>()));
+
+		@Override
+		public HttpResponse execute(HttpUriRequest request, String accessToken)
+				throws IOException, RateLimitException {
+			String path = request.getURI().getPath();
+			requests.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+			threads.add(Thread.currentThread());
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				inFlight.decrementAndGet();
+			}
+			String id = path.substring(path.lastIndexOf('/') + 1);
+			String body = id.equals("99") ? "{\"meta\":{\"code\":400}}"
+					: "{\"data\":{\"id\":\"" + id + "\",\"username\":\"u" + id
+					+ "\",\"full_name\":\"U\",\"profile_picture\":\"p\",\"bio\":\"bio " + id
+					+ "\",\"website\":\"w\",\"counts\":{\"media\":1,\"follows\":2,\"followed_by\":"
+					+ id + "}}}";
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+			response.setEntity(new StringEntity(body, "UTF-8"));
+			return response;
+		}
+
+		int count(String path) {
+			AtomicInteger count = requests.get(path);
+			return count == null ? 0 : count.get();
+		}
+	}
+
+	StubTransport transport = new StubTransport();
+	InstagramSession session = new InstagramSession(new AccessToken("token"), transport);
+
+	@After
+	public void tearDown() {
+		session.close();
+	}
+
+	private User partialUser(int id) throws Exception {
+		User user = new User(new JSONObject("{\"id\":\"" + id + "\",\"username\":\"u" + id
+				+ "\",\"full_name\":\"U\",\"profile_picture\":\"p\"}"), "token");
+		user.setTransport(transport);
+		return user;
+	}
+
+	@Test
+	public void hydratesEachUserOnce() throws Exception {
+		List<User> users = new ArrayList<User>();
+		for (int i = 1; i <= 20; i++) {
+			users.add(partialUser(i));
+			users.add(partialUser(i));
+		}
+		users.add(partialUser(99));
+		session.hydrateUsers(users, 4);
+
+		for (int i = 1; i <= 20; i++) {
+			assertEquals(1, transport.count("/v1/users/" + i));
+		}
+		for (User user : users) {
+			if (user.getId() == 99) {
+				assertFalse(user.hasDetails());
+				continue;
+			}
+			assertTrue(user.hasDetails());
+			assertEquals(user.getId(), user.getFollowerCount());
+			assertEquals(2, user.getFollowingCount());
+			assertEquals(1, user.getMediaCount());
+			assertEquals("bio " + user.getId(), user.getBio());
+		}
+		assertEquals(21, transport.requests.size());
+		assertEquals(1, transport.count("/v1/users/99"));
+	}
+
+	@Test
+	public void reusesTheSessionThreads() throws Exception {
+		for (int page = 0; page < 5; page++) {
+			List<User> users = new ArrayList<User>();
+			for (int i = 1; i <= 10; i++) {
+				users.add(partialUser(page * 10 + i));
+			}
+			session.hydrateUsers(users, 3);
+			for (User user : users) {
+				assertTrue(user.hasDetails());
+			}
+		}
+		assertTrue(transport.maxInFlight.get() + " requests at once",
+				transport.maxInFlight.get() <= 3);
+		// a pool per call would have started 15 threads
+		assertTrue(transport.threads.size() + " threads", transport.threads.size() <= 6);
+	}
+
+	@Test
+	public void gettersShareOneRefresh() throws Exception {
+		final User user = partialUser(5);
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		try {
+			List<Future<Integer>> counts = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < 6; i++) {
+				final int getter = i % 3;
+				counts.add(executor.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						return getter == 0 ? user.getFollowerCount()
+								: getter == 1 ? user.getFollowingCount()
+								: user.getMediaCount();
+					}
+				}));
+			}
+			for (int i = 0; i < counts.size(); i++) {
+				assertEquals(i % 3 == 0 ? 5 : i % 3 == 1 ? 2 : 1, (int) counts.get(i).get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, transport.count("/v1/users/5"));
+		assertEquals("bio 5", user.getBio());
+	}
+}